@@ -120,7 +120,7 @@ public abstract class AbstractConnection implements Connection
     @Override
     public boolean isWrapperFor( Class<?> iface ) throws SQLException
     {
-        return false;
+        return iface.isInstance( this );
     }
 
     @Override
@@ -29,6 +29,11 @@ public abstract class AbstractPreparedStatement extends Neo4jStatement implement
         super( connection );
     }
 
+    public AbstractPreparedStatement( Neo4jConnection connection, int resultSetType )
+    {
+        super( connection, resultSetType );
+    }
+
 
     @Override
     public void setAsciiStream( int parameterIndex, InputStream value, long length ) throws SQLException
@@ -126,12 +131,6 @@ public abstract class AbstractPreparedStatement extends Neo4jStatement implement
         throw new SQLException( "Streams not supported as parameters" );
     }
 
-    @Override
-    public void addBatch() throws SQLException
-    {
-        throw new SQLException( "Batch operations not supported" );
-    }
-
     @Override
     public void setCharacterStream( int parameterIndex, Reader reader, int length ) throws SQLException
     {
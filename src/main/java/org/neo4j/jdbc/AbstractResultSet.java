@@ -4,6 +4,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.jackson.map.ObjectMapper;
 
+import org.neo4j.jdbc.util.TypedCells;
+
 import javax.sql.rowset.serial.SerialArray;
 import java.io.InputStream;
 import java.io.Reader;
@@ -47,6 +49,7 @@ public abstract class AbstractResultSet implements ResultSet
     private List<Neo4jColumnMetaData> columns;
     private Neo4jConnection conn;
     private String[] columnNames;
+    private ColumnIndex columnIndex;
     private int cols;
     private boolean wasNull = false;
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
@@ -70,6 +73,7 @@ public abstract class AbstractResultSet implements ResultSet
         this.cols = columns.size();
         this.columns = columns;
         this.columnNames = extractColumnNames( columns );
+        this.columnIndex = createColumnIndex();
     }
 
     public AbstractResultSet( Neo4jConnection conn, List<String> columns )
@@ -78,6 +82,12 @@ public abstract class AbstractResultSet implements ResultSet
         this.cols = columns.size();
         this.columnNames = columns.toArray( new String[cols] );
         this.columns = createMetadataFor( columns );
+        this.columnIndex = createColumnIndex();
+    }
+
+    private ColumnIndex createColumnIndex()
+    {
+        return ColumnIndex.of( columnNames, conn != null && conn.isCaseInsensitiveColumns() );
     }
 
     protected List<Neo4jColumnMetaData> createMetadataFor( List<String> columns )
@@ -103,6 +113,11 @@ public abstract class AbstractResultSet implements ResultSet
     @Override
     public String getString( int i ) throws SQLException
     {
+        final TypedCells row = typedRow( i );
+        if ( row != null && row.getType( i - 1 ) == TypedCells.RAW_JSON )
+        {
+            return row.getRawJson( i - 1 );
+        }
         Object value = get( i );
 
         if ( value == null )
@@ -136,33 +151,58 @@ public abstract class AbstractResultSet implements ResultSet
     @Override
     public boolean getBoolean( int i ) throws SQLException
     {
+        final TypedCells row = typedRow( i );
+        if ( row != null && row.getType( i - 1 ) == TypedCells.BOOLEAN )
+        {
+            return row.getBoolean( i - 1 );
+        }
         return (Boolean) get( i );
     }
 
     @Override
     public byte getByte( int i ) throws SQLException
     {
-        return getNumber( i ).byteValue();
+        return (byte) getLongValue( i );
     }
 
     @Override
     public short getShort( int i ) throws SQLException
     {
-        return getNumber( i ).shortValue();
+        return (short) getLongValue( i );
     }
 
     @Override
     public int getInt( int i ) throws SQLException
     {
-        return getNumber( i ).intValue();
+        return (int) getLongValue( i );
     }
 
     @Override
     public long getLong( int i ) throws SQLException
     {
+        return getLongValue( i );
+    }
+
+    private long getLongValue( int i ) throws SQLException
+    {
+        final TypedCells row = typedRow( i );
+        if ( row != null && row.isNumber( i - 1 ) )
+        {
+            return row.getLong( i - 1 );
+        }
         return getNumber( i ).longValue();
     }
 
+    private double getDoubleValue( int i ) throws SQLException
+    {
+        final TypedCells row = typedRow( i );
+        if ( row != null && row.isNumber( i - 1 ) )
+        {
+            return row.getDouble( i - 1 );
+        }
+        return getNumber( i ).doubleValue();
+    }
+
     private Number getNumber( int i ) throws SQLException
     {
         Object value = get( i );
@@ -171,29 +211,66 @@ public abstract class AbstractResultSet implements ResultSet
         return ((Number) value );
     }
 
+    /**
+     * @return the current row in its unboxed form if the result set provides it, wasNull is updated for the column
+     */
+    private TypedCells typedRow( int column ) throws SQLDataException
+    {
+        final TypedCells row = currentTypedRow();
+        if ( row != null )
+        {
+            checkColumn( column );
+            wasNull = row.getType( column - 1 ) == TypedCells.NULL;
+        }
+        return row;
+    }
+
     private Object get( int column ) throws SQLDataException
     {
-        if ( column < 1 || column > cols )
+        checkColumn( column );
+        final TypedCells row = currentTypedRow();
+        final Object value;
+        try
         {
-            throw new SQLDataException( "Column " + column + " is invalid" );
+            value = row != null ? row.get( column - 1 ) : currentRow()[column - 1];
+        }
+        catch ( IllegalStateException e ) // e.g. a lazy cell that can't be decoded
+        {
+            throw new SQLDataException( e.getMessage(), e );
         }
-        Object value = currentRow()[column - 1];
         wasNull = value == null;
         return value;
     }
 
+    private void checkColumn( int column ) throws SQLDataException
+    {
+        if ( column < 1 || column > cols )
+        {
+            throw new SQLDataException( "Column " + column + " is invalid" );
+        }
+    }
+
     protected abstract Object[] currentRow();
 
+    /**
+     * @return the current row with its numeric and boolean cells unboxed, or null if the result set only provides
+     * boxed rows via currentRow()
+     */
+    protected TypedCells currentTypedRow()
+    {
+        return null;
+    }
+
     @Override
     public float getFloat( int i ) throws SQLException
     {
-        return getNumber( i ).floatValue();
+        return (float) getDoubleValue( i );
     }
 
     @Override
     public double getDouble( int i ) throws SQLException
     {
-        return getNumber( i ).doubleValue();
+        return getDoubleValue( i );
     }
 
     @Override
@@ -228,8 +305,7 @@ public abstract class AbstractResultSet implements ResultSet
 
     private long getTimeInMillis( int i ) throws SQLException
     {
-        Number number = getNumber( i );
-        return number.longValue();
+        return getLongValue( i );
     }
 
     @Override
@@ -395,15 +471,10 @@ public abstract class AbstractResultSet implements ResultSet
     @Override
     public int findColumn( String column ) throws SQLException
     {
-        if ( column != null )
+        final int index = columnIndex.indexOf( column );
+        if ( index > 0 )
         {
-            for ( int i = 0; i < cols; i++ )
-            {
-                if ( column.equals( columnNames[i] ) )
-                {
-                    return i + 1;
-                }
-            }
+            return index;
         }
         throw new SQLException( "No such column:" + column );
     }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.neo4j.jdbc;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Open addressing hash table from column name to column index of one result schema, used by the name based
+ * ResultSet getters instead of scanning the column names. Result sets with the same columns share the table
+ * through a small schema cache, as the same statements tend to be executed over and over.
+ * <p/>
+ * For duplicate column names the first column wins, as required by JDBC. In case insensitive mode an exact match
+ * is preferred over a match ignoring case.
+ */
+final class ColumnIndex
+{
+    private static final int MAX_CACHED_SCHEMAS = 256;
+
+    private static final ConcurrentMap<Schema, ColumnIndex> SCHEMAS = new ConcurrentHashMap<>();
+
+    private final String[] names;
+    private final boolean caseInsensitive;
+    private final int[] slots; // column index + 1, 0 for empty slots
+    private final int mask;
+
+    static ColumnIndex of( String[] names, boolean caseInsensitive )
+    {
+        final Schema schema = new Schema( names, caseInsensitive );
+        ColumnIndex index = SCHEMAS.get( schema );
+        if ( index == null )
+        {
+            index = new ColumnIndex( names, caseInsensitive );
+            if ( SCHEMAS.size() >= MAX_CACHED_SCHEMAS )
+            {
+                SCHEMAS.clear(); // cheap eviction, workloads have far less distinct schemas
+            }
+            SCHEMAS.put( new Schema( index.names, caseInsensitive ), index ); // key on the copy the index owns
+        }
+        return index;
+    }
+
+    ColumnIndex( String[] names, boolean caseInsensitive )
+    {
+        this.names = names.clone(); // callers may reuse their array
+        this.caseInsensitive = caseInsensitive;
+        int capacity = 4;
+        while ( capacity < names.length * 2 )
+        {
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for ( int i = 0; i < names.length; i++ )
+        {
+            if ( names[i] != null )
+            {
+                insert( i );
+            }
+        }
+    }
+
+    private void insert( int column )
+    {
+        final String name = names[column];
+        int slot = hash( name ) & mask;
+        while ( slots[slot] != 0 )
+        {
+            if ( name.equals( names[slots[slot] - 1] ) )
+            {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = column + 1;
+    }
+
+    /**
+     * @return the 1-based index of the column, or 0 if there is no such column
+     */
+    int indexOf( String name )
+    {
+        if ( name == null )
+        {
+            return 0;
+        }
+        int found = 0;
+        int slot = hash( name ) & mask;
+        for ( int column; (column = slots[slot]) != 0; slot = (slot + 1) & mask )
+        {
+            final String candidate = names[column - 1];
+            if ( name.equals( candidate ) )
+            {
+                return column;
+            }
+            if ( caseInsensitive && found == 0 && name.equalsIgnoreCase( candidate ) )
+            {
+                found = column;
+            }
+        }
+        return found;
+    }
+
+    private int hash( String name )
+    {
+        int h;
+        if ( caseInsensitive )
+        {
+            h = 0;
+            for ( int i = 0; i < name.length(); i++ )
+            {
+                h = 31 * h + Character.toLowerCase( Character.toUpperCase( name.charAt( i ) ) );
+            }
+        }
+        else
+        {
+            h = name.hashCode();
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static class Schema
+    {
+        private final String[] names;
+        private final boolean caseInsensitive;
+        private final int hash;
+
+        Schema( String[] names, boolean caseInsensitive )
+        {
+            this.names = names;
+            this.caseInsensitive = caseInsensitive;
+            this.hash = 31 * Arrays.hashCode( names ) + (caseInsensitive ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !(o instanceof Schema) )
+            {
+                return false;
+            }
+            final Schema other = (Schema) o;
+            return caseInsensitive == other.caseInsensitive && Arrays.equals( names, other.names );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
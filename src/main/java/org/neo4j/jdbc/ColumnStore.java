@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.neo4j.jdbc;
+
+import java.util.Arrays;
+
+import org.neo4j.jdbc.util.TypedCells;
+import org.neo4j.jdbc.util.TypedRow;
+
+/**
+ * Column-major storage of a disconnected result. Each column keeps a type tag per row, a primitive lane for int,
+ * long, double and boolean cells and an object lane for everything else. The lanes are only allocated once a
+ * column holds a value of their kind, so e.g. a column of counts is a plain long array.
+ * Rows are read through a cursor that is positioned by row index, without any allocation.
+ */
+final class ColumnStore
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Column[] columns;
+    private int columnCount;
+    private int rows;
+    private int capacity;
+
+    ColumnStore( int columns )
+    {
+        this.columns = new Column[Math.max( columns, 4 )];
+        this.capacity = INITIAL_CAPACITY;
+        for ( int i = 0; i < columns; i++ )
+        {
+            addColumn();
+        }
+    }
+
+    int addColumn()
+    {
+        if ( columnCount == columns.length )
+        {
+            columns = Arrays.copyOf( columns, columnCount * 2 );
+        }
+        columns[columnCount] = new Column( capacity );
+        return columnCount++;
+    }
+
+    int columns()
+    {
+        return columnCount;
+    }
+
+    int rows()
+    {
+        return rows;
+    }
+
+    /**
+     * Appends a row with all cells null.
+     *
+     * @return the index of the new row
+     */
+    int addRow()
+    {
+        if ( rows == capacity )
+        {
+            capacity *= 2;
+            for ( int i = 0; i < columnCount; i++ )
+            {
+                columns[i].grow( capacity );
+            }
+        }
+        return rows++;
+    }
+
+    void set( int row, int column, Object value )
+    {
+        if ( row >= rows )
+        {
+            throw new IndexOutOfBoundsException( "Row " + row + " of " + rows );
+        }
+        columns[column].set( row, value );
+    }
+
+    Object get( int row, int column )
+    {
+        return columns[column].get( row );
+    }
+
+    Object[] toArray( int row )
+    {
+        final Object[] result = new Object[columnCount];
+        for ( int i = 0; i < columnCount; i++ )
+        {
+            result[i] = get( row, i );
+        }
+        return result;
+    }
+
+    Cursor cursor()
+    {
+        return new Cursor();
+    }
+
+    /**
+     * View of one row of the store, moved by setting its row index.
+     */
+    final class Cursor implements TypedCells
+    {
+        private int row;
+
+        Cursor at( int row )
+        {
+            if ( row < 0 || row >= rows )
+            {
+                throw new IndexOutOfBoundsException( "Row " + row + " of " + rows );
+            }
+            this.row = row;
+            return this;
+        }
+
+        public int size()
+        {
+            return columnCount;
+        }
+
+        public byte getType( int cell )
+        {
+            return columns[cell].types[row];
+        }
+
+        public boolean isNumber( int cell )
+        {
+            return TypedRow.isNumber( getType( cell ) );
+        }
+
+        public long getLong( int cell )
+        {
+            final Column column = columns[cell];
+            return TypedRow.toLong( column.types[row], column.primitives[row] );
+        }
+
+        public double getDouble( int cell )
+        {
+            final Column column = columns[cell];
+            return TypedRow.toDouble( column.types[row], column.primitives[row] );
+        }
+
+        public boolean getBoolean( int cell )
+        {
+            return columns[cell].primitives[row] != 0;
+        }
+
+        public Object get( int cell )
+        {
+            return columns[cell].get( row );
+        }
+
+        public String getRawJson( int cell )
+        {
+            return null;
+        }
+    }
+
+    private static final class Column
+    {
+        private byte[] types;
+        private long[] primitives;
+        private Object[] objects;
+
+        Column( int capacity )
+        {
+            this.types = new byte[capacity];
+        }
+
+        void grow( int capacity )
+        {
+            types = Arrays.copyOf( types, capacity );
+            if ( primitives != null )
+            {
+                primitives = Arrays.copyOf( primitives, capacity );
+            }
+            if ( objects != null )
+            {
+                objects = Arrays.copyOf( objects, capacity );
+            }
+        }
+
+        void set( int row, Object value )
+        {
+            if ( value instanceof Integer )
+            {
+                setPrimitive( row, TypedCells.INT, (Integer) value );
+            }
+            else if ( value instanceof Long )
+            {
+                setPrimitive( row, TypedCells.LONG, (Long) value );
+            }
+            else if ( value instanceof Double )
+            {
+                setPrimitive( row, TypedCells.DOUBLE, Double.doubleToRawLongBits( (Double) value ) );
+            }
+            else if ( value instanceof Boolean )
+            {
+                setPrimitive( row, TypedCells.BOOLEAN, (Boolean) value ? 1 : 0 );
+            }
+            else
+            {
+                // other types, e.g. Short or Float, are kept as they are to not change what getObject returns
+                if ( objects == null && value != null )
+                {
+                    objects = new Object[types.length];
+                }
+                if ( objects != null )
+                {
+                    objects[row] = value;
+                }
+                types[row] = value == null ? TypedCells.NULL : TypedCells.OBJECT;
+            }
+        }
+
+        private void setPrimitive( int row, byte type, long value )
+        {
+            if ( primitives == null )
+            {
+                primitives = new long[types.length];
+            }
+            primitives[row] = value;
+            types[row] = type;
+            if ( objects != null )
+            {
+                objects[row] = null;
+            }
+        }
+
+        Object get( int row )
+        {
+            final byte type = types[row];
+            if ( type == TypedCells.NULL )
+            {
+                return null;
+            }
+            return type == TypedCells.OBJECT ? objects[row] : TypedRow.box( type, primitives[row] );
+        }
+    }
+}
@@ -20,6 +20,7 @@
 
 package org.neo4j.jdbc;
 
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -29,4 +30,9 @@ import java.util.Properties;
 public interface Databases
 {
     QueryExecutor createExecutor( String connectionUrl, Properties properties );
+
+    /**
+     * @return the plan caches of the named databases by their name
+     */
+    Map<String, QueryPlanCache> getQueryPlanCaches();
 }
@@ -24,13 +24,24 @@ import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.neo4j.jdbc.rest.Clusters;
+import org.neo4j.jdbc.rest.DiscoveryCache;
+import org.neo4j.jdbc.rest.TransactionKeepAlive;
+import org.neo4j.jdbc.rest.Transports;
+import org.neo4j.jdbc.util.DaemonThreadFactory;
 import org.restlet.Context;
 
 /**
@@ -57,9 +68,24 @@ public class Driver implements java.sql.Driver
     static final String URL_PREFIX = "jdbc:neo4j";
     static final String PASSWORD = "password";
     static final String USER = "user";
+    static final String DISCOVERY_TTL = "discoveryTtl";
+    static final String UNWIND_BATCH = "unwindBatch";
+    static final String COMPRESSION = "compression";
+    static final String COMPRESSION_THRESHOLD = "compressionThreshold";
+    static final String UNWIND_BATCH_BYTES = "unwindBatchBytes";
+    static final String CASE_INSENSITIVE_COLUMNS = "caseInsensitiveColumns";
+    static final String SCROLL_HEAP_BYTES = "scrollHeapBytes";
+    static final String LIVENESS_WINDOW = "livenessWindow";
 
     DriverQueries queries;
 
+    private final DiscoveryCache discoveryCache = new DiscoveryCache();
+    private final Transports transports = new Transports();
+    private final Clusters clusters = new Clusters();
+    private ExecutorService executor;
+    private ScheduledThreadPoolExecutor scheduler;
+    private TransactionKeepAlive keepAlive;
+
     public Driver()
     {
         queries = new DriverQueries();
@@ -116,6 +142,67 @@ public class Driver implements java.sql.Driver
         return queries;
     }
 
+    public DiscoveryCache getDiscoveryCache()
+    {
+        return discoveryCache;
+    }
+
+    /**
+     * @return the HTTP transports shared by all connections of this driver, one per server
+     */
+    public Transports getTransports()
+    {
+        return transports;
+    }
+
+    /**
+     * @return the HA clusters of the multi-host URLs of all connections of this driver
+     */
+    public Clusters getClusters()
+    {
+        return clusters;
+    }
+
+    /**
+     * @return the executor for background work of the connections like reading ahead results, its threads are
+     * daemon threads, created on demand and discarded when idle
+     */
+    public synchronized ExecutorService getExecutor()
+    {
+        if ( executor == null )
+        {
+            executor = Executors.newCachedThreadPool( new DaemonThreadFactory( "neo4j-jdbc-worker" ) );
+        }
+        return executor;
+    }
+
+    /**
+     * @return the single timer thread of this driver for statement timeouts and other delayed work of the
+     * connections, the tasks run on it must be short and hand off blocking work to the executor
+     */
+    public synchronized ScheduledExecutorService getScheduler()
+    {
+        if ( scheduler == null )
+        {
+            scheduler = new ScheduledThreadPoolExecutor( 1, new DaemonThreadFactory( "neo4j-jdbc-timer" ) );
+            scheduler.setRemoveOnCancelPolicy( true );
+        }
+        return scheduler;
+    }
+
+    /**
+     * @return the keep-alive of the open transactions of all connections of this driver to servers
+     */
+    public synchronized TransactionKeepAlive getTransactionKeepAlive()
+    {
+        if ( keepAlive == null )
+        {
+            keepAlive = new TransactionKeepAlive( getScheduler(), getExecutor(), TransactionKeepAlive
+                    .DEFAULT_INTERVAL );
+        }
+        return keepAlive;
+    }
+
     void parseUrlProperties( String s, Properties properties )
     {
         if ( s.contains( "?" ) )
@@ -164,6 +251,19 @@ public class Driver implements java.sql.Driver
         return databases.createExecutor( connectionUrl, properties );
     }
 
+    /**
+     * @return the Cypher plan caches of the file: and named mem: embedded databases by their name, they are
+     * shared by all connections to the same database
+     */
+    public Map<String, QueryPlanCache> getQueryPlanCaches()
+    {
+        if ( databases == null )
+        {
+            return Collections.emptyMap();
+        }
+        return databases.getQueryPlanCaches();
+    }
+
     public Logger getParentLogger() throws SQLFeatureNotSupportedException
     {
         return null;
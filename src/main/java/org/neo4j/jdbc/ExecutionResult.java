@@ -35,6 +35,7 @@ public class ExecutionResult implements Iterable<Object[]>, Closeable
     private List<String> columns;
     private Iterator<Object[]> result;
     private final boolean isLazy;
+    private int updateCount = -1;
 
     public ExecutionResult( List<String> columns, Iterator<Object[]> result )
     {
@@ -67,6 +68,20 @@ public class ExecutionResult implements Iterable<Object[]>, Closeable
         return result;
     }
 
+    /**
+     * @return the number of entities and properties changed by the statement, -1 if it is not known (yet), update
+     * counts of streamed results are available after the rows have been consumed
+     */
+    public int getUpdateCount()
+    {
+        return updateCount;
+    }
+
+    public void setUpdateCount( int updateCount )
+    {
+        this.updateCount = updateCount;
+    }
+
     public Iterator<Object[]> getResult()
     {
         return result;
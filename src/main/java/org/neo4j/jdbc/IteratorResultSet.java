@@ -27,6 +27,8 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.neo4j.jdbc.util.ClosableIterator;
+import org.neo4j.jdbc.util.TypedRow;
+import org.neo4j.jdbc.util.TypedRowIterator;
 
 /**
  * ResultSet implementation that is backed by an Iterator.
@@ -34,13 +36,16 @@ import org.neo4j.jdbc.util.ClosableIterator;
 public class IteratorResultSet extends AbstractResultSet
 {
     private Iterator<Object[]> data;
+    private TypedRowIterator typedData;
     private Object[] currentRow;
+    private TypedRow currentTypedRow;
     private int row = -1;
 
     public IteratorResultSet( List<Neo4jColumnMetaData> columns, Iterator<Object[]> data, Neo4jConnection conn )
     {
         super( columns, conn );
         this.data = data;
+        this.typedData = data instanceof TypedRowIterator ? (TypedRowIterator) data : null;
         data.hasNext();
     }
 
@@ -48,21 +53,40 @@ public class IteratorResultSet extends AbstractResultSet
     {
         super( conn, columns );
         this.data = data;
+        this.typedData = data instanceof TypedRowIterator ? (TypedRowIterator) data : null;
         data.hasNext();
     }
 
     @Override
     protected Object[] currentRow()
     {
+        if ( currentRow == null && currentTypedRow != null )
+        {
+            currentRow = currentTypedRow.toArray();
+        }
         return currentRow;
     }
 
+    @Override
+    protected TypedRow currentTypedRow()
+    {
+        return currentTypedRow;
+    }
+
     @Override
     public boolean next() throws SQLException
     {
         if ( hasNext() )
         {
-            currentRow = data.next();
+            if ( typedData != null )
+            {
+                currentTypedRow = typedData.nextTypedRow();
+                currentRow = null;
+            }
+            else
+            {
+                currentRow = data.next();
+            }
             row++;
             return true;
         }
@@ -211,7 +235,7 @@ public class IteratorResultSet extends AbstractResultSet
     @Override
     public String toString()
     {
-        return super.toString() + " current row " + row + ": " + Arrays.toString( currentRow );
+        return super.toString() + " current row " + row + ": " + Arrays.toString( currentRow() );
     }
 
 }
@@ -21,38 +21,69 @@
 package org.neo4j.jdbc;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 
+import org.neo4j.jdbc.util.TypedCells;
+
 /**
- * ResultSet implementation that is backed by Lists.
+ * ResultSet implementation that is backed by a column-major store, the rows can be accessed in any order.
  */
 public class ListResultSet extends AbstractResultSet
 {
     private static final int BEFORE_FIRST = -1;
     private int current = -1;
-    private List<List<Object>> data;
+    private final ColumnStore data;
+    private final ColumnStore.Cursor cursor;
     private final int rows;
 
     public ListResultSet( List<Neo4jColumnMetaData> columns, List<List<Object>> data, Neo4jConnection conn )
+    {
+        this( columns, toColumns( columns.size(), data ), conn );
+    }
+
+    ListResultSet( List<Neo4jColumnMetaData> columns, ColumnStore data, Neo4jConnection conn )
     {
         super( columns, conn );
         this.data = data;
-        rows = this.data.size();
+        this.cursor = data.cursor();
+        rows = data.rows();
+    }
+
+    private static ColumnStore toColumns( int columns, List<List<Object>> data )
+    {
+        final ColumnStore store = new ColumnStore( columns );
+        for ( List<Object> values : data )
+        {
+            final int row = store.addRow();
+            for ( int i = 0; i < Math.min( values.size(), columns ); i++ )
+            {
+                store.set( row, i, values.get( i ) );
+            }
+        }
+        return store;
     }
 
     @Override
     public boolean next() throws SQLException
     {
-        // todo relative(1)
-        current++;
-
-        return rows > current;
+        if ( current < rows )
+        {
+            current++;
+        }
+        return current < rows;
     }
 
     @Override
     protected Object[] currentRow()
     {
-        return data.get( current ).toArray();
+        return data.toArray( current );
+    }
+
+    @Override
+    protected TypedCells currentTypedRow()
+    {
+        return cursor.at( current );
     }
 
     @Override
@@ -95,14 +126,14 @@ public class ListResultSet extends AbstractResultSet
     public boolean first() throws SQLException
     {
         current = 0;
-        return true;
+        return rows > 0;
     }
 
     @Override
     public boolean last() throws SQLException
     {
         current = rows - 1;
-        return true;
+        return rows > 0;
     }
 
     @Override
@@ -116,14 +147,17 @@ public class ListResultSet extends AbstractResultSet
     {
         if ( i > 0 )
         {
-            current = i - 1;
+            current = Math.min( i - 1, rows );
+        }
+        else if ( i < 0 )
+        {
+            current = Math.max( rows + i, BEFORE_FIRST );
         }
         else
         {
-            current = rows - i;
+            current = BEFORE_FIRST;
         }
-
-        return false;
+        return current >= 0 && current < rows;
     }
 
     @Override
@@ -146,12 +180,12 @@ public class ListResultSet extends AbstractResultSet
     @Override
     public String toString()
     {
-        String result = super.toString();
-        for ( List<Object> row : data )
+        final StringBuilder result = new StringBuilder( super.toString() );
+        for ( int row = 0; row < rows; row++ )
         {
-            result += "\n" + row;
+            result.append( "\n" ).append( Arrays.toString( data.toArray( row ) ) );
         }
-        return result;
+        return result.toString();
     }
 
 }
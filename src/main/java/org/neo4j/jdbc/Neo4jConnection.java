@@ -26,13 +26,19 @@ import org.neo4j.cypherdsl.CypherQuery;
 import org.neo4j.cypherdsl.expression.Expression;
 import org.neo4j.cypherdsl.grammar.Execute;
 import org.neo4j.cypherdsl.grammar.ExecuteWithParameters;
+import org.neo4j.jdbc.rest.Cluster;
+import org.neo4j.jdbc.rest.Clusters;
+import org.neo4j.jdbc.rest.DiscoveryCache;
 import org.neo4j.jdbc.rest.Resources;
 import org.neo4j.jdbc.rest.RestQueryExecutor;
+import org.neo4j.jdbc.rest.RoutingQueryExecutor;
+import org.neo4j.jdbc.rest.TransactionKeepAlive;
 import org.neo4j.jdbc.rest.TransactionalQueryExecutor;
+import org.neo4j.jdbc.rest.Transport;
+import org.neo4j.jdbc.rest.Transports;
+import org.neo4j.jdbc.util.PrefetchingIterator;
+import org.neo4j.jdbc.util.SerialExecutor;
 import org.neo4j.jdbc.util.UserAgentBuilder;
-import org.restlet.Client;
-import org.restlet.Context;
-import org.restlet.data.Protocol;
 
 import java.io.IOException;
 import java.sql.DatabaseMetaData;
@@ -42,11 +48,12 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * Implementation of Connection that delegates to the Neo4j REST API and sends queries as Cypher requests
@@ -68,6 +75,11 @@ public class Neo4jConnection extends AbstractConnection
     private boolean readonly = false;
     private boolean autoCommit = true;
     private final UserAgentBuilder userAgentBuilder;
+    private int prefetchRows;
+    private final boolean caseInsensitiveColumns;
+    private SerialExecutor asyncExecutor;
+    private volatile StatementExecution execution;
+    private volatile int networkTimeout;
 
     public Neo4jConnection( Driver driver, String jdbcUrl, Properties properties ) throws SQLException
     {
@@ -76,6 +88,7 @@ public class Neo4jConnection extends AbstractConnection
         this.properties.putAll( properties );
         this.debug = hasDebug();
         this.userAgentBuilder = new UserAgentBuilder( properties );
+        this.caseInsensitiveColumns = getBooleanProperty( Driver.CASE_INSENSITIVE_COLUMNS, false );
         final String connectionUrl = extractConnectionUrl( jdbcUrl );
 
         this.queryExecutor = createExecutor( connectionUrl, getUser(), getPassword(), userAgentBuilder.getAgent() );
@@ -105,8 +118,8 @@ public class Neo4jConnection extends AbstractConnection
         }
     }
 
-    private QueryExecutor createExecutor( String connectionUrl, String user, String password,
-                                          String userAgent ) throws SQLException
+    private QueryExecutor createExecutor( String connectionUrl, final String user, final String password,
+                                          final String userAgent ) throws SQLException
     {
         if ( connectionUrl.contains( "://" ) )
         {
@@ -118,41 +131,112 @@ public class Neo4jConnection extends AbstractConnection
             {
                 log.debug( "Connecting to URL " + url );
             }
+            prefetchRows = (int) getLongProperty( PrefetchingIterator.PREFETCH_ROWS, 0 );
 
-            Client client = new Client( new Context(), Arrays.asList( Protocol.valueOf(remoteUrl.split( ":" )[0]) ), properties.getProperty( "restlet.helperclass" ) );
-
-            Resources resources = new Resources( remoteUrl, client, userAgent );
-
-            if ( user != null && password != null )
+            final List<String> servers = Clusters.split( remoteUrl );
+            if ( servers.size() > 1 )
             {
-                resources.setAuth( user, password );
+                final Cluster cluster = getDriver().getClusters().acquire( servers, user, properties,
+                        new Clusters.ResourcesFactory()
+                        {
+                            @Override
+                            public Resources create( String url ) throws SQLException
+                            {
+                                return createResources( url, user, password, userAgent );
+                            }
+                        }, getDriver().getScheduler(), getDriver().getExecutor() );
+                return new RoutingQueryExecutor( cluster,
+                        new RoutingQueryExecutor.ExecutorFactory()
+                        {
+                            @Override
+                            public QueryExecutor create( String url ) throws SQLException
+                            {
+                                return createServerExecutor( url, user, password, userAgent );
+                            }
+                        } );
             }
-
-            try
+            final QueryExecutor executor = createServerExecutor( remoteUrl, user, password, userAgent );
+            if ( executor instanceof RestQueryExecutor )
             {
-                Resources.DiscoveryClientResource discovery = resources.getDiscoveryResource();
+                url = connectionUrl;
+            }
+            return executor;
+        }
 
-                if ( !properties.containsKey( Driver.LEGACY ) && discovery.getTransactionPath() != null )
-                {
-                    return new TransactionalQueryExecutor( resources );
-                }
-                else if ( discovery.getCypherPath() != null )
-                {
-                    url = connectionUrl;
+        return getDriver().createExecutor( connectionUrl, properties );
+    }
 
-                    return new RestQueryExecutor( resources );
-                }
+    private Resources createResources( String remoteUrl, String user, String password, String userAgent ) throws
+            SQLException
+    {
+        final int maxConnectionsPerHost = (int) getLongProperty( Transports.MAX_CONNECTIONS_PER_HOST,
+                Transports.DEFAULT_MAX_CONNECTIONS_PER_HOST );
+        final int maxTotalConnections = (int) getLongProperty( Transports.MAX_TOTAL_CONNECTIONS,
+                Transports.DEFAULT_MAX_TOTAL_CONNECTIONS );
+        final long idleTimeout = getLongProperty( Transports.IDLE_TIMEOUT, Transports.DEFAULT_IDLE_TIMEOUT );
+        final long discoveryTtl = getLongProperty( Driver.DISCOVERY_TTL, DiscoveryCache.DEFAULT_TTL );
+        final long livenessWindow = getLongProperty( Driver.LIVENESS_WINDOW, Resources.DEFAULT_LIVENESS_WINDOW );
+        final long compressionThreshold = getLongProperty( Driver.COMPRESSION_THRESHOLD, -1 );
+
+        final Transport transport = getDriver().getTransports().acquire( remoteUrl,
+                properties.getProperty( Transports.HELPER_CLASS ), maxConnectionsPerHost, maxTotalConnections,
+                idleTimeout );
+        Resources resources = new Resources( remoteUrl, transport, userAgent );
+
+        if ( user != null && password != null )
+        {
+            resources.setAuth( user, password );
+        }
+        resources.setDiscoveryCache( getDriver().getDiscoveryCache(), discoveryTtl );
+        resources.setLivenessWindow( livenessWindow );
+        if ( getBooleanProperty( Driver.COMPRESSION, false ) )
+        {
+            resources.setCompression( compressionThreshold );
+        }
+        return resources;
+    }
 
-                throw new SQLException( "Could not connect to the Neo4j Server at " + remoteUrl + " " + discovery
-                        .getVersion() );
+    private QueryExecutor createServerExecutor( String remoteUrl, String user, String password,
+                                                String userAgent ) throws SQLException
+    {
+        final Resources resources = createResources( remoteUrl, user, password, userAgent );
+        try
+        {
+            Resources.DiscoveryClientResource discovery = resources.getDiscoveryResource();
+
+            if ( !properties.containsKey( Driver.LEGACY ) && discovery.getTransactionPath() != null )
+            {
+                final TransactionalQueryExecutor executor = new TransactionalQueryExecutor( resources,
+                        discovery, properties );
+                executor.setBatchSize( (int) getLongProperty( TransactionalQueryExecutor.BATCH_SIZE,
+                        TransactionalQueryExecutor.DEFAULT_BATCH_SIZE ) );
+                final long transactionTimeout = getLongProperty( TransactionKeepAlive.TRANSACTION_TIMEOUT,
+                        TransactionKeepAlive.DEFAULT_TIMEOUT / 1000 ) * 1000;
+                if ( transactionTimeout > 0 )
+                {
+                    executor.setKeepAlive( getDriver().getTransactionKeepAlive(), transactionTimeout );
+                }
+                return executor;
             }
-            catch ( IOException e )
+            else if ( discovery.getCypherPath() != null )
             {
-                throw new SQLException( "Error connecting to Neo4j Server at " + connectionUrl, e );
+                final RestQueryExecutor executor = new RestQueryExecutor( resources, discovery );
+                if ( getBooleanProperty( TransactionalQueryExecutor.CANCELLABLE, false ) )
+                {
+                    executor.setRequestExecutor( getDriver().getExecutor() );
+                }
+                return executor;
             }
-        }
 
-        return getDriver().createExecutor( connectionUrl, properties );
+            resources.close();
+            throw new SQLException( "Could not connect to the Neo4j Server at " + remoteUrl + " " + discovery
+                    .getVersion() );
+        }
+        catch ( IOException e )
+        {
+            resources.close();
+            throw new SQLException( "Error connecting to Neo4j Server at " + remoteUrl, e );
+        }
     }
 
     private String getPassword()
@@ -165,6 +249,37 @@ public class Neo4jConnection extends AbstractConnection
         return properties.getProperty( Driver.USER );
     }
 
+    long getLongProperty( String name, long defaultValue ) throws SQLException
+    {
+        final String value = properties.getProperty( name );
+        if ( value == null )
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new SQLException( "Invalid value for property " + name + ": " + value, e );
+        }
+    }
+
+    boolean getBooleanProperty( String name, boolean defaultValue )
+    {
+        final String value = properties.getProperty( name );
+        return value == null ? defaultValue : Boolean.parseBoolean( value.trim() );
+    }
+
+    /**
+     * @return true if the name based ResultSet getters match column names ignoring case
+     */
+    boolean isCaseInsensitiveColumns()
+    {
+        return caseInsensitiveColumns;
+    }
+
     private boolean hasAuth()
     {
         return properties.contains( Driver.USER ) && properties.contains( Driver.PASSWORD );
@@ -292,6 +407,10 @@ public class Neo4jConnection extends AbstractConnection
     public void setReadOnly( boolean readOnly ) throws SQLException
     {
         this.readonly = readOnly;
+        if ( queryExecutor instanceof RoutingQueryExecutor )
+        {
+            ((RoutingQueryExecutor) queryExecutor).setReadOnly( readOnly );
+        }
     }
 
     @Override
@@ -315,14 +434,14 @@ public class Neo4jConnection extends AbstractConnection
     @Override
     public Statement createStatement( int resultSetType, int resultSetConcurrency ) throws SQLException
     {
-        return debug( new Neo4jStatement( this ) );
+        return debug( new Neo4jStatement( this, checkResultSetType( resultSetType ) ) );
     }
 
     @Override
     public PreparedStatement prepareStatement( String sql, int resultSetType, int resultSetConcurrency ) throws
             SQLException
     {
-        return debug( new Neo4jPreparedStatement( this, nativeSQL( sql ) ) );
+        return debug( new Neo4jPreparedStatement( this, nativeSQL( sql ), checkResultSetType( resultSetType ) ) );
     }
 
 
@@ -330,14 +449,14 @@ public class Neo4jConnection extends AbstractConnection
     public Statement createStatement( int resultSetType, int resultSetConcurrency, int resultSetHoldability ) throws
             SQLException
     {
-        return debug( new Neo4jStatement( this ) );
+        return debug( new Neo4jStatement( this, checkResultSetType( resultSetType ) ) );
     }
 
     @Override
     public PreparedStatement prepareStatement( String sql, int resultSetType, int resultSetConcurrency,
                                                int resultSetHoldability ) throws SQLException
     {
-        return debug( new Neo4jPreparedStatement( this, nativeSQL( sql ) ) );
+        return debug( new Neo4jPreparedStatement( this, nativeSQL( sql ), checkResultSetType( resultSetType ) ) );
     }
 
     @Override
@@ -358,10 +477,29 @@ public class Neo4jConnection extends AbstractConnection
         return debug( new Neo4jPreparedStatement( this, nativeSQL( sql ) ) );
     }
 
+    /**
+     * Probes the database unless it responded recently, see {@link QueryExecutor#isAvailable(long)}.
+     */
     @Override
     public boolean isValid( int timeout ) throws SQLException
     {
-        return true;
+        if ( timeout < 0 )
+        {
+            throw new SQLException( "Timeout must not be negative but was " + timeout );
+        }
+        if ( closed )
+        {
+            return false;
+        }
+        try
+        {
+            return queryExecutor.isAvailable( timeout * 1000L );
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Connection is not valid", e );
+            return false;
+        }
     }
 
     // Connection helpers
@@ -378,6 +516,24 @@ public class Neo4jConnection extends AbstractConnection
     }
 
     public ResultSet executeQuery( final String query, Map<String, Object> parameters ) throws SQLException
+    {
+        return executeQuery( query, parameters, ResultSet.TYPE_FORWARD_ONLY );
+    }
+
+    /**
+     * @param resultSetType TYPE_FORWARD_ONLY for a streamed result, otherwise a scrollable result is returned
+     */
+    public ResultSet executeQuery( final String query, Map<String, Object> parameters, int resultSetType ) throws
+            SQLException
+    {
+        return executeQuery( query, parameters, resultSetType, networkTimeout > 0 ? startExecution( 0 ) : null );
+    }
+
+    /**
+     * @param execution guards the execution and the reading of the result, may be null
+     */
+    ResultSet executeQuery( final String query, Map<String, Object> parameters, int resultSetType,
+                            StatementExecution execution ) throws SQLException
     {
         checkClosed( "execute" );
         checkReadOnly( query );
@@ -387,17 +543,207 @@ public class Neo4jConnection extends AbstractConnection
             {
                 log.debug( "Executing query: " + query + "\n with params " + parameters );
             }
-            final ExecutionResult result = queryExecutor.executeQuery( query, parameters, autoCommit );
-            return debug( toResultSet( result ) );
+            ExecutionResult result = queryExecutor.executeQuery( query, parameters, autoCommit );
+            if ( execution != null )
+            {
+                result = execution.guard( result );
+            }
+            if ( resultSetType != ResultSet.TYPE_FORWARD_ONLY )
+            {
+                return debug( toScrollableResultSet( result ) );
+            }
+            return debug( toResultSet( prefetch( result ) ) );
         }
-        catch ( SQLException e )
+        catch ( Exception e )
         {
-            throw e;
+            throw failure( e, execution, "Error executing query " + query + "\n with params " + parameters );
+        }
+    }
+
+    /**
+     * Executes the query on the async executor of this connection. The statements of a connection that are executed
+     * asynchronously run one after the other in submission order, statements executed synchronously in the
+     * meantime are not ordered with them.
+     *
+     * @return the future result, cancelling it aborts the running statement
+     */
+    public QueryFuture<ResultSet> executeQueryAsync( final String query, final Map<String, Object> parameters )
+    {
+        return submit( new Callable<ResultSet>()
+        {
+            @Override
+            public ResultSet call() throws Exception
+            {
+                return executeQuery( query, parameters );
+            }
+        } );
+    }
+
+    public QueryFuture<Void> commitAsync()
+    {
+        return submit( new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                commit();
+                return null;
+            }
+        } );
+    }
+
+    public QueryFuture<Void> rollbackAsync()
+    {
+        return submit( new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                rollback();
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * @return a publisher of the rows of the query, it is executed when its subscriber first requests rows, the
+     * statement and the reading of its rows run on the async executor of this connection
+     */
+    public RowPublisher publishQuery( final String query, final Map<String, Object> parameters )
+    {
+        return new RowPublisher( new Callable<ExecutionResult>()
+        {
+            @Override
+            public ExecutionResult call() throws Exception
+            {
+                checkClosed( "execute" );
+                checkReadOnly( query );
+                return queryExecutor.executeQuery( query, parameters, autoCommit );
+            }
+        }, getAsyncExecutor() );
+    }
+
+    private <V> QueryFuture<V> submit( Callable<V> callable )
+    {
+        final QueryFuture<V> future = new QueryFuture<>( callable, queryExecutor );
+        getAsyncExecutor().execute( future );
+        return future;
+    }
+
+    /**
+     * @return the executor the asynchronous statements of this connection run on, by default the executor of the
+     * driver
+     */
+    public synchronized Executor getAsyncExecutor()
+    {
+        if ( asyncExecutor == null )
+        {
+            asyncExecutor = new SerialExecutor( getDriver().getExecutor() );
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * @param executor to run the asynchronous statements of this connection on, null for the executor of the driver
+     */
+    public synchronized void setAsyncExecutor( Executor executor )
+    {
+        asyncExecutor = executor == null ? null : new SerialExecutor( executor );
+    }
+
+    public int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters ) throws SQLException
+    {
+        return executeBatch( queries, parameters, networkTimeout > 0 ? startExecution( 0 ) : null );
+    }
+
+    int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters, StatementExecution execution )
+            throws SQLException
+    {
+        checkClosed( "executeBatch" );
+        for ( String query : queries )
+        {
+            checkReadOnly( query );
+        }
+        try
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "Executing batch of " + queries.size() + " queries" );
+            }
+            return queryExecutor.executeBatch( queries, parameters, autoCommit );
         }
         catch ( Exception e )
         {
-            throw new SQLException( "Error executing query " + query + "\n with params " + parameters, e );
+            throw failure( e, execution, "Error executing batch of " + queries.size() + " queries" );
+        }
+        finally
+        {
+            if ( execution != null )
+            {
+                execution.finish();
+            }
+        }
+    }
+
+    private static SQLException failure( Exception e, StatementExecution execution, String message )
+    {
+        if ( execution != null )
+        {
+            execution.finish();
+            final SQLException failure = execution.failure( e );
+            if ( failure != null )
+            {
+                return failure;
+            }
+        }
+        return e instanceof SQLException ? (SQLException) e : new SQLException( message, e );
+    }
+
+    /**
+     * Starts guarding a statement execution, the previous execution of this connection is not guarded anymore.
+     *
+     * @param timeoutMillis the timeout of the statement, 0 to use the network timeout of this connection
+     */
+    StatementExecution startExecution( long timeoutMillis )
+    {
+        final StatementExecution previous = execution;
+        if ( previous != null )
+        {
+            previous.finish();
         }
+        final StatementExecution started = new StatementExecution( this, timeoutMillis > 0 ? timeoutMillis :
+                networkTimeout );
+        execution = started;
+        started.start();
+        return started;
+    }
+
+    /**
+     * Aborts the statement currently executed on this connection or whose result is read.
+     */
+    void cancelExecution() throws Exception
+    {
+        queryExecutor.cancel();
+    }
+
+    /**
+     * The network timeout applies to the statements that have no query timeout, it covers executing them and
+     * reading their results.
+     */
+    @Override
+    public void setNetworkTimeout( Executor executor, int milliseconds ) throws SQLException
+    {
+        if ( milliseconds < 0 )
+        {
+            throw new SQLException( "Network timeout must not be negative: " + milliseconds );
+        }
+        networkTimeout = milliseconds;
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException
+    {
+        return networkTimeout;
     }
 
     private void checkClosed( String method ) throws SQLException
@@ -453,11 +799,56 @@ public class Neo4jConnection extends AbstractConnection
         return url;
     }
 
+    /**
+     * Over REST the rows of lazy results are read ahead on a background thread, if "prefetchRows" is set to the
+     * number of rows to buffer.
+     */
+    private ExecutionResult prefetch( ExecutionResult result )
+    {
+        if ( prefetchRows <= 0 || !result.isLazy() )
+        {
+            return result;
+        }
+        return new ExecutionResult( result.columns(), new PrefetchingIterator<Object[]>( result.getResult(),
+                prefetchRows, getDriver().getExecutor() ) );
+    }
+
     protected ResultSet toResultSet( ExecutionResult result ) throws SQLException
     {
         return new IteratorResultSet( this, result.columns(), result.getResult() );
     }
 
+    protected ResultSet toScrollableResultSet( ExecutionResult result ) throws SQLException
+    {
+        return new ScrollableResultSet( this, result.columns(), result.getResult(),
+                getLongProperty( Driver.SCROLL_HEAP_BYTES, RowStore.DEFAULT_HEAP_BYTES ) );
+    }
+
+    /**
+     * TYPE_SCROLL_SENSITIVE is not supported, it is downgraded to TYPE_SCROLL_INSENSITIVE with a warning.
+     */
+    private int checkResultSetType( int resultSetType )
+    {
+        if ( resultSetType == ResultSet.TYPE_SCROLL_SENSITIVE )
+        {
+            addWarning( new SQLWarning( "TYPE_SCROLL_SENSITIVE is not supported, using TYPE_SCROLL_INSENSITIVE" ) );
+            return ResultSet.TYPE_SCROLL_INSENSITIVE;
+        }
+        return resultSetType;
+    }
+
+    private void addWarning( SQLWarning warning )
+    {
+        if ( sqlWarnings == null )
+        {
+            sqlWarnings = warning;
+        }
+        else
+        {
+            sqlWarnings.setNextWarning( warning );
+        }
+    }
+
     public <T> T debug( T obj )
     {
         return Connections.debug( obj, debug );
@@ -477,4 +868,13 @@ public class Neo4jConnection extends AbstractConnection
     {
         return version;
     }
+
+    /**
+     * @return the time in milliseconds at which the server expires the open transaction of this connection unless it
+     * is used or kept alive, 0 if there is none or it is not kept alive
+     */
+    public long getTransactionExpiry()
+    {
+        return queryExecutor.getTransactionExpiry();
+    }
 }
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import javax.sql.ConnectionPoolDataSource;
+
+/**
+ * Creates pooled connections for connection pools of application servers, and for {@link Neo4jDataSource}. The
+ * physical connections are created by a driver of the data source, so that they share its caches and transports.
+ */
+public class Neo4jConnectionPoolDataSource implements ConnectionPoolDataSource
+{
+    private Driver driver = new Driver();
+    private String url;
+    private String user;
+    private String password;
+    private final Properties properties = new Properties();
+    private int loginTimeout;
+    private PrintWriter logWriter;
+
+    public Driver getDriver()
+    {
+        return driver;
+    }
+
+    public void setDriver( Driver driver )
+    {
+        this.driver = driver;
+    }
+
+    public String getUrl()
+    {
+        return url;
+    }
+
+    /**
+     * @param url the JDBC URL of the connections, e.g. jdbc:neo4j://localhost:7474/
+     */
+    public void setUrl( String url )
+    {
+        this.url = url;
+    }
+
+    public String getUser()
+    {
+        return user;
+    }
+
+    public void setUser( String user )
+    {
+        this.user = user;
+    }
+
+    public String getPassword()
+    {
+        return password;
+    }
+
+    public void setPassword( String password )
+    {
+        this.password = password;
+    }
+
+    public Properties getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * @param properties connection properties as accepted by the driver
+     */
+    public void setProperties( Properties properties )
+    {
+        this.properties.clear();
+        this.properties.putAll( properties );
+    }
+
+    @Override
+    public Neo4jPooledConnection getPooledConnection() throws SQLException
+    {
+        return getPooledConnection( user, password );
+    }
+
+    @Override
+    public Neo4jPooledConnection getPooledConnection( String user, String password ) throws SQLException
+    {
+        return new Neo4jPooledConnection( connect( user, password ) );
+    }
+
+    Neo4jConnection connect( String user, String password ) throws SQLException
+    {
+        if ( url == null )
+        {
+            throw new SQLException( "No URL set on data source" );
+        }
+        final Properties connectionProperties = new Properties();
+        connectionProperties.putAll( properties );
+        if ( user != null )
+        {
+            connectionProperties.setProperty( Driver.USER, user );
+        }
+        if ( password != null )
+        {
+            connectionProperties.setProperty( Driver.PASSWORD, password );
+        }
+        final Neo4jConnection connection = driver.connect( url, connectionProperties );
+        if ( connection == null )
+        {
+            throw new SQLException( "Invalid Neo4j JDBC URL " + url );
+        }
+        return connection;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter( PrintWriter out ) throws SQLException
+    {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout( int seconds ) throws SQLException
+    {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        throw new SQLFeatureNotSupportedException( "getParentLogger" );
+    }
+}
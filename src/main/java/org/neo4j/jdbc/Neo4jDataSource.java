@@ -0,0 +1,605 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A data source with a pool of ready connections. Idle connections are kept in a lock-free stack, the most recently
+ * returned one is borrowed first, and the number of borrowed connections is bounded by maxActive. A connection that
+ * has been idle for longer than the validation interval is validated when it is borrowed, others are handed out
+ * without a round trip. Closing a borrowed connection rolls back its open transaction, restores auto commit and
+ * read only and returns it to the pool, or closes it if maxIdle connections are idle already.
+ * <p/>
+ * The pool settings have to be set before the first connection is borrowed.
+ */
+public class Neo4jDataSource implements DataSource
+{
+    protected final static Log log = LogFactory.getLog( Neo4jDataSource.class );
+    public static final int DEFAULT_MAX_ACTIVE = 8;
+    public static final int DEFAULT_MAX_IDLE = 8;
+    public static final long DEFAULT_MAX_WAIT = 30 * 1000;
+    public static final long DEFAULT_VALIDATION_INTERVAL = 30 * 1000;
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final Neo4jConnectionPoolDataSource source;
+    private int minIdle;
+    private int maxIdle = DEFAULT_MAX_IDLE;
+    private int maxActive = DEFAULT_MAX_ACTIVE;
+    private long maxWait = DEFAULT_MAX_WAIT;
+    private long validationInterval = DEFAULT_VALIDATION_INTERVAL;
+    private long leakThreshold;
+
+    private volatile Semaphore permits = new Semaphore( DEFAULT_MAX_ACTIVE );
+    private final ConcurrentLinkedDeque<Entry> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicBoolean filling = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    public Neo4jDataSource()
+    {
+        this( new Neo4jConnectionPoolDataSource() );
+    }
+
+    public Neo4jDataSource( Neo4jConnectionPoolDataSource source )
+    {
+        this.source = source;
+    }
+
+    public Neo4jConnectionPoolDataSource getConnectionPoolDataSource()
+    {
+        return source;
+    }
+
+    public String getUrl()
+    {
+        return source.getUrl();
+    }
+
+    public void setUrl( String url )
+    {
+        source.setUrl( url );
+    }
+
+    public String getUser()
+    {
+        return source.getUser();
+    }
+
+    public void setUser( String user )
+    {
+        source.setUser( user );
+    }
+
+    public void setPassword( String password )
+    {
+        source.setPassword( password );
+    }
+
+    public void setProperties( Properties properties )
+    {
+        source.setProperties( properties );
+    }
+
+    public int getMinIdle()
+    {
+        return minIdle;
+    }
+
+    /**
+     * @param minIdle number of idle connections that are created in the background ahead of demand
+     */
+    public void setMinIdle( int minIdle )
+    {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    /**
+     * @param maxIdle maximum number of idle connections kept, further returned connections are closed
+     */
+    public void setMaxIdle( int maxIdle )
+    {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMaxActive()
+    {
+        return maxActive;
+    }
+
+    /**
+     * @param maxActive maximum number of borrowed connections, further borrowers wait up to maxWait
+     */
+    public void setMaxActive( int maxActive )
+    {
+        if ( maxActive < 1 )
+        {
+            throw new IllegalArgumentException( "Maximum number of active connections must be positive but was " +
+                    maxActive );
+        }
+        this.maxActive = maxActive;
+        this.permits = new Semaphore( maxActive );
+    }
+
+    public long getMaxWait()
+    {
+        return maxWait;
+    }
+
+    /**
+     * @param maxWait milliseconds to wait for a connection when maxActive connections are borrowed
+     */
+    public void setMaxWait( long maxWait )
+    {
+        this.maxWait = maxWait;
+    }
+
+    public long getValidationInterval()
+    {
+        return validationInterval;
+    }
+
+    /**
+     * @param validationInterval milliseconds a connection can be idle before it is validated on borrow, 0 to validate
+     * on every borrow
+     */
+    public void setValidationInterval( long validationInterval )
+    {
+        this.validationInterval = validationInterval;
+    }
+
+    public long getLeakThreshold()
+    {
+        return leakThreshold;
+    }
+
+    /**
+     * @param leakThreshold milliseconds after which a borrowed connection that has not been closed is logged as leak
+     * together with the stack trace of its borrower, 0 disables leak detection
+     */
+    public void setLeakThreshold( long leakThreshold )
+    {
+        this.leakThreshold = leakThreshold;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        if ( closed )
+        {
+            throw new SQLException( "Data source is closed" );
+        }
+        final long start = System.nanoTime();
+        acquirePermit();
+        try
+        {
+            Entry entry = borrowIdle();
+            if ( entry == null )
+            {
+                entry = create();
+            }
+            final Connection connection = entry.borrow();
+            recordBorrow( System.nanoTime() - start );
+            fillIdle();
+            return connection;
+        }
+        catch ( SQLException | RuntimeException e )
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Connections for other credentials than the ones of the data source are not pooled.
+     */
+    @Override
+    public Connection getConnection( String user, String password ) throws SQLException
+    {
+        if ( equals( user, source.getUser() ) && equals( password, source.getPassword() ) )
+        {
+            return getConnection();
+        }
+        return source.connect( user, password );
+    }
+
+    private static boolean equals( String a, String b )
+    {
+        return a == null ? b == null : a.equals( b );
+    }
+
+    private void acquirePermit() throws SQLException
+    {
+        try
+        {
+            if ( !permits.tryAcquire( maxWait, TimeUnit.MILLISECONDS ) )
+            {
+                throw new SQLTransientConnectionException( "Timed out after " + maxWait + " ms waiting for one of " +
+                        maxActive + " connections", "08001" );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException( "Interrupted waiting for a connection", e );
+        }
+    }
+
+    private Entry borrowIdle()
+    {
+        Entry entry;
+        while ( (entry = idle.pollFirst()) != null )
+        {
+            idleCount.decrementAndGet();
+            if ( System.currentTimeMillis() - entry.lastUsed < validationInterval || entry.isValid() )
+            {
+                return entry;
+            }
+            entry.destroy();
+        }
+        return null;
+    }
+
+    private Entry create() throws SQLException
+    {
+        final Entry entry = new Entry( source.getPooledConnection() );
+        created.incrementAndGet();
+        return entry;
+    }
+
+    private void recordBorrow( long waitNanos )
+    {
+        borrows.incrementAndGet();
+        borrowWaitNanos.addAndGet( waitNanos );
+        long max;
+        while ( waitNanos > (max = maxBorrowWaitNanos.get()) && !maxBorrowWaitNanos.compareAndSet( max, waitNanos ) )
+        {
+        }
+    }
+
+    private void release( Entry entry )
+    {
+        if ( !closed )
+        {
+            if ( idleCount.incrementAndGet() <= maxIdle )
+            {
+                idle.offerFirst( entry );
+                if ( closed )
+                {
+                    close();
+                }
+                permits.release();
+                return;
+            }
+            idleCount.decrementAndGet();
+        }
+        entry.destroy();
+        permits.release();
+    }
+
+    /**
+     * Creates connections up to minIdle idle connections on the executor of the driver.
+     */
+    private void fillIdle()
+    {
+        if ( idleCount.get() >= minIdle || closed || !filling.compareAndSet( false, true ) )
+        {
+            return;
+        }
+        source.getDriver().getExecutor().execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while ( !closed && idleCount.get() < minIdle )
+                    {
+                        final Entry entry = create();
+                        entry.lastUsed = System.currentTimeMillis();
+                        idleCount.incrementAndGet();
+                        idle.offerLast( entry );
+                    }
+                }
+                catch ( SQLException | RuntimeException e )
+                {
+                    log.warn( "Error creating idle connection", e );
+                }
+                finally
+                {
+                    filling.set( false );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Closes the idle connections, connections that are borrowed are closed when they are returned.
+     */
+    public void close()
+    {
+        closed = true;
+        Entry entry;
+        while ( (entry = idle.pollFirst()) != null )
+        {
+            idleCount.decrementAndGet();
+            entry.destroy();
+        }
+    }
+
+    /**
+     * @return the number of borrowed connections
+     */
+    public int getActiveCount()
+    {
+        return activeCount.get();
+    }
+
+    /**
+     * @return the number of idle connections in the pool
+     */
+    public int getIdleCount()
+    {
+        return idleCount.get();
+    }
+
+    public long getBorrowCount()
+    {
+        return borrows.get();
+    }
+
+    /**
+     * @return the total time borrowers waited for a connection, including creating or validating it
+     */
+    public long getBorrowWaitNanos()
+    {
+        return borrowWaitNanos.get();
+    }
+
+    public long getMaxBorrowWaitNanos()
+    {
+        return maxBorrowWaitNanos.get();
+    }
+
+    public long getCreatedCount()
+    {
+        return created.get();
+    }
+
+    public long getDestroyedCount()
+    {
+        return destroyed.get();
+    }
+
+    /**
+     * @return the number of borrowed connections that were not closed within the leak threshold
+     */
+    public long getLeakCount()
+    {
+        return leaks.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        final long borrowCount = getBorrowCount();
+        return "Pool of " + source.getUrl() + " active: " + getActiveCount() + " idle: " + getIdleCount() +
+                " borrows: " + borrowCount + " average wait: " + (borrowCount == 0 ? 0 : getBorrowWaitNanos() /
+                borrowCount / 1000) + " us max wait: " + getMaxBorrowWaitNanos() / 1000 + " us leaks: " +
+                getLeakCount();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return source.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter( PrintWriter out ) throws SQLException
+    {
+        source.setLogWriter( out );
+    }
+
+    @Override
+    public void setLoginTimeout( int seconds ) throws SQLException
+    {
+        source.setLoginTimeout( seconds );
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return source.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        throw new SQLFeatureNotSupportedException( "getParentLogger" );
+    }
+
+    @Override
+    public <T> T unwrap( Class<T> iface ) throws SQLException
+    {
+        if ( iface.isInstance( this ) )
+        {
+            return iface.cast( this );
+        }
+        throw new SQLException( "Not a wrapper for " + iface );
+    }
+
+    @Override
+    public boolean isWrapperFor( Class<?> iface ) throws SQLException
+    {
+        return iface.isInstance( this );
+    }
+
+    /**
+     * A pooled connection, it listens to the closing of the connections borrowed from it.
+     */
+    private class Entry implements ConnectionEventListener
+    {
+        private final Neo4jPooledConnection pooled;
+        private final AtomicBoolean borrowed = new AtomicBoolean();
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+        private volatile long lastUsed;
+        private volatile ScheduledFuture<?> leakCheck;
+
+        Entry( Neo4jPooledConnection pooled )
+        {
+            this.pooled = pooled;
+            pooled.addConnectionEventListener( this );
+        }
+
+        boolean isValid()
+        {
+            try
+            {
+                return pooled.getPhysicalConnection().isValid( VALIDATION_TIMEOUT );
+            }
+            catch ( SQLException e )
+            {
+                return false;
+            }
+        }
+
+        Connection borrow() throws SQLException
+        {
+            final Connection connection;
+            try
+            {
+                connection = pooled.getConnection();
+            }
+            catch ( SQLException e )
+            {
+                destroy();
+                throw e;
+            }
+            borrowed.set( true );
+            activeCount.incrementAndGet();
+            if ( leakThreshold > 0 )
+            {
+                final Exception borrower = new Exception( "Connection borrowed here" );
+                leakCheck = source.getDriver().getScheduler().schedule( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        leaks.incrementAndGet();
+                        log.warn( "Connection not closed " + leakThreshold + " ms after it was borrowed", borrower );
+                    }
+                }, leakThreshold, TimeUnit.MILLISECONDS );
+            }
+            return connection;
+        }
+
+        /**
+         * @return true if the connection was borrowed
+         */
+        private boolean giveBack()
+        {
+            if ( !borrowed.compareAndSet( true, false ) )
+            {
+                return false;
+            }
+            final ScheduledFuture<?> check = leakCheck;
+            if ( check != null )
+            {
+                check.cancel( false );
+                leakCheck = null;
+            }
+            activeCount.decrementAndGet();
+            lastUsed = System.currentTimeMillis();
+            return true;
+        }
+
+        void destroy()
+        {
+            if ( !destroyed.compareAndSet( false, true ) )
+            {
+                return;
+            }
+            Neo4jDataSource.this.destroyed.incrementAndGet();
+            try
+            {
+                pooled.close();
+            }
+            catch ( SQLException e )
+            {
+                log.debug( "Error closing pooled connection", e );
+            }
+        }
+
+        @Override
+        public void connectionClosed( ConnectionEvent event )
+        {
+            if ( giveBack() )
+            {
+                release( this );
+            }
+        }
+
+        @Override
+        public void connectionErrorOccurred( ConnectionEvent event )
+        {
+            final boolean wasBorrowed = giveBack();
+            destroy();
+            if ( wasBorrowed )
+            {
+                permits.release();
+            }
+            fillIdle();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEventListener;
+
+/**
+ * A physical connection held by a connection pool. The connections handed out by it are handles that reset the
+ * physical connection when they are closed, an open transaction is rolled back and auto commit and read only are
+ * restored, before the listeners are notified that it can be reused. Failures of the physical connection are reported
+ * to the listeners as connection errors.
+ * <p/>
+ * The statements, metadata and result sets obtained through a handle are wrapped as well, so that they return the
+ * handle as their connection and can't be used anymore once it is closed. Closing a handle closes its statements.
+ * Neither the handle nor the objects obtained through it can be unwrapped to the physical connection.
+ */
+public class Neo4jPooledConnection implements PooledConnection
+{
+    static final String CLOSED_STATE = "08003";
+
+    private final Neo4jConnection connection;
+    private final List<ConnectionEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<StatementEventListener> statementListeners = new CopyOnWriteArrayList<>();
+    private volatile Handle handle;
+    private volatile boolean closed;
+
+    public Neo4jPooledConnection( Neo4jConnection connection )
+    {
+        this.connection = connection;
+    }
+
+    /**
+     * @return a new handle of the physical connection, a handle returned before is closed
+     */
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        if ( closed )
+        {
+            throw new SQLException( "Pooled connection is closed", CLOSED_STATE );
+        }
+        final Handle previous = handle;
+        if ( previous != null )
+        {
+            previous.closed = true;
+        }
+        final Handle current = new Handle();
+        handle = current;
+        return current.proxy;
+    }
+
+    public Neo4jConnection getPhysicalConnection()
+    {
+        return connection;
+    }
+
+    @Override
+    public void close() throws SQLException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        final Handle current = handle;
+        if ( current != null )
+        {
+            current.closed = true;
+        }
+        if ( !connection.isClosed() )
+        {
+            connection.close();
+        }
+    }
+
+    /**
+     * Rolls back an open transaction and restores the defaults of the connection.
+     */
+    void reset() throws SQLException
+    {
+        if ( !connection.getAutoCommit() )
+        {
+            connection.rollback();
+            connection.setAutoCommit( true );
+        }
+        if ( connection.isReadOnly() )
+        {
+            connection.setReadOnly( false );
+        }
+        connection.clearWarnings();
+    }
+
+    @Override
+    public void addConnectionEventListener( ConnectionEventListener listener )
+    {
+        listeners.add( listener );
+    }
+
+    @Override
+    public void removeConnectionEventListener( ConnectionEventListener listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Statements are not pooled, the listeners are kept but not notified.
+     */
+    @Override
+    public void addStatementEventListener( StatementEventListener listener )
+    {
+        statementListeners.add( listener );
+    }
+
+    @Override
+    public void removeStatementEventListener( StatementEventListener listener )
+    {
+        statementListeners.remove( listener );
+    }
+
+    private void handleClosed()
+    {
+        try
+        {
+            reset();
+        }
+        catch ( SQLException e )
+        {
+            fireConnectionError( e );
+            return;
+        }
+        final ConnectionEvent event = new ConnectionEvent( this );
+        for ( ConnectionEventListener listener : listeners )
+        {
+            listener.connectionClosed( event );
+        }
+    }
+
+    private void fireConnectionError( SQLException e )
+    {
+        final ConnectionEvent event = new ConnectionEvent( this, e );
+        for ( ConnectionEventListener listener : listeners )
+        {
+            listener.connectionErrorOccurred( event );
+        }
+    }
+
+    /**
+     * SQLState class 08 are connection exceptions, after them the physical connection is not reused.
+     */
+    private static boolean isFatal( SQLException e )
+    {
+        return e.getSQLState() != null && e.getSQLState().startsWith( "08" );
+    }
+
+    private static Object wrapperMethod( Object proxy, String name, Object[] args ) throws SQLException
+    {
+        final Class<?> iface = (Class<?>) args[0];
+        if ( "isWrapperFor".equals( name ) )
+        {
+            return iface.isInstance( proxy );
+        }
+        if ( iface.isInstance( proxy ) )
+        {
+            return proxy;
+        }
+        throw new SQLException( "Not a wrapper for " + iface.getName() );
+    }
+
+    private static Object objectMethod( Object proxy, String name, Object[] args, Object target )
+    {
+        switch ( name )
+        {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode( proxy );
+            default:
+                return "Handle of " + target;
+        }
+    }
+
+    /**
+     * @return the JDBC interface of a result that is wrapped, null if it is returned as it is
+     */
+    private static Class<?> wrappedType( Object result )
+    {
+        if ( result instanceof CallableStatement )
+        {
+            return CallableStatement.class;
+        }
+        if ( result instanceof PreparedStatement )
+        {
+            return PreparedStatement.class;
+        }
+        if ( result instanceof Statement )
+        {
+            return Statement.class;
+        }
+        if ( result instanceof ResultSet )
+        {
+            return ResultSet.class;
+        }
+        return result instanceof DatabaseMetaData ? DatabaseMetaData.class : null;
+    }
+
+    private class Handle implements InvocationHandler
+    {
+        private final Connection proxy = (Connection) Proxy.newProxyInstance( Connection.class.getClassLoader(),
+                new Class[]{Connection.class}, this );
+        private final Set<Statement> statements = Collections.newSetFromMap( new ConcurrentHashMap<Statement,
+                Boolean>() );
+        private volatile boolean closed;
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            final String name = method.getName();
+            if ( method.getDeclaringClass().equals( Object.class ) )
+            {
+                return objectMethod( proxy, name, args, connection );
+            }
+            switch ( name )
+            {
+                case "isClosed":
+                    return closed;
+                case "close":
+                    if ( !closed )
+                    {
+                        closed = true;
+                        closeStatements();
+                        handleClosed();
+                    }
+                    return null;
+            }
+            check( name );
+            if ( "unwrap".equals( name ) || "isWrapperFor".equals( name ) )
+            {
+                return wrapperMethod( proxy, name, args );
+            }
+            return wrap( delegate( connection, method, args ), null );
+        }
+
+        void check( String name ) throws SQLException
+        {
+            if ( closed )
+            {
+                throw new SQLException( name + " called on closed connection.", CLOSED_STATE );
+            }
+        }
+
+        Object delegate( Object target, Method method, Object[] args ) throws Throwable
+        {
+            try
+            {
+                return method.invoke( target, args );
+            }
+            catch ( InvocationTargetException e )
+            {
+                final Throwable cause = e.getTargetException();
+                if ( cause instanceof SQLException && isFatal( (SQLException) cause ) )
+                {
+                    fireConnectionError( (SQLException) cause );
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * @param parent the wrapper the result was obtained from, null for the handle
+         * @return the statement, metadata or result set wrapped for this handle, other results as they are
+         */
+        Object wrap( Object result, Wrapper parent )
+        {
+            final Class<?> type = wrappedType( result );
+            if ( type == null )
+            {
+                return result;
+            }
+            if ( parent != null && result == parent.target )
+            {
+                return parent.proxy;
+            }
+            final Wrapper wrapper = new Wrapper( this, result, parent, type );
+            if ( result instanceof Statement )
+            {
+                statements.add( (Statement) result );
+            }
+            return wrapper.proxy;
+        }
+
+        private void closeStatements()
+        {
+            for ( Statement statement : statements )
+            {
+                try
+                {
+                    statement.close();
+                }
+                catch ( SQLException e )
+                {
+                    // the physical connection is reset next
+                }
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * Wraps a statement, metadata or result set obtained through a handle.
+     */
+    private static class Wrapper implements InvocationHandler
+    {
+        private final Handle handle;
+        private final Object target;
+        private final Wrapper parent;
+        private final Object proxy;
+
+        Wrapper( Handle handle, Object target, Wrapper parent, Class<?> type )
+        {
+            this.handle = handle;
+            this.target = target;
+            this.parent = parent;
+            this.proxy = Proxy.newProxyInstance( Connection.class.getClassLoader(), new Class[]{type}, this );
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            final String name = method.getName();
+            if ( method.getDeclaringClass().equals( Object.class ) )
+            {
+                return objectMethod( proxy, name, args, target );
+            }
+            switch ( name )
+            {
+                case "isClosed":
+                    return handle.closed || (Boolean) handle.delegate( target, method, args );
+                case "close":
+                    if ( target instanceof Statement )
+                    {
+                        handle.statements.remove( target );
+                    }
+                    return handle.delegate( target, method, args );
+            }
+            handle.check( name );
+            switch ( name )
+            {
+                case "unwrap":
+                case "isWrapperFor":
+                    return wrapperMethod( proxy, name, args );
+                case "getConnection":
+                    return handle.proxy;
+            }
+            return handle.wrap( handle.delegate( target, method, args ), this );
+        }
+    }
+}
@@ -21,10 +21,15 @@
 package org.neo4j.jdbc;
 
 import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -38,28 +43,33 @@ public class Neo4jPreparedStatement extends AbstractPreparedStatement
 
     public Neo4jPreparedStatement( Neo4jConnection connection, String query )
     {
-        super( connection );
+        this( connection, query, ResultSet.TYPE_FORWARD_ONLY );
+    }
+
+    public Neo4jPreparedStatement( Neo4jConnection connection, String query, int resultSetType )
+    {
+        super( connection, resultSetType );
         this.query = query;
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException
     {
-        resultSet = connection.executeQuery( query, parameters );
+        resultSet = executeQuery( query, parameters );
         return resultSet;
     }
 
     @Override
     public boolean execute() throws SQLException
     {
-        resultSet = connection.executeQuery( query, parameters );
+        resultSet = executeQuery( query, parameters );
         return true;
     }
 
     @Override
     public int executeUpdate() throws SQLException
     {
-        resultSet = connection.executeQuery( query, parameters );
+        resultSet = executeQuery( query, parameters );
         while ( resultSet.next() )
         {
             ;
@@ -67,6 +77,75 @@ public class Neo4jPreparedStatement extends AbstractPreparedStatement
         return 0; // todo
     }
 
+    @Override
+    public void addBatch() throws SQLException
+    {
+        batchQueries.add( query );
+        batchParameters.add( new HashMap<String, Object>( parameters ) );
+    }
+
+    /**
+     * With the "unwindBatch" property the batch is sent as "UNWIND {batch} AS row" + query with the parameters
+     * accessed as row.p1, row.p2 etc., in chunks of up to "unwindBatchBytes" of parameter data. The update counts
+     * of the single executions are not known then.
+     */
+    @Override
+    public int[] executeBatch() throws SQLException
+    {
+        if ( batchParameters.isEmpty() || !connection.getBooleanProperty( Driver.UNWIND_BATCH, false ) )
+        {
+            return super.executeBatch();
+        }
+        final String unwindQuery = UnwindBatch.rewrite( query );
+        if ( unwindQuery == null )
+        {
+            return super.executeBatch();
+        }
+        final int[] counts = new int[batchParameters.size()];
+        Arrays.fill( counts, SUCCESS_NO_INFO );
+        final List<List<Map<String, Object>>> chunks;
+        try
+        {
+            final List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>( counts.length );
+            for ( Map<String, Object> parameters : batchParameters )
+            {
+                rows.add( UnwindBatch.toRow( parameters ) );
+            }
+            chunks = UnwindBatch.chunk( rows, connection.getLongProperty( Driver.UNWIND_BATCH_BYTES,
+                    UnwindBatch.DEFAULT_BATCH_BYTES ) );
+        }
+        finally
+        {
+            clearBatch();
+        }
+        final List<Map<String, Object>> chunkParameters = new ArrayList<Map<String, Object>>( chunks.size() );
+        for ( List<Map<String, Object>> chunk : chunks )
+        {
+            chunkParameters.add( UnwindBatch.batchParameters( chunk ) );
+        }
+        try
+        {
+            connection.executeBatch( Collections.nCopies( chunks.size(), unwindQuery ), chunkParameters,
+                    startExecution() );
+            return counts;
+        }
+        catch ( BatchUpdateException e )
+        {
+            int executed = 0;
+            for ( int i = 0; i < e.getUpdateCounts().length; i++ )
+            {
+                executed += chunks.get( i ).size();
+            }
+            throw new BatchUpdateException( e.getMessage(), Arrays.copyOf( counts, executed ), e.getCause() );
+        }
+    }
+
+    @Override
+    public void addBatch( String s ) throws SQLException
+    {
+        throw new SQLException( "addBatch(String) can't be called on a PreparedStatement" );
+    }
+
     private void add( int parameterIndex, Object value )
     {
         parameters.put( Integer.toString( parameterIndex ), value );
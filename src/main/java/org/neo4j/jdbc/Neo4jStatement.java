@@ -26,7 +26,10 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of JDBC Statement.
@@ -35,12 +38,23 @@ public class Neo4jStatement
         implements Statement
 {
     protected Neo4jConnection connection;
+    protected final int resultSetType;
     protected ResultSet resultSet;
     protected SQLWarning sqlWarning;
+    protected final List<String> batchQueries = new ArrayList<String>();
+    protected final List<Map<String, Object>> batchParameters = new ArrayList<Map<String, Object>>();
+    private int queryTimeout;
+    private volatile StatementExecution execution;
 
     public Neo4jStatement( Neo4jConnection connection )
+    {
+        this( connection, ResultSet.TYPE_FORWARD_ONLY );
+    }
+
+    public Neo4jStatement( Neo4jConnection connection, int resultSetType )
     {
         this.connection = connection;
+        this.resultSetType = resultSetType;
     }
 
     @Override
@@ -103,19 +117,44 @@ public class Neo4jStatement
     @Override
     public int getQueryTimeout() throws SQLException
     {
-        throw unsupported( "getQueryTimeout" );
+        return queryTimeout;
     }
 
+    /**
+     * The timeout covers executing the statement and reading its result, on expiry the statement is aborted and
+     * fails with a SQLTimeoutException.
+     */
     @Override
-    public void setQueryTimeout( int i ) throws SQLException
+    public void setQueryTimeout( int seconds ) throws SQLException
     {
-        throw unsupported( "setQueryTimeout" );
+        if ( seconds < 0 )
+        {
+            throw new SQLException( "Query timeout must not be negative: " + seconds );
+        }
+        queryTimeout = seconds;
     }
 
+    /**
+     * Aborts the statement while it is executed or its result is read, the open transaction of the connection is
+     * rolled back.
+     */
     @Override
     public void cancel() throws SQLException
     {
-        throw unsupported( "cancel" );
+        final StatementExecution current = execution;
+        if ( current != null )
+        {
+            current.cancel();
+        }
+    }
+
+    /**
+     * @return the guard of a new execution of this statement
+     */
+    protected StatementExecution startExecution()
+    {
+        execution = connection.startExecution( queryTimeout * 1000L );
+        return execution;
     }
 
     @Override
@@ -141,7 +180,7 @@ public class Neo4jStatement
     {
         try
         {
-            resultSet = connection.executeQuery( connection.nativeSQL( s ), Collections.<String, Object>emptyMap() );
+            resultSet = executeQuery( connection.nativeSQL( s ), Collections.<String, Object>emptyMap() );
             return true;
         }
         catch ( SQLWarning e )
@@ -219,25 +258,47 @@ public class Neo4jStatement
     @Override
     public int getResultSetType() throws SQLException
     {
-        return ResultSet.TYPE_FORWARD_ONLY;
+        return resultSetType;
+    }
+
+    protected ResultSet executeQuery( String query, Map<String, Object> parameters ) throws SQLException
+    {
+        return connection.executeQuery( query, parameters, resultSetType, startExecution() );
     }
 
     @Override
     public void addBatch( String s ) throws SQLException
     {
-        throw unsupported( "addBatch" );
+        batchQueries.add( connection.nativeSQL( s ) );
+        batchParameters.add( Collections.<String, Object>emptyMap() );
     }
 
     @Override
     public void clearBatch() throws SQLException
     {
-        throw unsupported( "clearBatch" );
+        batchQueries.clear();
+        batchParameters.clear();
     }
 
+    /**
+     * Executes the queued queries, over the transactional endpoint they are sent as multi-statement requests of up
+     * to "batchSize" statements each.
+     */
     @Override
     public int[] executeBatch() throws SQLException
     {
-        throw unsupported( "executeBatch" );
+        if ( batchQueries.isEmpty() )
+        {
+            return new int[0];
+        }
+        try
+        {
+            return connection.executeBatch( batchQueries, batchParameters, startExecution() );
+        }
+        finally
+        {
+            clearBatch();
+        }
     }
 
     @Override
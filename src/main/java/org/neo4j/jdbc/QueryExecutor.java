@@ -21,6 +21,7 @@
 package org.neo4j.jdbc;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,6 +32,14 @@ public interface QueryExecutor
 {
     ExecutionResult executeQuery( String query, Map<String, Object> parameters, boolean autoCommit ) throws Exception;
 
+    /**
+     * Executes the queries with their respective parameters, consuming their results.
+     *
+     * @return the update count of each query or Statement.SUCCESS_NO_INFO if it is not known
+     */
+    int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters, boolean autoCommit ) throws
+            Exception;
+
     void stop() throws Exception;
 
     Version getVersion();
@@ -39,6 +48,25 @@ public interface QueryExecutor
 
     void rollback() throws Exception;
 
+    /**
+     * Aborts the statement that is executed or whose results are read, it is called from another thread than the
+     * one executing the statement.
+     */
+    void cancel() throws Exception;
+
+    /**
+     * Checks that the database can be reached, without executing a statement.
+     *
+     * @param timeoutMillis maximum time to wait for the database, 0 to wait without limit
+     */
+    boolean isAvailable( long timeoutMillis ) throws Exception;
+
+    /**
+     * @return the time in milliseconds at which the server expires the open transaction unless it is used or kept
+     * alive, 0 if there is no open transaction or it is not kept alive
+     */
+    long getTransactionExpiry();
+
     public class Metadata
     {
         String label;
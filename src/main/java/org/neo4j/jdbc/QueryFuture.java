@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.neo4j.jdbc.util.SerialExecutor;
+
+/**
+ * Result of a statement executed asynchronously on a connection. Cancelling it with mayInterruptIfRunning while the
+ * statement runs aborts the statement through the query executor of the connection. A result that is produced
+ * nevertheless after the future has been cancelled is closed.
+ * <p/>
+ * Listeners are run when the future is done, i.e. completed, failed or cancelled, without blocking a thread until
+ * then. If the executor rejects the statement the future fails with the RejectedExecutionException.
+ */
+public class QueryFuture<V> extends FutureTask<V> implements SerialExecutor.Task
+{
+    private final static Log log = LogFactory.getLog( QueryFuture.class );
+
+    private final QueryExecutor executor;
+    private final List<Runnable> listeners = new ArrayList<Runnable>();
+    private volatile boolean running;
+
+    QueryFuture( Callable<V> callable, QueryExecutor executor )
+    {
+        super( callable );
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the listener on the thread completing the future, or right away if it is already done.
+     */
+    public void addListener( Runnable listener )
+    {
+        synchronized ( listeners )
+        {
+            if ( !isDone() )
+            {
+                listeners.add( listener );
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    @Override
+    public void run()
+    {
+        running = true;
+        try
+        {
+            super.run();
+        }
+        finally
+        {
+            running = false;
+        }
+    }
+
+    @Override
+    public void rejected( RejectedExecutionException e )
+    {
+        setException( e );
+    }
+
+    @Override
+    public boolean cancel( boolean mayInterruptIfRunning )
+    {
+        final boolean cancelled = super.cancel( mayInterruptIfRunning );
+        if ( cancelled && mayInterruptIfRunning && running )
+        {
+            try
+            {
+                executor.cancel();
+            }
+            catch ( Exception e )
+            {
+                log.debug( "Error cancelling statement", e );
+            }
+        }
+        return cancelled;
+    }
+
+    @Override
+    protected void set( V result )
+    {
+        super.set( result );
+        if ( isCancelled() && result instanceof AutoCloseable )
+        {
+            try
+            {
+                ((AutoCloseable) result).close();
+            }
+            catch ( Exception e )
+            {
+                log.debug( "Error closing result of cancelled statement", e );
+            }
+        }
+    }
+
+    @Override
+    protected void done()
+    {
+        final List<Runnable> done;
+        synchronized ( listeners )
+        {
+            done = new ArrayList<Runnable>( listeners );
+            listeners.clear();
+        }
+        for ( Runnable listener : done )
+        {
+            listener.run();
+        }
+    }
+}
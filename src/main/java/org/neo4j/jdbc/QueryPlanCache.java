@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+/**
+ * Usage metrics of the Cypher plan cache of an embedded database, which is shared by all connections to it.
+ */
+public interface QueryPlanCache
+{
+    /**
+     * @return the maximum number of plans kept
+     */
+    int getSize();
+
+    long getHits();
+
+    long getMisses();
+
+    /**
+     * @return the number of plans evicted or replanned because they were stale
+     */
+    long getDiscards();
+}
@@ -27,7 +27,9 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Helper to build ResultSets using a fluent DSL approach.
@@ -36,9 +38,11 @@ public class ResultSetBuilder
 {
     private List<Neo4jColumnMetaData> columns = new ArrayList<Neo4jColumnMetaData>();
 
-    private List<List<Object>> data = new ArrayList<List<Object>>();
+    private Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
 
-    private List<Object> currentRow = new ArrayList<Object>();
+    private ColumnStore data = new ColumnStore( 0 );
+
+    private int currentRow = -1;
 
     public ResultSetBuilder column( String name, int type )
     {
@@ -53,6 +57,11 @@ public class ResultSetBuilder
         }
 
         columns.add( new Neo4jColumnMetaData( name, typeName, type ) );
+        final int index = data.addColumn();
+        if ( !columnIndexes.containsKey( name ) )
+        {
+            columnIndexes.put( name, index );
+        }
         return this;
     }
 
@@ -63,15 +72,16 @@ public class ResultSetBuilder
 
     public ResultSetBuilder rowData( Collection<Object> values )
     {
-        currentRow = new ArrayList<Object>();
-        currentRow.addAll( values );
-
-        for ( int i = currentRow.size(); i < columns.size(); i++ )
+        currentRow = data.addRow();
+        int i = 0;
+        for ( Object value : values )
         {
-            currentRow.add( null );
+            if ( i == data.columns() )
+            {
+                break; // values without a declared column can't be accessed anyway
+            }
+            data.set( currentRow, i++, value );
         }
-
-        data.add( currentRow );
         return this;
     }
 
@@ -82,30 +92,25 @@ public class ResultSetBuilder
 
     public ResultSetBuilder cell( String name, Object value )
     {
-        int i = getColumnIndex( name );
-        if ( i == -1 )
+        final Integer i = columnIndexes.get( name );
+        if ( i == null )
         {
             throw new IllegalArgumentException( "No such column declared:" + name );
         }
-        currentRow.set( i, value );
-        return this;
+        return cell( i, value );
     }
 
-    public ResultSet newResultSet( Connection connection ) throws SQLException
+    /**
+     * Sets a cell of the current row by the 0-based index of its column.
+     */
+    public ResultSetBuilder cell( int column, Object value )
     {
-        return new ListResultSet( columns, data, connection.unwrap( Neo4jConnection.class ) );
+        data.set( currentRow, column, value );
+        return this;
     }
 
-    private int getColumnIndex( String name )
+    public ResultSet newResultSet( Connection connection ) throws SQLException
     {
-        for ( int i = 0; i < columns.size(); i++ )
-        {
-            Neo4jColumnMetaData columnMetaData = columns.get( i );
-            if ( columnMetaData.getName().equals( name ) )
-            {
-                return i;
-            }
-        }
-        return -1;
+        return new ListResultSet( columns, data, connection.unwrap( Neo4jConnection.class ) );
     }
 }
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import org.neo4j.jdbc.util.SerialExecutor;
+
+/**
+ * Publishes the rows of a statement to a single subscriber as it requests them. The statement is executed on the
+ * first request, rows are only read (and parsed) from the result to satisfy the outstanding demand, so a slow
+ * subscriber holds back the reading of a streamed response. Reading and signalling happen on the given executor,
+ * never on the thread calling request().
+ * <p/>
+ * Each row is a copy, as the rows of results can be reused arrays. Cancelling the subscription closes the result,
+ * which closes the response stream or the embedded result iterator.
+ */
+public class RowPublisher implements Publisher<Object[]>
+{
+    private final Callable<ExecutionResult> statement;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * @param statement executes the statement, called at most once
+     */
+    public RowPublisher( Callable<ExecutionResult> statement, Executor executor )
+    {
+        this.statement = statement;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe( Subscriber<? super Object[]> subscriber )
+    {
+        if ( subscriber == null )
+        {
+            throw new NullPointerException( "Subscriber must not be null" );
+        }
+        if ( !subscribed.compareAndSet( false, true ) )
+        {
+            subscriber.onSubscribe( new Subscription()
+            {
+                public void request( long n )
+                {
+                }
+
+                public void cancel()
+                {
+                }
+            } );
+            subscriber.onError( new IllegalStateException( "The rows of a statement can only be published once" ) );
+            return;
+        }
+        subscriber.onSubscribe( new RowSubscription( subscriber ) );
+    }
+
+    private class RowSubscription implements Subscription, SerialExecutor.Task
+    {
+        private final Subscriber<? super Object[]> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger(); // scheduled signals, only one task drains
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        // only accessed by the draining task
+        private boolean done;
+        private ExecutionResult result;
+        private Iterator<Object[]> rows;
+
+        RowSubscription( Subscriber<? super Object[]> subscriber )
+        {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request( long n )
+        {
+            if ( n <= 0 )
+            {
+                invalidRequest = new IllegalArgumentException( "Requested " + n + " rows, must be positive" );
+            }
+            else
+            {
+                long current;
+                do
+                {
+                    current = requested.get();
+                }
+                while ( current != Long.MAX_VALUE && !requested.compareAndSet( current, current + n < 0 ? Long
+                        .MAX_VALUE : current + n ) );
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule()
+        {
+            if ( pending.getAndIncrement() == 0 )
+            {
+                executor.execute( this );
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            int missed = 1;
+            do
+            {
+                drain();
+                missed = pending.addAndGet( -missed );
+            }
+            while ( missed != 0 );
+        }
+
+        private void drain()
+        {
+            if ( done )
+            {
+                return;
+            }
+            try
+            {
+                if ( cancelled )
+                {
+                    finish();
+                    return;
+                }
+                if ( invalidRequest != null )
+                {
+                    finish();
+                    subscriber.onError( invalidRequest );
+                    return;
+                }
+                final long demand = requested.get();
+                if ( demand == 0 )
+                {
+                    return;
+                }
+                if ( result == null )
+                {
+                    result = statement.call();
+                    rows = result.iterator();
+                }
+                long emitted = 0;
+                while ( emitted != demand )
+                {
+                    if ( cancelled )
+                    {
+                        finish();
+                        return;
+                    }
+                    if ( !rows.hasNext() )
+                    {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext( rows.next().clone() );
+                    emitted++;
+                }
+                if ( demand != Long.MAX_VALUE )
+                {
+                    requested.addAndGet( -emitted );
+                }
+            }
+            catch ( Throwable t )
+            {
+                if ( !done )
+                {
+                    finish();
+                    subscriber.onError( t );
+                }
+            }
+        }
+
+        /**
+         * No draining task runs as the rejected one was the only one scheduled.
+         */
+        @Override
+        public void rejected( RejectedExecutionException e )
+        {
+            if ( !done )
+            {
+                finish();
+                subscriber.onError( e );
+            }
+        }
+
+        private void finish()
+        {
+            done = true;
+            if ( result != null )
+            {
+                result.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.neo4j.jdbc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.jdbc.rest.JsonUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Append-only store of the rows of a scrollable result. The first rows are kept on the heap until their estimated
+ * size exceeds the heap budget, further rows are encoded into a temporary file. An index of the end offsets of the
+ * encoded rows gives random access to them, they are read through a memory mapped window over the file.
+ * The file is deleted when the store is closed.
+ * <p/>
+ * Values that are neither JSON like (null, numbers, booleans, strings, lists and maps) nor serializable stay on the
+ * heap and are referenced from the file.
+ */
+final class RowStore implements Closeable
+{
+    static final long DEFAULT_HEAP_BYTES = 16 * 1024 * 1024;
+
+    private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte TRUE = 4;
+    private static final byte FALSE = 5;
+    private static final byte STRING = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+    private static final byte SERIALIZED = 9;
+    private static final byte HEAP = 10;
+
+    private final long heapBytes;
+    private final List<Object[]> heapRows = new ArrayList<>();
+    private long heapSize;
+
+    private File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private OutputStream out;
+    private final Encoder encoder = new Encoder();
+    private final DataOutputStream data = new DataOutputStream( encoder );
+    private final List<Object> heapValues = new ArrayList<>();
+    private long[] ends = new long[1024];
+    private int spilledRows;
+    private long written;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    /**
+     * @param heapBytes estimated size of the rows that are kept on the heap before spilling to disk
+     */
+    RowStore( long heapBytes )
+    {
+        this.heapBytes = heapBytes;
+    }
+
+    int size()
+    {
+        return heapRows.size() + spilledRows;
+    }
+
+    /**
+     * @return the file the rows beyond the heap budget are spilled to, or null if all rows are on the heap
+     */
+    File getFile()
+    {
+        return file;
+    }
+
+    void add( Object[] row ) throws IOException
+    {
+        if ( file == null )
+        {
+            heapSize += JsonUtils.estimateSize( row );
+            if ( heapSize <= heapBytes )
+            {
+                heapRows.add( row.clone() );
+                return;
+            }
+            openFile();
+        }
+        encoder.reset();
+        data.writeInt( row.length );
+        for ( Object value : row )
+        {
+            write( value );
+        }
+        out.write( encoder.buffer(), 0, encoder.size() );
+        written += encoder.size();
+        if ( spilledRows == ends.length )
+        {
+            ends = Arrays.copyOf( ends, spilledRows * 2 );
+        }
+        ends[spilledRows++] = written;
+    }
+
+    Object[] get( int row ) throws IOException
+    {
+        if ( row < heapRows.size() )
+        {
+            return heapRows.get( row );
+        }
+        final int index = row - heapRows.size();
+        if ( index >= spilledRows )
+        {
+            throw new IndexOutOfBoundsException( "Row " + row + " of " + size() );
+        }
+        final long start = index == 0 ? 0 : ends[index - 1];
+        final ByteBuffer buffer = slice( start, (int) (ends[index] - start) );
+        final Object[] result = new Object[buffer.getInt()];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = read( buffer );
+        }
+        return result;
+    }
+
+    private void openFile() throws IOException
+    {
+        file = File.createTempFile( "neo4j-jdbc-rows", ".tmp" );
+        raf = new RandomAccessFile( file, "rw" );
+        channel = raf.getChannel();
+        out = new BufferedOutputStream( Channels.newOutputStream( channel ), 64 * 1024 );
+    }
+
+    /**
+     * Maps a window around the requested range, aligned to half its size, so that scrolling in either direction
+     * mostly stays within the mapped window.
+     */
+    private ByteBuffer slice( long offset, int length ) throws IOException
+    {
+        if ( window == null || offset < windowStart || offset + length > windowEnd )
+        {
+            out.flush();
+            final long start = offset - offset % (WINDOW_SIZE / 2);
+            final long size = Math.min( Math.max( WINDOW_SIZE, offset + length - start ), written - start );
+            window = channel.map( FileChannel.MapMode.READ_ONLY, start, size );
+            windowStart = start;
+            windowEnd = start + size;
+        }
+        final ByteBuffer buffer = window.duplicate();
+        buffer.position( (int) (offset - windowStart) );
+        buffer.limit( (int) (offset - windowStart) + length );
+        return buffer;
+    }
+
+    private void write( Object value ) throws IOException
+    {
+        if ( value == null )
+        {
+            data.writeByte( NULL );
+        }
+        else if ( value instanceof Integer )
+        {
+            data.writeByte( INT );
+            data.writeInt( (Integer) value );
+        }
+        else if ( value instanceof Long )
+        {
+            data.writeByte( LONG );
+            data.writeLong( (Long) value );
+        }
+        else if ( value instanceof Double )
+        {
+            data.writeByte( DOUBLE );
+            data.writeDouble( (Double) value );
+        }
+        else if ( value instanceof Boolean )
+        {
+            data.writeByte( (Boolean) value ? TRUE : FALSE );
+        }
+        else if ( value instanceof String )
+        {
+            data.writeByte( STRING );
+            writeString( (String) value );
+        }
+        else if ( value instanceof List )
+        {
+            final List<?> list = (List<?>) value;
+            data.writeByte( LIST );
+            data.writeInt( list.size() );
+            for ( Object element : list )
+            {
+                write( element );
+            }
+        }
+        else if ( value instanceof Map && isStringKeyed( (Map<?, ?>) value ) )
+        {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            data.writeByte( MAP );
+            data.writeInt( map.size() );
+            for ( Map.Entry<?, ?> entry : map.entrySet() )
+            {
+                writeString( (String) entry.getKey() );
+                write( entry.getValue() );
+            }
+        }
+        else if ( value instanceof Serializable && serialize( value ) )
+        {
+            return;
+        }
+        else
+        {
+            data.writeByte( HEAP );
+            data.writeInt( heapValues.size() );
+            heapValues.add( value );
+        }
+    }
+
+    private boolean serialize( Object value ) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream( bytes ))
+        {
+            stream.writeObject( value );
+        }
+        catch ( NotSerializableException e )
+        {
+            return false;
+        }
+        data.writeByte( SERIALIZED );
+        data.writeInt( bytes.size() );
+        bytes.writeTo( data );
+        return true;
+    }
+
+    private static boolean isStringKeyed( Map<?, ?> map )
+    {
+        for ( Object key : map.keySet() )
+        {
+            if ( !(key instanceof String) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeString( String value ) throws IOException
+    {
+        final byte[] bytes = value.getBytes( UTF_8 );
+        data.writeInt( bytes.length );
+        data.write( bytes );
+    }
+
+    private Object read( ByteBuffer buffer ) throws IOException
+    {
+        final byte type = buffer.get();
+        switch ( type )
+        {
+            case NULL:
+                return null;
+            case INT:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case STRING:
+                return readString( buffer );
+            case LIST:
+            {
+                final int size = buffer.getInt();
+                final List<Object> list = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ )
+                {
+                    list.add( read( buffer ) );
+                }
+                return list;
+            }
+            case MAP:
+            {
+                final int size = buffer.getInt();
+                final Map<String, Object> map = new LinkedHashMap<>( size * 2 );
+                for ( int i = 0; i < size; i++ )
+                {
+                    map.put( readString( buffer ), read( buffer ) );
+                }
+                return map;
+            }
+            case SERIALIZED:
+            {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get( bytes );
+                try (ObjectInputStream stream = new ObjectInputStream( new ByteArrayInputStream( bytes ) ))
+                {
+                    return stream.readObject();
+                }
+                catch ( ClassNotFoundException e )
+                {
+                    throw new IOException( "Error reading spilled value", e );
+                }
+            }
+            case HEAP:
+                return heapValues.get( buffer.getInt() );
+            default:
+                throw new IOException( "Unknown value type " + type + " in row store" );
+        }
+    }
+
+    private static String readString( ByteBuffer buffer )
+    {
+        final int length = buffer.getInt();
+        final String result;
+        if ( buffer.hasArray() )
+        {
+            result = new String( buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8 );
+            buffer.position( buffer.position() + length );
+        }
+        else
+        {
+            final byte[] bytes = new byte[length];
+            buffer.get( bytes );
+            result = new String( bytes, UTF_8 );
+        }
+        return result;
+    }
+
+    /**
+     * Deletes the spill file, the rows are not accessible afterwards.
+     */
+    @Override
+    public void close()
+    {
+        heapRows.clear();
+        heapValues.clear();
+        window = null;
+        if ( file == null )
+        {
+            return;
+        }
+        try
+        {
+            raf.close();
+        }
+        catch ( IOException e )
+        {
+            // ignore, the file is deleted anyway
+        }
+        if ( !file.delete() )
+        {
+            file.deleteOnExit(); // still mapped on some platforms
+        }
+        file = null;
+        spilledRows = 0;
+    }
+
+    private static class Encoder extends ByteArrayOutputStream
+    {
+        Encoder()
+        {
+            super( 256 );
+        }
+
+        byte[] buffer()
+        {
+            return buf;
+        }
+    }
+}
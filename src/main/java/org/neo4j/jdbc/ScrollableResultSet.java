@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.neo4j.jdbc;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.jdbc.util.Closer;
+
+/**
+ * TYPE_SCROLL_INSENSITIVE ResultSet, the rows are read from the result as far as navigation requires and kept in a
+ * RowStore, which spills them to a temporary file beyond its heap budget. Rows that have been read can be visited
+ * again in any order without re-running the query.
+ */
+public class ScrollableResultSet extends AbstractResultSet
+{
+    private static final int BEFORE_FIRST = -1;
+
+    private Iterator<Object[]> data;
+    private final RowStore rows;
+    private int current = BEFORE_FIRST;
+    private Object[] currentRow;
+    private int currentRowIndex = BEFORE_FIRST;
+
+    ScrollableResultSet( Neo4jConnection conn, List<String> columns, Iterator<Object[]> data, long heapBytes )
+    {
+        super( conn, columns );
+        this.data = data;
+        this.rows = new RowStore( heapBytes );
+    }
+
+    /**
+     * Reads rows from the result until the given (0-based) row is available.
+     *
+     * @return true if the row exists
+     */
+    private boolean fetch( int row ) throws SQLException
+    {
+        try
+        {
+            while ( rows.size() <= row && data != null )
+            {
+                if ( data.hasNext() )
+                {
+                    rows.add( data.next() );
+                }
+                else
+                {
+                    closeData();
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new SQLException( "Error storing rows of scrollable result", e );
+        }
+        return row < rows.size();
+    }
+
+    private void fetchAll() throws SQLException
+    {
+        fetch( Integer.MAX_VALUE - 1 );
+    }
+
+    private void closeData()
+    {
+        Closer.close( data );
+        data = null;
+    }
+
+    private boolean moveTo( int row ) throws SQLException
+    {
+        if ( row < 0 )
+        {
+            current = BEFORE_FIRST;
+            return false;
+        }
+        if ( fetch( row ) )
+        {
+            current = row;
+            return true;
+        }
+        current = rows.size();
+        return false;
+    }
+
+    @Override
+    protected Object[] currentRow()
+    {
+        if ( currentRowIndex != current )
+        {
+            try
+            {
+                currentRow = rows.get( current );
+            }
+            catch ( IOException e )
+            {
+                throw new IllegalStateException( "Error reading row " + current + " of scrollable result", e );
+            }
+            currentRowIndex = current;
+        }
+        return currentRow;
+    }
+
+    @Override
+    public boolean next() throws SQLException
+    {
+        return moveTo( current + 1 );
+    }
+
+    @Override
+    public boolean previous() throws SQLException
+    {
+        return moveTo( current - 1 );
+    }
+
+    @Override
+    public boolean first() throws SQLException
+    {
+        return moveTo( 0 );
+    }
+
+    @Override
+    public boolean last() throws SQLException
+    {
+        fetchAll();
+        return moveTo( rows.size() - 1 );
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException
+    {
+        current = BEFORE_FIRST;
+    }
+
+    @Override
+    public void afterLast() throws SQLException
+    {
+        fetchAll();
+        current = rows.size();
+    }
+
+    @Override
+    public boolean absolute( int row ) throws SQLException
+    {
+        if ( row > 0 )
+        {
+            return moveTo( row - 1 );
+        }
+        if ( row < 0 )
+        {
+            fetchAll();
+            return moveTo( rows.size() + row );
+        }
+        current = BEFORE_FIRST;
+        return false;
+    }
+
+    @Override
+    public boolean relative( int offset ) throws SQLException
+    {
+        return moveTo( current + offset );
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException
+    {
+        return current == BEFORE_FIRST && fetch( 0 );
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException
+    {
+        // an empty result has no position after its last row
+        return current > BEFORE_FIRST && !fetch( current ) && fetch( 0 );
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException
+    {
+        return current == 0 && fetch( 0 );
+    }
+
+    @Override
+    public boolean isLast() throws SQLException
+    {
+        return current > BEFORE_FIRST && fetch( current ) && !fetch( current + 1 );
+    }
+
+    @Override
+    public int getRow() throws SQLException
+    {
+        return current > BEFORE_FIRST && fetch( current ) ? current + 1 : 0;
+    }
+
+    @Override
+    public void setFetchDirection( int direction ) throws SQLException
+    {
+        if ( direction != FETCH_FORWARD && direction != FETCH_REVERSE && direction != FETCH_UNKNOWN )
+        {
+            throw new SQLException( "Invalid fetch direction " + direction );
+        }
+    }
+
+    @Override
+    public int getType() throws SQLException
+    {
+        return ResultSet.TYPE_SCROLL_INSENSITIVE;
+    }
+
+    /**
+     * Closes the underlying result if it was not read to its end and deletes the spilled rows.
+     */
+    @Override
+    public void close() throws SQLException
+    {
+        closeData();
+        rows.close();
+        currentRow = null;
+        currentRowIndex = BEFORE_FIRST;
+        super.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return super.toString() + " current row " + current + ": " + (current > BEFORE_FIRST && current < rows
+                .size() ? Arrays.toString( currentRow() ) : "none");
+    }
+}
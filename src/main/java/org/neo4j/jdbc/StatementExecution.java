@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.neo4j.jdbc.util.ClosableIterator;
+import org.neo4j.jdbc.util.Closer;
+import org.neo4j.jdbc.util.TypedRow;
+import org.neo4j.jdbc.util.TypedRowIterator;
+
+/**
+ * One execution of a statement on a connection, from sending it until its result has been read or closed. It can be
+ * cancelled, and it is cancelled by the timer of the driver when it takes longer than its timeout. Cancelling aborts
+ * the statement through the query executor, the failure it causes is reported as SQLTimeoutException after a
+ * timeout or as cancelled statement. A connection only guards its latest execution, starting an execution finishes
+ * the previous one.
+ */
+class StatementExecution
+{
+    private final static Log log = LogFactory.getLog( StatementExecution.class );
+
+    static final String CANCELLED_STATE = "57014";
+
+    private final Neo4jConnection connection;
+    private final long timeoutMillis;
+    private ScheduledFuture<?> expiry;
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
+    private volatile boolean finished;
+
+    /**
+     * @param timeoutMillis 0 for no timeout
+     */
+    StatementExecution( Neo4jConnection connection, long timeoutMillis )
+    {
+        this.connection = connection;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    synchronized void start()
+    {
+        if ( timeoutMillis > 0 && !finished )
+        {
+            expiry = connection.getDriver().getScheduler().schedule( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    timedOut = true;
+                    abort();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    synchronized void finish()
+    {
+        finished = true;
+        if ( expiry != null )
+        {
+            expiry.cancel( false );
+            expiry = null;
+        }
+    }
+
+    void cancel()
+    {
+        cancelled = true;
+        abort();
+    }
+
+    /**
+     * Aborting may block on the network, it is done on the executor of the driver.
+     */
+    private void abort()
+    {
+        if ( finished )
+        {
+            return;
+        }
+        connection.getDriver().getExecutor().execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    connection.cancelExecution();
+                }
+                catch ( Exception e )
+                {
+                    log.debug( "Error aborting statement", e );
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return the exception to report for a failure of the statement, null if it didn't fail because it was
+     * aborted
+     */
+    SQLException failure( Throwable cause )
+    {
+        if ( timedOut )
+        {
+            return new SQLTimeoutException( "Statement timed out after " + timeoutMillis + " ms", CANCELLED_STATE,
+                    cause );
+        }
+        if ( cancelled )
+        {
+            return new SQLException( "Statement cancelled", CANCELLED_STATE, cause );
+        }
+        return null;
+    }
+
+    /**
+     * @return the result whose rows finish this execution when they are exhausted or closed, and report failures
+     * caused by aborting it
+     */
+    ExecutionResult guard( ExecutionResult result )
+    {
+        final Iterator<Object[]> rows = result.getResult();
+        final ExecutionResult guarded = new ExecutionResult( result.columns(), rows instanceof TypedRowIterator ?
+                new GuardedTypedRows( (TypedRowIterator) rows ) : new GuardedRows( rows ) );
+        guarded.setUpdateCount( result.getUpdateCount() );
+        return guarded;
+    }
+
+    private RuntimeException rethrow( Exception e )
+    {
+        finish();
+        final SQLException failure = failure( e );
+        StatementExecution.<RuntimeException>sneakyThrow( failure != null ? failure : e );
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> void sneakyThrow( Throwable e ) throws E
+    {
+        throw (E) e;
+    }
+
+    private class GuardedRows implements ClosableIterator<Object[]>
+    {
+        private final Iterator<Object[]> rows;
+
+        GuardedRows( Iterator<Object[]> rows )
+        {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            try
+            {
+                final boolean hasNext = rows.hasNext();
+                if ( !hasNext )
+                {
+                    finish();
+                }
+                return hasNext;
+            }
+            catch ( Exception e )
+            {
+                throw rethrow( e );
+            }
+        }
+
+        @Override
+        public Object[] next()
+        {
+            try
+            {
+                return rows.next();
+            }
+            catch ( Exception e )
+            {
+                throw rethrow( e );
+            }
+        }
+
+        @Override
+        public void remove()
+        {
+            rows.remove();
+        }
+
+        @Override
+        public void close()
+        {
+            finish();
+            Closer.close( rows );
+        }
+    }
+
+    private class GuardedTypedRows extends GuardedRows implements TypedRowIterator
+    {
+        private final TypedRowIterator rows;
+
+        GuardedTypedRows( TypedRowIterator rows )
+        {
+            super( rows );
+            this.rows = rows;
+        }
+
+        @Override
+        public TypedRow nextTypedRow()
+        {
+            try
+            {
+                return rows.nextTypedRow();
+            }
+            catch ( Exception e )
+            {
+                throw rethrow( e );
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.neo4j.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.neo4j.jdbc.rest.JsonUtils;
+
+/**
+ * Turns a batch of executions of one prepared statement into a single "UNWIND {batch} AS row ..." statement per
+ * chunk of parameter maps, so the server plans and runs the query once per chunk instead of once per row.
+ * Only suitable for statements whose rows don't depend on each other, e.g. no aggregation over the whole batch.
+ */
+class UnwindBatch
+{
+    static final String BATCH_PARAMETER = "batch";
+    static final long DEFAULT_BATCH_BYTES = 1024 * 1024;
+
+    private static final Pattern PLACEHOLDER = Pattern.compile( "\\{\\s*(\\d+)\\s*\\}" );
+    // the UNWIND clause has to come first, so queries with options, a periodic commit or a comment in front are kept
+    private static final Pattern PREFIXED = Pattern.compile( "(?is)\\s*((using\\s+periodic\\s+commit|cypher|explain|" +
+            "profile)\\b|//|/\\*).*" );
+    private static final Pattern UNION = Pattern.compile( "(?i)\\bunion\\b" );
+    private static final Pattern WITH = Pattern.compile( "(?is)\\bwith\\b(.*?)(?=\\b(match|optional|where|create|" +
+            "merge|set|delete|detach|remove|return|unwind|foreach|order|skip|limit|with|union|load|start)\\b|$)" );
+    private static final Pattern STRING_OPERATOR = Pattern.compile( "(?i)\\b(starts|ends)\\s+$" );
+    private static final Pattern CARRIES_ROW = Pattern.compile( "(?is)(^\\s*(distinct\\s+)?|,\\s*)(\\*|row" +
+            "(\\s+as\\s+row)?)\\s*(,|$)" );
+
+    /**
+     * @return the query prefixed with the UNWIND clause and its {n} placeholders replaced by row.pn, or null if the
+     * query can't be rewritten, i.e. it has no placeholders, starts with anything but a clause, is a UNION or has a
+     * WITH clause that doesn't pass row on
+     */
+    static String rewrite( String query )
+    {
+        if ( PREFIXED.matcher( query ).matches() )
+        {
+            return null;
+        }
+        StringBuilder result = new StringBuilder( query.length() + 32 );
+        result.append( "UNWIND {" ).append( BATCH_PARAMETER ).append( "} AS row " );
+        final StringBuilder code = new StringBuilder( query.length() ); // the query with blanked out literals
+        boolean replaced = false;
+        char quote = 0;
+        final Matcher matcher = PLACEHOLDER.matcher( query );
+        for ( int i = 0; i < query.length(); i++ )
+        {
+            final char c = query.charAt( i );
+            if ( quote != 0 )
+            {
+                if ( c == '\\' && i + 1 < query.length() )
+                {
+                    result.append( c );
+                    i++;
+                    result.append( query.charAt( i ) );
+                    code.append( "  " );
+                    continue;
+                }
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+                code.append( ' ' );
+            }
+            else if ( c == '\'' || c == '"' || c == '`' )
+            {
+                quote = c;
+                code.append( ' ' );
+            }
+            else if ( c == '{' && matcher.region( i, query.length() ).lookingAt() )
+            {
+                result.append( "row." ).append( parameterName( matcher.group( 1 ) ) );
+                code.append( query, i, matcher.end() );
+                i = matcher.end() - 1;
+                replaced = true;
+                continue;
+            }
+            else
+            {
+                code.append( c );
+            }
+            result.append( c );
+        }
+        return replaced && carriesRow( code ) ? result.toString() : null;
+    }
+
+    /**
+     * @return true if row stays in scope for the whole query, i.e. it has no UNION and every WITH clause projects
+     * row or *
+     */
+    private static boolean carriesRow( CharSequence code )
+    {
+        if ( UNION.matcher( code ).find() )
+        {
+            return false;
+        }
+        final Matcher with = WITH.matcher( code );
+        final Matcher operator = STRING_OPERATOR.matcher( code );
+        while ( with.find() )
+        {
+            if ( operator.region( 0, with.start() ).find() )
+            {
+                continue; // STARTS WITH, ENDS WITH
+            }
+            if ( !CARRIES_ROW.matcher( with.group( 1 ) ).find() )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String parameterName( String index )
+    {
+        return "p" + index;
+    }
+
+    /**
+     * @return the parameters of one execution as entry of the batch list, the keys prefixed to be valid identifiers
+     */
+    static Map<String, Object> toRow( Map<String, Object> parameters )
+    {
+        Map<String, Object> row = new HashMap<String, Object>( parameters.size() * 2 );
+        for ( Map.Entry<String, Object> entry : parameters.entrySet() )
+        {
+            row.put( parameterName( entry.getKey() ), entry.getValue() );
+        }
+        return row;
+    }
+
+    /**
+     * Splits the rows into chunks whose estimated serialized size stays within the given number of bytes, every
+     * chunk contains at least one row.
+     */
+    static List<List<Map<String, Object>>> chunk( List<Map<String, Object>> rows, long maxBytes )
+    {
+        List<List<Map<String, Object>>> chunks = new ArrayList<List<Map<String, Object>>>();
+        List<Map<String, Object>> chunk = new ArrayList<Map<String, Object>>();
+        long bytes = 0;
+        for ( Map<String, Object> row : rows )
+        {
+            final long size = JsonUtils.estimateSize( row );
+            if ( !chunk.isEmpty() && bytes + size > maxBytes )
+            {
+                chunks.add( chunk );
+                chunk = new ArrayList<Map<String, Object>>();
+                bytes = 0;
+            }
+            chunk.add( row );
+            bytes += size;
+        }
+        if ( !chunk.isEmpty() )
+        {
+            chunks.add( chunk );
+        }
+        return chunks;
+    }
+
+    static Map<String, Object> batchParameters( List<Map<String, Object>> chunk )
+    {
+        return Collections.<String, Object>singletonMap( BATCH_PARAMETER, chunk );
+    }
+}
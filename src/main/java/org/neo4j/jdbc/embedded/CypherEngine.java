@@ -0,0 +1,182 @@
+package org.neo4j.jdbc.embedded;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.cypher.StringCacheMonitor;
+import org.neo4j.cypher.javacompat.ExecutionEngine;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.event.ErrorState;
+import org.neo4j.graphdb.event.KernelEventHandler;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.jdbc.QueryPlanCache;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.monitoring.Monitors;
+
+/**
+ * The Cypher execution engine of an embedded database together with the metrics of its plan cache. It is shared by
+ * all executors of the database so that the connections share the plans.
+ * <p/>
+ * The engines are found by the identity of their database and only referenced weakly, the database itself keeps its
+ * engine alive through the listeners the engine registers. When the database shuts down the engine removes its cache
+ * listener and is dropped.
+ */
+public class CypherEngine implements QueryPlanCache
+{
+    private static final List<WeakReference<CypherEngine>> engines = new ArrayList<>();
+
+    private final GraphDatabaseService database;
+    private final ExecutionEngine executionEngine;
+    private final int size;
+    private final Monitors monitors;
+    private final CacheMonitor cacheMonitor = new CacheMonitor();
+    private volatile boolean shutdown;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    private CypherEngine( GraphDatabaseService database )
+    {
+        this.database = database;
+        final GraphDatabaseAPI api = (GraphDatabaseAPI) database;
+        this.size = api.getDependencyResolver().resolveDependency( Config.class ).get( GraphDatabaseSettings
+                .query_cache_size );
+        this.monitors = api.getDependencyResolver().resolveDependency( Monitors.class );
+        monitors.addMonitorListener( cacheMonitor );
+        database.registerKernelEventHandler( new ShutdownHandler() );
+        this.executionEngine = new ExecutionEngine( database );
+    }
+
+    /**
+     * @return the engine of the database, created on first use
+     */
+    public static CypherEngine of( GraphDatabaseService database )
+    {
+        synchronized ( engines )
+        {
+            for ( Iterator<WeakReference<CypherEngine>> it = engines.iterator(); it.hasNext(); )
+            {
+                final CypherEngine engine = it.next().get();
+                if ( engine == null || engine.isShutdown() )
+                {
+                    it.remove();
+                }
+                else if ( engine.database == database )
+                {
+                    return engine;
+                }
+            }
+            final CypherEngine engine = new CypherEngine( database );
+            engines.add( new WeakReference<>( engine ) );
+            return engine;
+        }
+    }
+
+    /**
+     * @return true once the database shut down
+     */
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    public GraphDatabaseService getDatabase()
+    {
+        return database;
+    }
+
+    ExecutionEngine getExecutionEngine()
+    {
+        return executionEngine;
+    }
+
+    @Override
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public long getDiscards()
+    {
+        return discards.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Plan cache size: " + size + " hits: " + getHits() + " misses: " + getMisses() + " discards: " +
+                getDiscards();
+    }
+
+    private class ShutdownHandler implements KernelEventHandler
+    {
+        @Override
+        public void beforeShutdown()
+        {
+            shutdown = true;
+            monitors.removeMonitorListener( cacheMonitor );
+        }
+
+        @Override
+        public void kernelPanic( ErrorState error )
+        {
+        }
+
+        @Override
+        public Object getResource()
+        {
+            return null;
+        }
+
+        @Override
+        public ExecutionOrder orderComparedTo( KernelEventHandler other )
+        {
+            return ExecutionOrder.DOESNT_MATTER;
+        }
+    }
+
+    private class CacheMonitor implements StringCacheMonitor
+    {
+        @Override
+        public void cacheHit( String query )
+        {
+            hits.incrementAndGet();
+        }
+
+        @Override
+        public void cacheMiss( String query )
+        {
+            misses.incrementAndGet();
+        }
+
+        @Override
+        public void cacheDiscard( String query )
+        {
+            discards.incrementAndGet();
+        }
+
+        @Override
+        public void cacheFlushDetected( Statement statement )
+        {
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package org.neo4j.jdbc.embedded;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,6 +14,7 @@ import org.neo4j.graphdb.factory.GraphDatabaseFactory;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.jdbc.Databases;
 import org.neo4j.jdbc.QueryExecutor;
+import org.neo4j.jdbc.QueryPlanCache;
 import org.neo4j.test.ImpermanentGraphDatabase;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
@@ -29,14 +33,22 @@ public class EmbeddedDatabases implements Databases
                     @Override
                     public GraphDatabaseService create( String name, Properties properties )
                     {
-                        return withShutdownHook( defaultImpermanentDb() );
+                        return withShutdownHook( configure( new TestGraphDatabaseFactory()
+                                .newImpermanentDatabaseBuilder(), properties ).newGraphDatabase() );
                     }
                 }, instance
             {
                 @Override
                 public GraphDatabaseService create( String name, Properties properties )
                 {
-                    return (GraphDatabaseService) properties.remove( name );
+                    final GraphDatabaseService database = properties == null ? null : (GraphDatabaseService)
+                            properties.remove( name );
+                    if ( database == null )
+                    {
+                        throw new IllegalStateException( "No GraphDatabaseService instance under the name " + name +
+                                " in the connection properties" );
+                    }
+                    return database;
                 }
             }, file
             {
@@ -48,7 +60,7 @@ public class EmbeddedDatabases implements Databases
                     {
                          builder.setConfig( GraphDatabaseSettings.read_only, "true" );
                     }
-                    return withShutdownHook( builder.newGraphDatabase() );
+                    return withShutdownHook( configure( builder, properties ).newGraphDatabase() );
                 }
             };
 
@@ -58,42 +70,75 @@ public class EmbeddedDatabases implements Databases
         {
             return properties != null && properties.getProperty( "readonly", "false" ).equalsIgnoreCase( "true" );
         }
+
+        protected GraphDatabaseBuilder configure( GraphDatabaseBuilder builder, Properties properties )
+        {
+            final String planCacheSize = properties == null ? null : properties.getProperty( PLAN_CACHE_SIZE );
+            if ( planCacheSize != null )
+            {
+                builder.setConfig( GraphDatabaseSettings.query_cache_size, planCacheSize );
+            }
+            return builder;
+        }
     }
 
-    private final WeakHashMap<String, GraphDatabaseService> databases = new WeakHashMap<String, GraphDatabaseService>();
+    public static final String PLAN_CACHE_SIZE = "planCacheSize";
+
+    private final ConcurrentMap<String, CypherEngine> engines = new ConcurrentHashMap<>();
 
     public GraphDatabaseService createDatabase( String connectionUrl, Properties properties )
+    {
+        return createEngine( connectionUrl, properties ).getDatabase();
+    }
+
+    /**
+     * @return the engine of the named database of the URL, which is shared by all its connections, or an engine
+     * of a new unnamed in-memory database. Instances passed in the properties are not kept by name, their engine is
+     * found by the identity of the instance.
+     */
+    private CypherEngine createEngine( String connectionUrl, Properties properties )
     {
         Matcher matcher = urlMatcher.matcher( connectionUrl );
         if ( !matcher.find() )
         {
-            return defaultImpermanentDb();
+            return CypherEngine.of( defaultImpermanentDb() );
         }
+        final Type type;
         try
         {
-            Type type = Type.valueOf( matcher.group( 1 ) );
-            String name = matcher.group( 2 );
-            GraphDatabaseService gds = databases.get( name );
-            if ( gds != null )
-            {
-                return gds;
-            }
-            synchronized ( urlMatcher )
-            {
-                gds = databases.get( name );
-                if ( gds != null )
-                {
-                    return gds;
-                }
-                gds = type.create( name, properties );
-                databases.put( name, gds );
-            }
-            return gds;
+            type = Type.valueOf( matcher.group( 1 ) );
         }
         catch ( IllegalArgumentException e )
         {
-            return defaultImpermanentDb();
+            return CypherEngine.of( defaultImpermanentDb() );
+        }
+        String name = matcher.group( 2 );
+        if ( type == Type.instance )
+        {
+            return CypherEngine.of( type.create( name, properties ) );
+        }
+        CypherEngine engine = engines.get( name );
+        if ( engine != null && !engine.isShutdown() )
+        {
+            return engine;
         }
+        synchronized ( urlMatcher )
+        {
+            engine = engines.get( name );
+            if ( engine != null && !engine.isShutdown() )
+            {
+                return engine;
+            }
+            engine = CypherEngine.of( type.create( name, properties ) );
+            engines.put( name, engine );
+        }
+        return engine;
+    }
+
+    @Override
+    public Map<String, QueryPlanCache> getQueryPlanCaches()
+    {
+        return Collections.<String, QueryPlanCache>unmodifiableMap( engines );
     }
 
     private static GraphDatabaseService defaultImpermanentDb()
@@ -115,7 +160,6 @@ public class EmbeddedDatabases implements Databases
 
     public QueryExecutor createExecutor( String connectionUrl, Properties properties )
     {
-        GraphDatabaseService gds = createDatabase( connectionUrl, properties );
-        return new EmbeddedQueryExecutor( gds );
+        return new EmbeddedQueryExecutor( createEngine( connectionUrl, properties ) );
     }
 }
@@ -1,12 +1,16 @@
 package org.neo4j.jdbc.embedded;
 
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.neo4j.cypher.javacompat.ExecutionEngine;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryStatistics;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.helpers.Exceptions;
@@ -14,10 +18,16 @@ import org.neo4j.helpers.collection.IteratorWrapper;
 import org.neo4j.jdbc.ExecutionResult;
 import org.neo4j.jdbc.QueryExecutor;
 import org.neo4j.jdbc.Version;
+import org.neo4j.jdbc.util.ClosableIterator;
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.KernelData;
+import org.neo4j.kernel.TopLevelTransaction;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 
 /**
+ * The transaction of the executor is only bound to the thread using it while a query is executed or its results are
+ * read, so that it can be used from any thread and different executors can be used from the same thread.
+ *
  * @author mh
  * @since 15.06.12
  */
@@ -27,73 +37,181 @@ public class EmbeddedQueryExecutor implements QueryExecutor
 
     private final ExecutionEngine executionEngine;
     private final GraphDatabaseService gds;
+    private final ThreadToStatementContextBridge bridge;
 
-    ThreadLocal<Transaction> tx = new ThreadLocal<Transaction>();
+    private volatile Transaction tx;
+    private TopLevelTransaction displaced; // bound to the thread before the transaction of this executor was resumed
 
     public EmbeddedQueryExecutor( GraphDatabaseService gds )
     {
-        this.gds = gds;
-        executionEngine = new ExecutionEngine( gds );
+        this( CypherEngine.of( gds ) );
+    }
+
+    public EmbeddedQueryExecutor( CypherEngine engine )
+    {
+        this.gds = engine.getDatabase();
+        executionEngine = engine.getExecutionEngine();
+        bridge = ((GraphDatabaseAPI) gds).getDependencyResolver().resolveDependency(
+                ThreadToStatementContextBridge.class );
     }
 
     @Override
-    public ExecutionResult executeQuery( final String query, Map<String, Object> parameters,
-                                         final boolean autoCommit ) throws Exception
+    public synchronized ExecutionResult executeQuery( final String query, Map<String, Object> parameters,
+                                                      final boolean autoCommit ) throws Exception
     {
         final Map<String, Object> params = parameters == null ? Collections.<String, Object>emptyMap() : parameters;
         begin();
+        try
+        {
+            return execute( query, params, autoCommit );
+        }
+        finally
+        {
+            suspend();
+        }
+    }
+
+    private ExecutionResult execute( final String query, Map<String, Object> params, final boolean autoCommit )
+    {
         final org.neo4j.cypher.javacompat.ExecutionResult result = executionEngine.execute( query, params );
         final List<String> columns = result.columns();
-        final int cols = columns.size();
-        final Object[] resultRow = new Object[cols];
+        final RowExtractor extractor = new RowExtractor( columns );
+        final Object[] resultRow = new Object[columns.size()];
         final ResourceIterator<Map<String, Object>> iterator = result.iterator();
         if ( !iterator.hasNext() )
         {
             commitIfAutoCommit( autoCommit );
         }
-        return new ExecutionResult( columns, new IteratorWrapper<Object[], Map<String, Object>>( iterator )
+        return new ExecutionResult( columns, new RowIterator( iterator )
         {
             boolean closed = false;
 
             @Override
-            public Object[] next()
+            public boolean hasNext()
             {
-                try
+                synchronized ( EmbeddedQueryExecutor.this )
                 {
-                    return super.next();
-                }
-                catch ( Exception e )
-                {
-                    handleException( e, query );
-                    return null; // This will never happen
+                    resume();
+                    try
+                    {
+                        return super.hasNext();
+                    }
+                    finally
+                    {
+                        suspend();
+                    }
                 }
-                finally
+            }
+
+            @Override
+            public Object[] next()
+            {
+                synchronized ( EmbeddedQueryExecutor.this )
                 {
-                    if ( !hasNext() && !closed )
+                    resume();
+                    try
+                    {
+                        return super.next();
+                    }
+                    catch ( Exception e )
                     {
-                        close();
+                        handleException( e, query );
+                        return null; // This will never happen
+                    }
+                    finally
+                    {
+                        if ( !super.hasNext() && !closed )
+                        {
+                            close();
+                        }
+                        suspend();
                     }
                 }
             }
 
             protected Object[] underlyingObjectToObject( Map<String, Object> row )
             {
-                for ( int i = 0; i < cols; i++ )
-                {
-                    resultRow[i] = row.get( columns.get( i ) );
-                }
-                return resultRow;
+                return extractor.extract( row, resultRow );
             }
 
             public void close()
             {
-                iterator.close();
-                closed = true;
-                commitIfAutoCommit( autoCommit );
+                synchronized ( EmbeddedQueryExecutor.this )
+                {
+                    if ( closed )
+                    {
+                        return;
+                    }
+                    resume();
+                    try
+                    {
+                        iterator.close();
+                        closed = true;
+                        commitIfAutoCommit( autoCommit );
+                    }
+                    finally
+                    {
+                        suspend();
+                    }
+                }
             }
         } );
     }
 
+    @Override
+    public synchronized int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters,
+                                            boolean autoCommit ) throws Exception
+    {
+        begin();
+        try
+        {
+            return executeBatch( queries, parameters, autoCommit, new int[queries.size()] );
+        }
+        finally
+        {
+            suspend();
+        }
+    }
+
+    private int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters, boolean autoCommit,
+                                int[] counts ) throws Exception
+    {
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            try
+            {
+                final Map<String, Object> params = parameters.get( i ) == null ? Collections.<String,
+                        Object>emptyMap() : parameters.get( i );
+                final org.neo4j.cypher.javacompat.ExecutionResult result =
+                        executionEngine.execute( queries.get( i ), params );
+                final ResourceIterator<Map<String, Object>> rows = result.iterator();
+                while ( rows.hasNext() )
+                {
+                    rows.next();
+                }
+                counts[i] = updateCount( result.getQueryStatistics() );
+            }
+            catch ( Exception e )
+            {
+                if ( autoCommit )
+                {
+                    rollback();
+                }
+                throw new BatchUpdateException( "Error executing batch statement " + (i + 1) + ": " + e
+                        .getMessage(), Arrays.copyOf( counts, i ), e );
+            }
+        }
+        commitIfAutoCommit( autoCommit );
+        return counts;
+    }
+
+    private static int updateCount( QueryStatistics stats )
+    {
+        return stats.getNodesCreated() + stats.getNodesDeleted() + stats.getRelationshipsCreated() + stats
+                .getRelationshipsDeleted() + stats.getPropertiesSet() + stats.getLabelsAdded() + stats
+                .getLabelsRemoved();
+    }
+
     private void commitIfAutoCommit( boolean autoCommit )
     {
         if ( autoCommit )
@@ -111,36 +229,138 @@ public class EmbeddedQueryExecutor implements QueryExecutor
 
     private void begin()
     {
-        if ( tx.get() == null )
+        if ( tx == null )
+        {
+            tx = gds.beginTx();
+        }
+        else
+        {
+            resume();
+        }
+    }
+
+    /**
+     * Binds the transaction of this executor to the current thread. Another transaction bound to the thread, e.g.
+     * one of the application or of another connection whose result is read meanwhile, is unbound until
+     * {@link #suspend()}.
+     */
+    private void resume()
+    {
+        if ( !(tx instanceof TopLevelTransaction) )
+        {
+            return;
+        }
+        final TopLevelTransaction bound = bridge.getTopLevelTransactionBoundToThisThread( false );
+        if ( bound == tx )
+        {
+            return;
+        }
+        if ( bound != null )
+        {
+            bridge.unbindTransactionFromCurrentThread();
+            displaced = bound;
+        }
+        bridge.bindTransactionToCurrentThread( (TopLevelTransaction) tx );
+    }
+
+    /**
+     * Unbinds the transaction of this executor from the current thread and binds the transaction it displaced
+     * again. A transaction that was already running on the thread when this executor began its own stays bound.
+     */
+    private void suspend()
+    {
+        if ( tx instanceof TopLevelTransaction && bridge.getTopLevelTransactionBoundToThisThread( false ) == tx )
+        {
+            bridge.unbindTransactionFromCurrentThread();
+        }
+        final TopLevelTransaction previous = displaced;
+        if ( previous != null && bridge.getTopLevelTransactionBoundToThisThread( false ) == null )
         {
-            tx.set( gds.beginTx() );
+            displaced = null;
+            bridge.bindTransactionToCurrentThread( previous );
         }
     }
 
     @Override
-    public void commit() throws Exception
+    public synchronized void commit() throws Exception
     {
-        final Transaction transaction = tx.get();
+        final Transaction transaction = tx;
         if ( transaction == null )
         {
             return; // throw new SQLException("Not in transaction for commit");
         }
-        tx.set( null );
-        transaction.success();
-        transaction.close();
+        resume();
+        tx = null;
+        try
+        {
+            transaction.success();
+            transaction.close();
+        }
+        finally
+        {
+            suspend();
+        }
     }
 
     @Override
-    public void rollback() throws Exception
+    public synchronized void rollback() throws Exception
     {
-        final Transaction transaction = tx.get();
+        final Transaction transaction = tx;
         if ( transaction == null )
         {
             return;
         }
-        tx.set( null );
-        transaction.failure();
-        transaction.finish();
+        resume();
+        tx = null;
+        try
+        {
+            transaction.failure();
+            transaction.finish();
+        }
+        finally
+        {
+            suspend();
+        }
+    }
+
+    /**
+     * Marks the transaction for termination, the statement running in it fails on its next check.
+     */
+    @Override
+    public void cancel() throws Exception
+    {
+        final Transaction transaction = tx;
+        if ( transaction instanceof TopLevelTransaction )
+        {
+            ((TopLevelTransaction) transaction).terminate();
+        }
+    }
+
+    @Override
+    public boolean isAvailable( long timeoutMillis )
+    {
+        return gds.isAvailable( timeoutMillis );
+    }
+
+    /**
+     * Embedded transactions don't expire.
+     */
+    @Override
+    public long getTransactionExpiry()
+    {
+        return 0;
+    }
+
+    /**
+     * Lets results close the underlying result iterator, e.g. when their ResultSet or row publisher is closed.
+     */
+    private abstract static class RowIterator extends IteratorWrapper<Object[], Map<String, Object>> implements
+            ClosableIterator<Object[]>
+    {
+        RowIterator( Iterator<Map<String, Object>> iterator )
+        {
+            super( iterator );
+        }
     }
 
     private void handleException( Exception cause, String query )
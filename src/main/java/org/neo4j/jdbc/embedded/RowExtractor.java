@@ -0,0 +1,81 @@
+package org.neo4j.jdbc.embedded;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies the cells of the row maps of a result into arrays by column position. The entry order of the row maps is
+ * learned from the first row, the following rows are then filled in a single pass over their entries that only
+ * compares the column names, usually by reference. Rows that don't match the learned order are looked up by name and
+ * their order is learned instead.
+ */
+final class RowExtractor
+{
+    private final String[] columns;
+    private int[] positions; // column position of the n-th entry of a row
+
+    RowExtractor( List<String> columns )
+    {
+        this.columns = columns.toArray( new String[columns.size()] );
+    }
+
+    /**
+     * @return the target array filled with the cells of the row in column order
+     */
+    Object[] extract( Map<String, Object> row, Object[] target )
+    {
+        if ( positions == null || row.size() != columns.length || !extractInOrder( row, target ) )
+        {
+            extractByName( row, target );
+        }
+        return target;
+    }
+
+    private boolean extractInOrder( Map<String, Object> row, Object[] target )
+    {
+        int entry = 0;
+        for ( Map.Entry<String, Object> cell : row.entrySet() )
+        {
+            final int column = positions[entry++];
+            final String name = cell.getKey();
+            if ( column == -1 || (name != columns[column] && !columns[column].equals( name )) )
+            {
+                return false;
+            }
+            target[column] = cell.getValue();
+        }
+        return true;
+    }
+
+    private void extractByName( Map<String, Object> row, Object[] target )
+    {
+        for ( int column = 0; column < columns.length; column++ )
+        {
+            target[column] = row.get( columns[column] );
+        }
+        if ( row.size() != columns.length )
+        {
+            positions = null;
+            return;
+        }
+        positions = new int[columns.length];
+        final Iterator<String> names = row.keySet().iterator();
+        for ( int entry = 0; entry < positions.length; entry++ )
+        {
+            positions[entry] = indexOf( names.next() );
+        }
+    }
+
+    private int indexOf( String name )
+    {
+        for ( int column = 0; column < columns.length; column++ )
+        {
+            if ( columns[column].equals( name ) )
+            {
+                return column;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,363 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.restlet.data.Status;
+import org.restlet.resource.ResourceException;
+
+/**
+ * The servers of a Neo4j HA cluster, given by a multi-host URL, and their roles. The roles are read from the HA status
+ * endpoint of each server when the cluster is created and then periodically while connections use it, and again
+ * when a connection failed to reach a server. Writes go to the master, reads are balanced across the slaves.
+ * <p/>
+ * An HA instance that doesn't answer its status endpoint with master or slave, for example while it is still joining
+ * or after it lost the master, is down. Only servers without any HA endpoint are standalone. When there is no master
+ * the first standalone server takes writes, and the other standalone servers take reads when there are no slaves, so
+ * that plain servers can be used as a cluster too.
+ * <p/>
+ * The cluster is closed and its servers' resources are released when its last connection released it.
+ */
+public class Cluster
+{
+    protected final static Log log = LogFactory.getLog( Cluster.class );
+    static final String HA_PATH = "/db/manage/server/ha";
+    static final String HA_AVAILABLE_PATH = HA_PATH + "/available";
+
+    public enum Role
+    {
+        MASTER, SLAVE, STANDALONE, DOWN
+    }
+
+    public static class Member
+    {
+        private final String url;
+        private final Resources resources;
+        private volatile Role role = Role.DOWN;
+        private volatile boolean ha; // once the server was seen with HA endpoints
+
+        Member( String url, Resources resources )
+        {
+            this.url = url;
+            this.resources = resources;
+        }
+
+        public String getUrl()
+        {
+            return url;
+        }
+
+        public Role getRole()
+        {
+            return role;
+        }
+
+        /**
+         * @return the number of requests of all connections that are currently dispatched to this server
+         */
+        public int getActiveRequests()
+        {
+            return resources.getTransport().getActiveRequests();
+        }
+
+        boolean isAvailable( long timeoutMillis )
+        {
+            return role != Role.DOWN && resources.isAvailable( timeoutMillis );
+        }
+
+        void check()
+        {
+            try
+            {
+                final String available = resources.getText( HA_AVAILABLE_PATH ).trim();
+                ha = true;
+                role = "master".equalsIgnoreCase( available ) ? Role.MASTER : "slave".equalsIgnoreCase( available ) ?
+                        Role.SLAVE : Role.DOWN;
+            }
+            catch ( ResourceException e )
+            {
+                role = isNotFound( e ) && !hasHa() ? Role.STANDALONE : Role.DOWN;
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                log.debug( "Error checking role of " + url, e );
+                role = Role.DOWN;
+            }
+        }
+
+        /**
+         * @return false if the server has no HA endpoints at all, true if it has or if that can't be told
+         */
+        private boolean hasHa()
+        {
+            if ( ha )
+            {
+                return true;
+            }
+            try
+            {
+                resources.getText( HA_PATH );
+                ha = true;
+                return true;
+            }
+            catch ( ResourceException e )
+            {
+                return !isNotFound( e );
+            }
+            catch ( IOException | RuntimeException e )
+            {
+                log.debug( "Error checking HA of " + url, e );
+                return true;
+            }
+        }
+
+        private static boolean isNotFound( ResourceException e )
+        {
+            return Status.CLIENT_ERROR_NOT_FOUND.equals( e.getStatus() );
+        }
+
+        void close()
+        {
+            resources.close();
+        }
+
+        @Override
+        public String toString()
+        {
+            return url + " " + role;
+        }
+    }
+
+    private final Clusters clusters;
+    private final String key;
+    private final List<Member> members;
+    private final boolean leastRequests;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long checkInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private int users;
+    private boolean closed;
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param clusters the registry the cluster is removed from when it is closed, under the given key
+     * @param leastRequests true to pick the slave with the fewest active requests, false for round robin
+     * @param checkInterval milliseconds between checks of the roles, 0 to only check them after failures
+     */
+    Cluster( Clusters clusters, String key, List<Member> members, boolean leastRequests,
+             ScheduledExecutorService scheduler, Executor executor, long checkInterval )
+    {
+        this.clusters = clusters;
+        this.key = key;
+        this.members = members;
+        this.leastRequests = leastRequests;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.checkInterval = checkInterval;
+    }
+
+    public List<Member> getMembers()
+    {
+        return Collections.unmodifiableList( members );
+    }
+
+    /**
+     * @return false if the cluster was already closed and can't be used anymore
+     */
+    synchronized boolean acquire()
+    {
+        if ( closed )
+        {
+            return false;
+        }
+        users++;
+        if ( timer == null && checkInterval > 0 )
+        {
+            timer = scheduler.scheduleWithFixedDelay( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    checkLater();
+                }
+            }, checkInterval, checkInterval, TimeUnit.MILLISECONDS );
+        }
+        return true;
+    }
+
+    /**
+     * Releases one user of the cluster, it is closed and removed from the registry when the last user is gone.
+     */
+    void release()
+    {
+        synchronized ( this )
+        {
+            if ( --users > 0 )
+            {
+                return;
+            }
+            closed = true;
+            if ( timer != null )
+            {
+                timer.cancel( false );
+                timer = null;
+            }
+        }
+        clusters.remove( key, this );
+        close();
+    }
+
+    synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Reads the roles of all servers.
+     */
+    public void check()
+    {
+        for ( Member member : members )
+        {
+            member.check();
+        }
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "Roles of " + this );
+        }
+    }
+
+    /**
+     * Reads the roles on the executor, unless that is already being done.
+     */
+    void checkLater()
+    {
+        if ( isClosed() || !checking.compareAndSet( false, true ) )
+        {
+            return;
+        }
+        executor.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    check();
+                }
+                finally
+                {
+                    checking.set( false );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Marks the server as down after a connection failed to reach it and rechecks the roles of all servers.
+     */
+    void failed( Member member )
+    {
+        member.role = Role.DOWN;
+        checkLater();
+    }
+
+    /**
+     * @return the master, or the first standalone server if there is none, null if no server can take writes
+     */
+    public Member getWriter()
+    {
+        Member standalone = null;
+        for ( Member member : members )
+        {
+            if ( member.role == Role.MASTER )
+            {
+                return member;
+            }
+            if ( member.role == Role.STANDALONE && standalone == null )
+            {
+                standalone = member;
+            }
+        }
+        return standalone;
+    }
+
+    /**
+     * @return a slave, another standalone server than the writer, or the writer if there is neither
+     */
+    public Member getReader()
+    {
+        final Member writer = getWriter();
+        final List<Member> candidates = new ArrayList<>( members.size() );
+        for ( Member member : members )
+        {
+            if ( member.role == Role.SLAVE )
+            {
+                candidates.add( member );
+            }
+        }
+        if ( candidates.isEmpty() )
+        {
+            for ( Member member : members )
+            {
+                if ( member.role == Role.STANDALONE && member != writer )
+                {
+                    candidates.add( member );
+                }
+            }
+        }
+        return candidates.isEmpty() ? writer : choose( candidates );
+    }
+
+    /**
+     * Round robin, or the candidate with the fewest active requests starting from the round robin position.
+     */
+    private Member choose( List<Member> candidates )
+    {
+        final int size = candidates.size();
+        final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+        if ( !leastRequests || size == 1 )
+        {
+            return candidates.get( start );
+        }
+        Member best = null;
+        int fewest = Integer.MAX_VALUE;
+        for ( int i = 0; i < size; i++ )
+        {
+            final Member member = candidates.get( (start + i) % size );
+            final int active = member.getActiveRequests();
+            if ( active < fewest )
+            {
+                best = member;
+                fewest = active;
+            }
+        }
+        return best;
+    }
+
+    void close()
+    {
+        for ( Member member : members )
+        {
+            member.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Cluster " + members;
+    }
+}
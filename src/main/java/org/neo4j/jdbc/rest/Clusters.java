@@ -0,0 +1,150 @@
+package org.neo4j.jdbc.rest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Driver wide registry of the HA clusters of multi-host URLs, keyed by the server URLs and user. The routing settings
+ * are taken from the properties of the first connection to a cluster. A cluster is removed and its resources are
+ * released when its last connection is closed.
+ */
+public class Clusters
+{
+    public static final String HA_CHECK_INTERVAL = "haCheckInterval";
+    public static final String LOAD_BALANCING = "loadBalancing";
+    public static final String LEAST_REQUESTS = "leastRequests";
+    public static final String ROUND_ROBIN = "roundRobin";
+
+    public static final long DEFAULT_CHECK_INTERVAL = 5 * 1000;
+
+    public interface ResourcesFactory
+    {
+        Resources create( String url ) throws SQLException;
+    }
+
+    private final ConcurrentMap<String, Cluster> clusters = new ConcurrentHashMap<>();
+
+    /**
+     * @return the URLs of the servers of a multi-host URL like http://a:7474,b:7474/, or the URL itself
+     */
+    public static List<String> split( String url )
+    {
+        final int hostStart = url.indexOf( "://" ) + 3;
+        int hostEnd = hostStart;
+        while ( hostEnd < url.length() && url.charAt( hostEnd ) != '/' && url.charAt( hostEnd ) != '?' )
+        {
+            hostEnd++;
+        }
+        final String hosts = url.substring( hostStart, hostEnd );
+        if ( hostStart < 3 || !hosts.contains( "," ) )
+        {
+            return Collections.singletonList( url );
+        }
+        final List<String> urls = new ArrayList<>();
+        for ( String host : hosts.split( "," ) )
+        {
+            if ( !host.trim().isEmpty() )
+            {
+                urls.add( url.substring( 0, hostStart ) + host.trim() + url.substring( hostEnd ) );
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * @return the cluster of the servers, created and checked on first use
+     */
+    public Cluster acquire( List<String> urls, String user, Properties properties, ResourcesFactory factory,
+                            ScheduledExecutorService scheduler, Executor executor ) throws SQLException
+    {
+        final String key = urls + (user == null ? "" : "|" + user);
+        while ( true )
+        {
+            Cluster cluster = clusters.get( key );
+            if ( cluster == null )
+            {
+                final Cluster created = createCluster( key, urls, properties, factory, scheduler, executor );
+                cluster = clusters.putIfAbsent( key, created );
+                if ( cluster == null )
+                {
+                    cluster = created;
+                }
+                else
+                {
+                    created.close();
+                }
+            }
+            if ( cluster.acquire() )
+            {
+                return cluster;
+            }
+            clusters.remove( key, cluster ); // closed by its last user meanwhile
+        }
+    }
+
+    void remove( String key, Cluster cluster )
+    {
+        clusters.remove( key, cluster );
+    }
+
+    public Collection<Cluster> getClusters()
+    {
+        return Collections.unmodifiableCollection( clusters.values() );
+    }
+
+    private Cluster createCluster( String key, List<String> urls, Properties properties, ResourcesFactory factory,
+                                   ScheduledExecutorService scheduler, Executor executor ) throws SQLException
+    {
+        final String balancing = properties.getProperty( LOAD_BALANCING, LEAST_REQUESTS ).trim();
+        if ( !LEAST_REQUESTS.equals( balancing ) && !ROUND_ROBIN.equals( balancing ) )
+        {
+            throw new SQLException( "Invalid value for property " + LOAD_BALANCING + ": " + balancing );
+        }
+        final long checkInterval = longProperty( properties, HA_CHECK_INTERVAL, DEFAULT_CHECK_INTERVAL );
+        final List<Cluster.Member> members = new ArrayList<>( urls.size() );
+        try
+        {
+            for ( String url : urls )
+            {
+                members.add( new Cluster.Member( url, factory.create( url ) ) );
+            }
+        }
+        catch ( SQLException e )
+        {
+            for ( Cluster.Member member : members )
+            {
+                member.close();
+            }
+            throw e;
+        }
+        final Cluster cluster = new Cluster( this, key, members, LEAST_REQUESTS.equals( balancing ), scheduler,
+                executor, checkInterval );
+        cluster.check();
+        return cluster;
+    }
+
+    private static long longProperty( Properties properties, String name, long defaultValue ) throws SQLException
+    {
+        final String value = properties.getProperty( name );
+        if ( value == null )
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new SQLException( "Invalid value for property " + name + ": " + value, e );
+        }
+    }
+}
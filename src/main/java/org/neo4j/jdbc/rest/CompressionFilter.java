@@ -0,0 +1,251 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Encoding;
+import org.restlet.data.Preference;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StreamRepresentation;
+import org.restlet.routing.Filter;
+
+/**
+ * Negotiates gzip/deflate compressed responses and decompresses them transparently, request bodies above a threshold
+ * are sent gzip compressed. The compressed and uncompressed sizes of the bodies are accounted on the transport.
+ */
+class CompressionFilter extends Filter
+{
+    private final Transport transport;
+    private final long requestThreshold;
+
+    /**
+     * @param requestThreshold minimum size of request bodies that are compressed, -1 to never compress requests
+     */
+    CompressionFilter( Context context, Restlet next, Transport transport, long requestThreshold )
+    {
+        super( context, next );
+        this.transport = transport;
+        this.requestThreshold = requestThreshold;
+    }
+
+    @Override
+    protected int beforeHandle( Request request, Response response )
+    {
+        final List<Preference<Encoding>> encodings = request.getClientInfo().getAcceptedEncodings();
+        accept( encodings, Encoding.GZIP );
+        accept( encodings, Encoding.DEFLATE );
+        final Representation entity = request.getEntity();
+        if ( entity != null && requestThreshold >= 0 && sizeOf( entity ) >= requestThreshold )
+        {
+            request.setEntity( new CompressingRepresentation( entity ) );
+        }
+        return CONTINUE;
+    }
+
+    private void accept( List<Preference<Encoding>> encodings, Encoding encoding )
+    {
+        for ( Preference<Encoding> preference : encodings )
+        {
+            if ( encoding.equals( preference.getMetadata() ) )
+            {
+                return;
+            }
+        }
+        encodings.add( new Preference<Encoding>( encoding ) );
+    }
+
+    private long sizeOf( Representation entity )
+    {
+        if ( entity.getSize() != Representation.UNKNOWN_SIZE )
+        {
+            return entity.getSize();
+        }
+        if ( entity instanceof StatementRepresentation )
+        {
+            return ((StatementRepresentation) entity).estimateSize();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    protected void afterHandle( Request request, Response response )
+    {
+        final Representation entity = response.getEntity();
+        if ( entity == null )
+        {
+            return;
+        }
+        final List<Encoding> encodings = entity.getEncodings();
+        if ( encodings.contains( Encoding.GZIP ) || encodings.contains( Encoding.DEFLATE ) )
+        {
+            response.setEntity( new DecompressingRepresentation( entity, encodings.contains( Encoding.GZIP ) ) );
+        }
+    }
+
+    private class CompressingRepresentation extends OutputRepresentation
+    {
+        private final Representation entity;
+
+        CompressingRepresentation( Representation entity )
+        {
+            super( entity.getMediaType() );
+            setCharacterSet( entity.getCharacterSet() );
+            getEncodings().add( Encoding.GZIP );
+            this.entity = entity;
+        }
+
+        @Override
+        public void write( OutputStream outputStream ) throws IOException
+        {
+            final CountingOutputStream wire = new CountingOutputStream( outputStream );
+            final GZIPOutputStream gzip = new GZIPOutputStream( wire, 8192 );
+            final CountingOutputStream plain = new CountingOutputStream( gzip );
+            entity.write( plain );
+            gzip.finish();
+            gzip.flush();
+            transport.addSentBytes( wire.count, plain.count );
+        }
+
+        @Override
+        public void release()
+        {
+            entity.release();
+            super.release();
+        }
+    }
+
+    private class DecompressingRepresentation extends StreamRepresentation
+    {
+        private final Representation entity;
+        private final boolean gzip;
+
+        DecompressingRepresentation( Representation entity, boolean gzip )
+        {
+            super( entity.getMediaType() );
+            setCharacterSet( entity.getCharacterSet() );
+            setSize( UNKNOWN_SIZE );
+            this.entity = entity;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public InputStream getStream() throws IOException
+        {
+            final InputStream wire = new CountingInputStream( entity.getStream(), transport.receivedWireBytes() );
+            final InputStream decompressed = gzip ? new GZIPInputStream( wire, 8192 ) : new InflaterInputStream(
+                    wire );
+            return new CountingInputStream( decompressed, transport.receivedDecodedBytes() );
+        }
+
+        @Override
+        public void write( OutputStream outputStream ) throws IOException
+        {
+            try (InputStream in = getStream())
+            {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ( (read = in.read( buffer )) != -1 )
+                {
+                    outputStream.write( buffer, 0, read );
+                }
+            }
+        }
+
+        @Override
+        public boolean isAvailable()
+        {
+            return entity.isAvailable();
+        }
+
+        @Override
+        public void release()
+        {
+            entity.release();
+            super.release();
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        long count;
+
+        CountingOutputStream( OutputStream out )
+        {
+            super( out );
+        }
+
+        @Override
+        public void write( int b ) throws IOException
+        {
+            out.write( b );
+            count++;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException
+        {
+            out.write( b, off, len );
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush(); // the underlying stream is owned by the caller
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream
+    {
+        private final AtomicLong counter;
+
+        CountingInputStream( InputStream in, AtomicLong counter )
+        {
+            super( in );
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            final int b = in.read();
+            if ( b != -1 )
+            {
+                counter.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException
+        {
+            final int read = in.read( b, off, len );
+            if ( read > 0 )
+            {
+                counter.addAndGet( read );
+            }
+            return read;
+        }
+
+        @Override
+        public long skip( long n ) throws IOException
+        {
+            final long skipped = in.skip( n );
+            counter.addAndGet( skipped );
+            return skipped;
+        }
+    }
+}
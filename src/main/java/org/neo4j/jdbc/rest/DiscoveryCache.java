@@ -0,0 +1,190 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.neo4j.jdbc.util.DaemonThreadFactory;
+
+/**
+ * Driver wide cache of the discovery information of Neo4j servers, keyed by server URL and credentials.
+ * Entries older than half of their time-to-live are served from the cache while being refreshed in the background,
+ * expired entries are reloaded synchronously, once per key: concurrent callers wait for the same load. A failed load
+ * is not cached. A time-to-live of zero disables caching.
+ */
+public class DiscoveryCache
+{
+    protected final static Log log = LogFactory.getLog( DiscoveryCache.class );
+    public static final long DEFAULT_TTL = 60 * 1000;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile ExecutorService refresher;
+
+    /**
+     * @param key identifies the server and credentials, it shouldn't contain the password in plain text
+     */
+    public DiscoveryInfo get( final String key, long ttl, final Callable<DiscoveryInfo> loader ) throws IOException
+    {
+        if ( ttl <= 0 )
+        {
+            return load( loader );
+        }
+        while ( true )
+        {
+            final long now = System.currentTimeMillis();
+            final Entry entry = entries.get( key );
+            if ( entry == null || entry.isExpired( now, ttl ) )
+            {
+                final Entry created = new Entry( loader );
+                if ( entry == null ? entries.putIfAbsent( key, created ) != null : !entries.replace( key, entry,
+                        created ) )
+                {
+                    continue; // another caller is loading it
+                }
+                created.info.run();
+                return await( key, created );
+            }
+            final DiscoveryInfo info = await( key, entry );
+            if ( now - entry.loaded >= ttl / 2 && entry.refreshing.compareAndSet( false, true ) )
+            {
+                refresh( key, entry, loader );
+            }
+            return info;
+        }
+    }
+
+    private void refresh( final String key, final Entry entry, Callable<DiscoveryInfo> loader )
+    {
+        final Entry refreshed = new Entry( loader );
+        refresher().execute( new Runnable()
+        {
+            public void run()
+            {
+                refreshed.info.run();
+                try
+                {
+                    refreshed.info.get();
+                    entries.replace( key, entry, refreshed );
+                }
+                catch ( InterruptedException | ExecutionException e )
+                {
+                    log.debug( "Error refreshing discovery information, dropping cached entry " + e.getMessage() );
+                    entries.remove( key, entry );
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return the information of the entry once it is loaded, a failed entry is removed
+     */
+    private DiscoveryInfo await( String key, Entry entry ) throws IOException
+    {
+        try
+        {
+            return entry.info.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for discovery" );
+        }
+        catch ( ExecutionException e )
+        {
+            entries.remove( key, entry );
+            final Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IOException( "Error during discovery", cause );
+        }
+    }
+
+    public void invalidate( String key )
+    {
+        entries.remove( key );
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    private DiscoveryInfo load( Callable<DiscoveryInfo> loader ) throws IOException
+    {
+        try
+        {
+            return loader.call();
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new IOException( "Error during discovery", e );
+        }
+    }
+
+    private ExecutorService refresher()
+    {
+        if ( refresher == null )
+        {
+            synchronized ( this )
+            {
+                if ( refresher == null )
+                {
+                    refresher = Executors.newSingleThreadExecutor( new DaemonThreadFactory( "neo4j-jdbc-discovery" ) );
+                }
+            }
+        }
+        return refresher;
+    }
+
+    private static class Entry
+    {
+        final FutureTask<DiscoveryInfo> info;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long loaded;
+
+        Entry( final Callable<DiscoveryInfo> loader )
+        {
+            this.info = new FutureTask<>( new Callable<DiscoveryInfo>()
+            {
+                public DiscoveryInfo call() throws Exception
+                {
+                    final DiscoveryInfo result = loader.call();
+                    loaded = System.currentTimeMillis();
+                    return result;
+                }
+            } );
+        }
+
+        /**
+         * An entry that is still loading is not expired.
+         */
+        boolean isExpired( long now, long ttl )
+        {
+            return info.isDone() && now - loaded >= ttl;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.neo4j.jdbc.rest;
+
+/**
+ * Immutable result of the discovery of a Neo4j server, i.e. the version and the URIs of the endpoints the driver uses.
+ */
+public class DiscoveryInfo
+{
+    private final String version;
+    private final String dataUri;
+    private final String cypherPath;
+    private final String transactionPath;
+    private final String labelPath;
+    private final String relationshipTypesPath;
+    private final String propertyKeysPath;
+
+    public DiscoveryInfo( String version, String dataUri, String cypherPath, String transactionPath, String labelPath,
+                          String relationshipTypesPath, String propertyKeysPath )
+    {
+        this.version = version;
+        this.dataUri = dataUri;
+        this.cypherPath = cypherPath;
+        this.transactionPath = transactionPath;
+        this.labelPath = labelPath;
+        this.relationshipTypesPath = relationshipTypesPath;
+        this.propertyKeysPath = propertyKeysPath;
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    public String getDataUri()
+    {
+        return dataUri;
+    }
+
+    public String getCypherPath()
+    {
+        return cypherPath;
+    }
+
+    public String getTransactionPath()
+    {
+        return transactionPath;
+    }
+
+    public String getLabelPath()
+    {
+        return labelPath;
+    }
+
+    public String getRelationshipTypesPath()
+    {
+        return relationshipTypesPath;
+    }
+
+    public String getPropertyKeysPath()
+    {
+        return propertyKeysPath;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Neo4j " + version + " data: " + dataUri + " transaction: " + transactionPath + " cypher: " + cypherPath;
+    }
+}
@@ -0,0 +1,195 @@
+package org.neo4j.jdbc.rest;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.restlet.representation.Representation;
+
+/**
+ * Tracks the request of an executor from sending it until its response has been read, so that it can be aborted
+ * from another thread. Aborting releases the response, which closes its connection, a response that arrives after
+ * the request has been cancelled is released right away.
+ */
+class InFlightRequest
+{
+    static final String CANCELLED_STATE = "57014";
+
+    private volatile boolean active;
+    private volatile boolean cancelled;
+    private volatile Representation response;
+    private volatile FutureTask<Representation> sending;
+
+    void start()
+    {
+        cancelled = false;
+        response = null;
+        active = true;
+    }
+
+    /**
+     * Starts the next request of the same statement, a cancel received since the previous request applies to it.
+     *
+     * @throws SQLException if the statement was cancelled
+     */
+    void resume() throws SQLException
+    {
+        response = null;
+        active = true;
+        if ( cancelled )
+        {
+            active = false;
+            throw cancelledException();
+        }
+    }
+
+    /**
+     * Sends the request from the executor while the calling thread waits for its response, so that cancelling
+     * releases the waiting thread even though the request itself can't be aborted. A request started this way is
+     * not reused for later requests, as its response may still arrive after it has been cancelled.
+     *
+     * @return the response entity
+     * @throws SQLException if the request was cancelled while waiting for the response
+     */
+    Representation send( Executor executor, final Callable<Representation> request ) throws Exception
+    {
+        final FutureTask<Representation> task = new FutureTask<>( new Callable<Representation>()
+        {
+            @Override
+            public Representation call() throws Exception
+            {
+                return received( request.call() );
+            }
+        } );
+        sending = task;
+        if ( cancelled )
+        {
+            throw cancelledException();
+        }
+        executor.execute( task );
+        try
+        {
+            return task.get();
+        }
+        catch ( CancellationException e )
+        {
+            throw cancelledException();
+        }
+        catch ( InterruptedException e )
+        {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw cancelledException();
+        }
+        catch ( ExecutionException e )
+        {
+            failed();
+            if ( e.getCause() instanceof Exception )
+            {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the response entity
+     * @throws SQLException if the request was cancelled while waiting for the response
+     */
+    Representation received( Representation entity ) throws SQLException
+    {
+        response = entity;
+        if ( cancelled )
+        {
+            finish( entity );
+            throw cancelledException();
+        }
+        return entity;
+    }
+
+    private static SQLException cancelledException()
+    {
+        return new SQLException( "Statement cancelled", CANCELLED_STATE );
+    }
+
+    /**
+     * Releases the response, the request is done unless a later request has been started in the meantime.
+     */
+    void finish( Representation entity )
+    {
+        if ( response == entity )
+        {
+            response = null;
+            active = false;
+        }
+        entity.release();
+    }
+
+    /**
+     * Releases the response of a request that is followed by another request of the same statement, the statement
+     * stays in flight in between.
+     */
+    void proceed( Representation entity )
+    {
+        if ( response == entity )
+        {
+            response = null;
+        }
+        entity.release();
+    }
+
+    /**
+     * The request failed without a response.
+     */
+    void failed()
+    {
+        active = false;
+    }
+
+    /**
+     * @return true if a request was in flight
+     */
+    boolean cancel()
+    {
+        if ( !active )
+        {
+            return false;
+        }
+        cancelled = true;
+        final FutureTask<Representation> task = sending;
+        if ( task != null )
+        {
+            task.cancel( false );
+        }
+        final Representation entity = response;
+        if ( entity != null )
+        {
+            entity.release();
+        }
+        return true;
+    }
+
+    /**
+     * @return an AutoCloseable that closes the stream of the given response and finishes the request
+     */
+    AutoCloseable closing( final AutoCloseable stream, final Representation entity )
+    {
+        return new AutoCloseable()
+        {
+            public void close() throws Exception
+            {
+                try
+                {
+                    stream.close();
+                }
+                finally
+                {
+                    finish( entity );
+                }
+            }
+        };
+    }
+}
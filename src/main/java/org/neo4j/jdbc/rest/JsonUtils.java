@@ -1,8 +1,11 @@
 package org.neo4j.jdbc.rest;
 
+import java.io.IOException;
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.util.Map;
 
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
@@ -154,4 +157,175 @@ public class JsonUtils
         }
         return array;
     }
+
+    /**
+     * Streaming counterpart of {@link #serialize(Map, ObjectMapper)}, writes the parameters as JSON object without
+     * building an intermediate tree.
+     */
+    static void write( JsonGenerator generator, Map<String, Object> parameters ) throws IOException
+    {
+        generator.writeStartObject();
+        for ( Map.Entry<String, Object> entry : parameters.entrySet() )
+        {
+            generator.writeFieldName( entry.getKey() );
+            write( generator, entry.getValue() );
+        }
+        generator.writeEndObject();
+    }
+
+    static void write( JsonGenerator generator, Object value ) throws IOException
+    {
+        if ( value == null )
+        {
+            generator.writeNull();
+        }
+        else if ( value instanceof String )
+        {
+            generator.writeString( value.toString() );
+        }
+        else if ( value instanceof Integer )
+        {
+            generator.writeNumber( (Integer) value );
+        }
+        else if ( value instanceof Long )
+        {
+            generator.writeNumber( (Long) value );
+        }
+        else if ( value instanceof Boolean )
+        {
+            generator.writeBoolean( (Boolean) value );
+        }
+        else if ( value instanceof BigDecimal )
+        {
+            generator.writeNumber( (BigDecimal) value );
+        }
+        else if ( value instanceof Double )
+        {
+            generator.writeNumber( (Double) value );
+        }
+        else if ( value instanceof byte[] )
+        {
+            generator.writeBinary( (byte[]) value );
+        }
+        else if ( value instanceof Float )
+        {
+            generator.writeNumber( (Float) value );
+        }
+        else if ( value instanceof Number )
+        {
+            final Number number = (Number) value;
+            if ( number.longValue() == number.doubleValue() )
+            {
+                generator.writeNumber( number.longValue() );
+            }
+            else
+            {
+                generator.writeNumber( number.doubleValue() );
+            }
+        }
+        else if ( value instanceof Map )
+        {
+            write( generator, (Map<String, Object>) value );
+        }
+        else if ( value instanceof Iterable )
+        {
+            generator.writeStartArray();
+            for ( Object element : (Iterable) value )
+            {
+                write( generator, element );
+            }
+            generator.writeEndArray();
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Could not serialize value " + value );
+        }
+    }
+
+    /**
+     * Checks up front that the value can be written by {@link #write(JsonGenerator, Object)}, as failures while
+     * streaming the request body would only surface as a communication error.
+     */
+    static void checkSerializable( String name, Object value )
+    {
+        if ( value == null || value instanceof String || value instanceof Number || value instanceof Boolean ||
+                value instanceof byte[] )
+        {
+            return;
+        }
+        if ( value instanceof Map )
+        {
+            for ( Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet() )
+            {
+                checkSerializable( entry.getKey(), entry.getValue() );
+            }
+        }
+        else if ( value instanceof Iterable )
+        {
+            for ( Object element : (Iterable) value )
+            {
+                checkSerializable( name, element );
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Could not serialize value " + name + " " + value );
+        }
+    }
+
+    /**
+     * @return a rough estimate of the size of the value serialized as JSON, without actually serializing it
+     */
+    public static long estimateSize( Object value )
+    {
+        if ( value == null )
+        {
+            return 4;
+        }
+        if ( value instanceof String )
+        {
+            return ((String) value).length() + 2;
+        }
+        if ( value instanceof Number )
+        {
+            return 12;
+        }
+        if ( value instanceof Boolean )
+        {
+            return 5;
+        }
+        if ( value instanceof Map )
+        {
+            long size = 2;
+            for ( Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet() )
+            {
+                size += String.valueOf( entry.getKey() ).length() + 4 + estimateSize( entry.getValue() );
+            }
+            return size;
+        }
+        if ( value instanceof Iterable )
+        {
+            long size = 2;
+            for ( Object element : (Iterable<?>) value )
+            {
+                size += estimateSize( element ) + 1;
+            }
+            return size;
+        }
+        if ( value instanceof byte[] )
+        {
+            return ((byte[]) value).length * 4L + 2;
+        }
+        if ( value.getClass().isArray() )
+        {
+            long size = 2;
+            final int length = Array.getLength( value );
+            for ( int i = 0; i < length; i++ )
+            {
+                size += estimateSize( Array.get( value, i ) ) + 1;
+            }
+            return size;
+        }
+        return String.valueOf( value ).length() + 2;
+    }
 }
@@ -0,0 +1,119 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Keeps the bytes read through it, from a position that is moved forward by the reader, so that the raw bytes of
+ * already parsed JSON values can be copied out by their stream offsets.
+ */
+class RecordingInputStream extends FilterInputStream
+{
+    private byte[] buffer = new byte[16 * 1024];
+    private long bufferStart; // stream offset of buffer[0]
+    private int count;
+    private long retainFrom;
+
+    RecordingInputStream( InputStream in )
+    {
+        super( in );
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        final int b = in.read();
+        if ( b != -1 )
+        {
+            ensureCapacity( 1 );
+            buffer[count++] = (byte) b;
+        }
+        return b;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException
+    {
+        final int read = in.read( b, off, len );
+        if ( read > 0 )
+        {
+            ensureCapacity( read );
+            System.arraycopy( b, off, buffer, count, read );
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException
+    {
+        final byte[] skipped = new byte[(int) Math.min( n, 8192 )];
+        final int read = read( skipped, 0, skipped.length );
+        return Math.max( read, 0 );
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Allows to drop the bytes before the given stream offset, they are not going to be copied anymore.
+     */
+    void discardBefore( long offset )
+    {
+        retainFrom = Math.max( retainFrom, Math.min( offset, bufferStart + count ) );
+    }
+
+    /**
+     * @return the offset of the first recorded byte from the given offset on that is neither whitespace nor a comma
+     */
+    long skipSeparators( long from )
+    {
+        long offset = from;
+        while ( offset < bufferStart + count )
+        {
+            final byte b = buffer[(int) (offset - bufferStart)];
+            if ( b != ',' && b != ' ' && b != '\t' && b != '\r' && b != '\n' )
+            {
+                break;
+            }
+            offset++;
+        }
+        return offset;
+    }
+
+    /**
+     * Copies the recorded bytes starting at the given stream offset.
+     */
+    void copy( long from, byte[] target, int length )
+    {
+        if ( from < retainFrom || from + length > bufferStart + count )
+        {
+            throw new IllegalStateException( "Bytes " + from + " to " + (from + length) + " are not recorded" );
+        }
+        System.arraycopy( buffer, (int) (from - bufferStart), target, 0, length );
+    }
+
+    private void ensureCapacity( int length )
+    {
+        if ( count + length <= buffer.length )
+        {
+            return;
+        }
+        final int discarded = (int) (retainFrom - bufferStart);
+        if ( discarded > 0 )
+        {
+            System.arraycopy( buffer, discarded, buffer, 0, count - discarded );
+            count -= discarded;
+            bufferStart = retainFrom;
+        }
+        if ( count + length > buffer.length )
+        {
+            buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, count + length ) );
+        }
+    }
+}
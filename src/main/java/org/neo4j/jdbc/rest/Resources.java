@@ -1,21 +1,25 @@
 package org.neo4j.jdbc.rest;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.node.ObjectNode;
 import org.codehaus.jackson.type.TypeReference;
 import org.restlet.Client;
 import org.restlet.Context;
+import org.restlet.Restlet;
 import org.restlet.data.ChallengeScheme;
 import org.restlet.data.CharacterSet;
 import org.restlet.data.ClientInfo;
@@ -29,6 +33,7 @@ import org.restlet.representation.Variant;
 import org.restlet.resource.ClientResource;
 import org.restlet.util.Series;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 
 /**
@@ -37,17 +42,33 @@ import static java.util.Arrays.asList;
  */
 public class Resources
 {
-    private final Client client;
+    public static final long DEFAULT_LIVENESS_WINDOW = 10 * 1000;
+
+    private final Transport transport;
+    private Restlet dispatcher;
 
     private static ObjectMapper mapper = new ObjectMapper();
     private final Reference ref;
     private String user;
     private String password;
     private final String userAgent;
+    private DiscoveryCache discoveryCache;
+    private long discoveryTtl;
+    private long livenessWindow = DEFAULT_LIVENESS_WINDOW;
 
     public Resources( String url, Client client, String userAgent )
     {
-        this.client = client;
+        this( url, new Transport( client ), userAgent );
+        transport.acquire();
+    }
+
+    /**
+     * @param transport an already acquired transport, which is released by {@link #close()}
+     */
+    public Resources( String url, Transport transport, String userAgent )
+    {
+        this.transport = transport;
+        this.dispatcher = transport.getDispatcher();
         this.userAgent = userAgent;
         ref = new Reference( new Reference( url ), "/" );
     }
@@ -59,35 +80,35 @@ public class Resources
         clientInfo.setAcceptedCharacterSets( charsetUtf8() );
     }
 
-    static Representation toRepresentation( ObjectNode requestData, ClientResource requestResource )
+    private Context createContext()
     {
-        try
-        {
-            final String jsonString = toString( requestData );
-            final Variant variant = new Variant( MediaType.APPLICATION_JSON );
-            variant.setCharacterSet( CharacterSet.UTF_8 );
-            Representation representation = requestResource.toRepresentation( jsonString, variant );
-            representation.setCharacterSet( CharacterSet.UTF_8 );
-            return representation;
-        } catch (IOException ioe) {
-            throw new RuntimeException( "Cant convert to representation with UTF-8" , ioe);
-        }
+        Context context = new Context();
+        context.setClientDispatcher( dispatcher );
+        return context;
     }
 
-    private static String toString( Object value )
+    public Transport getTransport()
     {
-        if ( value == null )
-        {
-            return null;
-        }
-        return value.toString();
+        return transport;
     }
 
-    private Context createContext()
+    /**
+     * Releases the transport, all resources obtained from here must not be used afterwards.
+     */
+    public void close()
     {
-        Context context = new Context();
-        context.setClientDispatcher( client );
-        return context;
+        transport.release();
+    }
+
+    /**
+     * Accept compressed responses and compress request bodies of at least the given size.
+     *
+     * @param requestThreshold minimum request body size in bytes to compress, -1 to send all requests uncompressed
+     */
+    public void setCompression( long requestThreshold )
+    {
+        this.dispatcher = new CompressionFilter( transport.getDispatcher().getContext(), transport.getDispatcher(),
+                transport, requestThreshold );
     }
 
     public void setAuth( String user, String password )
@@ -96,12 +117,116 @@ public class Resources
         this.password = password;
     }
 
+    public void setDiscoveryCache( DiscoveryCache discoveryCache, long ttl )
+    {
+        this.discoveryCache = discoveryCache;
+        this.discoveryTtl = ttl;
+    }
+
+    /**
+     * @param livenessWindow milliseconds during which a successful response of the server over the transport counts
+     * as proof that it is available, 0 to always probe it
+     */
+    public void setLivenessWindow( long livenessWindow )
+    {
+        this.livenessWindow = livenessWindow;
+    }
+
+    /**
+     * Checks that the server is available, by a recent successful response over the transport or by probing its
+     * root with a HEAD request.
+     *
+     * @param timeoutMillis maximum time to wait for the probe, 0 to wait without limit
+     */
+    public boolean isAvailable( long timeoutMillis )
+    {
+        if ( livenessWindow > 0 && System.currentTimeMillis() - transport.getLastSuccess() < livenessWindow )
+        {
+            return true;
+        }
+        final Context context = createContext();
+        final ClientResource root = withAuth( new ClientResource( context, ref ) );
+        configureClient( context, root.getClientInfo() );
+        return transport.probe( root, timeoutMillis );
+    }
+
+    /**
+     * @return the text of the resource at the given absolute path of the server
+     * @throws org.restlet.resource.ResourceException if the server responded with an error status or can't be
+     * reached
+     */
+    public String getText( String path ) throws IOException
+    {
+        final Context context = createContext();
+        final ClientResource resource = withAuth( new ClientResource( context, new Reference( ref, path )
+                .getTargetRef() ) );
+        try
+        {
+            return resource.get().getText();
+        }
+        finally
+        {
+            resource.release();
+        }
+    }
+
     public DiscoveryClientResource getDiscoveryResource() throws IOException
     {
         DiscoveryClientResource discovery = withAuth( new DiscoveryClientResource( createContext(), ref, userAgent ) );
-        discovery.readInformation();
+        if ( discoveryCache == null )
+        {
+            discovery.readInformation();
+        }
+        else
+        {
+            discovery.info = discoveryCache.get( discoveryKey(), discoveryTtl, new Callable<DiscoveryInfo>()
+            {
+                public DiscoveryInfo call() throws IOException
+                {
+                    DiscoveryClientResource discovery = withAuth( new DiscoveryClientResource( createContext(), ref,
+                            userAgent ) );
+                    discovery.readInformation();
+                    return discovery.info;
+                }
+            } );
+        }
         return discovery;
+    }
 
+    /**
+     * Drops the cached discovery information if the status indicates that it might be stale, i.e. when the resource
+     * was not found or the server could not be reached.
+     */
+    public void invalidateDiscovery( Status status )
+    {
+        if ( discoveryCache != null && status != null &&
+                (status.getCode() == Status.CLIENT_ERROR_NOT_FOUND.getCode() || status.isConnectorError()) )
+        {
+            discoveryCache.invalidate( discoveryKey() );
+        }
+    }
+
+    /**
+     * @return the server URL and user with a hash of the credentials, so that no password is kept in the cache
+     */
+    private String discoveryKey()
+    {
+        if ( user == null && password == null )
+        {
+            return ref.toString();
+        }
+        try
+        {
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+            digest.update( String.valueOf( user ).getBytes( UTF_8 ) );
+            digest.update( (byte) 0 );
+            digest.update( String.valueOf( password ).getBytes( UTF_8 ) );
+            return ref + "|" + user + "|" + new BigInteger( 1, digest.digest() ).toString( 16 );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-256 is not available", e ); // required on every Java platform
+        }
     }
 
     <T extends ClientResource> T withAuth( T resource )
@@ -120,17 +245,17 @@ public class Resources
 
     public ClientResource getCypherResource( String cypherPath )
     {
-        return withAuth( new CypherClientResource( new Context(), cypherPath, mapper, userAgent ) );
+        return withAuth( new CypherClientResource( createContext(), cypherPath, mapper, userAgent ) );
     }
 
     public TransactionClientResource getTransactionResource( String transactionPath )
     {
-        return withAuth( new TransactionClientResource( new Context(), transactionPath, userAgent ) );
+        return withAuth( new TransactionClientResource( createContext(), transactionPath, userAgent ) );
     }
 
     public TransactionClientResource getTransactionResource( Reference transactionPath )
     {
-        return withAuth( new TransactionClientResource( new Context(), transactionPath, userAgent ) );
+        return withAuth( new TransactionClientResource( createContext(), transactionPath, userAgent ) );
     }
 
     public JsonNode readJsonFrom( String uri )
@@ -141,7 +266,7 @@ public class Resources
             ClientResource resource = withAuth( new ClientResource( context, uri ) );
 
             configureClient( context, resource.getClientInfo() );
-            return mapper.readTree( resource.get().getReader() );
+            return mapper.readTree( resource.get().getStream() );
         }
         catch ( IOException ioe )
         {
@@ -188,13 +313,7 @@ public class Resources
 
     public class DiscoveryClientResource extends Neo4jClientResource
     {
-        private String version;
-        private String cypherPath;
-        private String transactionPath;
-        private String dataUri;
-        private String labelPath;
-        private String relationshipTypesPath;
-        private String propertyKeysPath;
+        private DiscoveryInfo info;
 
         public DiscoveryClientResource( Context context, Reference ref, String userAgent )
         {
@@ -204,30 +323,32 @@ public class Resources
 
         public String getVersion()
         {
-            return version;
+            return info.getVersion();
         }
 
         public void readInformation() throws IOException
         {
             // Get service root
-            JsonNode discoveryInfo = mapper.readTree( get().getReader() );
+            JsonNode discoveryInfo = mapper.readTree( get().getStream() );
 
-            dataUri = textField( discoveryInfo, "data" );
+            String dataUri = textField( discoveryInfo, "data" );
 
             JsonNode serverData = readJsonFrom( dataUri );
 
-            version = textField( serverData, "neo4j_version" );
+            String version = textField( serverData, "neo4j_version" );
 
-            cypherPath = obtainCypherPath( serverData );
-            labelPath = serverData.get("node_labels").asText(); // /db/data/labels
-            relationshipTypesPath = serverData.get( "relationship_types" ).asText(); // /db/data/relationship/types
-            propertyKeysPath = dataUri + "propertykeys"; // serverData.get("property_keys").asText(); //
+            String cypherPath = obtainCypherPath( serverData );
+            String labelPath = serverData.get("node_labels").asText(); // /db/data/labels
+            String relationshipTypesPath = serverData.get( "relationship_types" ).asText(); // /db/data/relationship/types
+            String propertyKeysPath = dataUri + "propertykeys"; // serverData.get("property_keys").asText(); //
             // /db/data/relationship/types
-            transactionPath = textField( serverData, "transaction" );
+            String transactionPath = textField( serverData, "transaction" );
             if ( transactionPath == null && (version.startsWith( "2" ) || version.equals( "1.9.M02-1083-g0593b83" )) )
             {
                 transactionPath = dataUri + "transaction";
             }
+            info = new DiscoveryInfo( version, dataUri, cypherPath, transactionPath, labelPath, relationshipTypesPath,
+                    propertyKeysPath );
         }
 
         private String obtainCypherPath( JsonNode serverData )
@@ -250,22 +371,22 @@ public class Resources
 
         public String getCypherPath()
         {
-            return cypherPath;
+            return info.getCypherPath();
         }
 
         public Collection<String> getLabels()
         {
-            return readListFrom( labelPath );
+            return readListFrom( info.getLabelPath() );
         }
 
         public Collection<String> getRelationshipTypes()
         {
-            return readListFrom( relationshipTypesPath );
+            return readListFrom( info.getRelationshipTypesPath() );
         }
 
         public Collection<String> getPropertyKeys()
         {
-            return readListFrom( propertyKeysPath );
+            return readListFrom( info.getPropertyKeysPath() );
         }
 
         private Collection<String> readListFrom( String uri )
@@ -281,9 +402,13 @@ public class Resources
 
         public String getTransactionPath()
         {
-            return transactionPath;
+            return info.getTransactionPath();
         }
 
+        public DiscoveryInfo getInfo()
+        {
+            return info;
+        }
     }
 
 
@@ -303,7 +428,7 @@ public class Resources
         {
             try
             {
-                JsonNode node = mapper.readTree( getResponse().getEntity().getReader() );
+                JsonNode node = mapper.readTree( getResponse().getEntity().getStream() );
                 JsonNode message = node.get( "message" );
                 if ( message != null )
                 {
@@ -1,9 +1,16 @@
 package org.neo4j.jdbc.rest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -17,7 +24,6 @@ import org.restlet.engine.header.Header;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
 import org.restlet.resource.ResourceException;
-import org.restlet.routing.Filter;
 
 import org.neo4j.jdbc.ExecutionResult;
 import org.neo4j.jdbc.QueryExecutor;
@@ -36,19 +42,45 @@ public class RestQueryExecutor implements QueryExecutor
     private ClientResource cypherResource;
     private ObjectMapper mapper = new ObjectMapper();
     private Version version;
+    private final Resources resources;
     private final Resources.DiscoveryClientResource discovery;
+    private volatile InFlightRequest inFlight = new InFlightRequest();
+    private Executor requestExecutor;
 
     public RestQueryExecutor( Resources resources ) throws SQLException
     {
-        try
-        {
-            discovery = resources.getDiscoveryResource();
+        this( resources, discover( resources ) );
+    }
 
-            version = new Version( discovery.getVersion() );
+    public RestQueryExecutor( Resources resources, Resources.DiscoveryClientResource discovery )
+    {
+        this.resources = resources;
+        this.discovery = discovery;
 
-            String cypherPath = discovery.getCypherPath();
+        version = new Version( discovery.getVersion() );
+
+        String cypherPath = discovery.getCypherPath();
+
+        cypherResource = resources.getCypherResource( cypherPath );
+    }
 
-            cypherResource = resources.getCypherResource( cypherPath );
+    /**
+     * The cypher endpoint can't abort a running query. To let cancelled statements return before their response
+     * arrives, the requests are sent from the executor while the statement waits for their response. The server
+     * finishes the cancelled query, its response is then discarded.
+     *
+     * @param requestExecutor the executor to send the requests from, null to send them from the statement's thread
+     */
+    public void setRequestExecutor( Executor requestExecutor )
+    {
+        this.requestExecutor = requestExecutor;
+    }
+
+    private static Resources.DiscoveryClientResource discover( Resources resources ) throws SQLException
+    {
+        try
+        {
+            return resources.getDiscoveryResource();
         }
         catch ( IOException e )
         {
@@ -64,6 +96,8 @@ public class RestQueryExecutor implements QueryExecutor
             throw new SQLException( "Manual commit mode not supported over REST" );
         }
         ClientResource resource = null;
+        final InFlightRequest request = requestExecutor != null ? new InFlightRequest() : inFlight;
+        inFlight = request;
         try
         {
             ObjectNode queryNode = queryParameter( query, parameters );
@@ -71,14 +105,18 @@ public class RestQueryExecutor implements QueryExecutor
             resource = new ClientResource( cypherResource );
             Series<Header> headers = getHeaders( resource );
             headers.add( "X-Stream", "true" );
-            Representation rep = resource.post( queryNode.toString() );
+            request.start();
+            Representation rep = post( request, resource, queryNode.toString() );
             rep.setCharacterSet( new CharacterSet( "UTF-8" ) );
-            JsonNode node = mapper.readTree( rep.getReader() );
-            final ResultParser parser = new ResultParser( node );
+            final InputStream stream = rep.getStream();
+            final ResultParser parser = new ResultParser( mapper.getJsonFactory().createJsonParser( stream ),
+                    request.closing( stream, rep ) );
             return new ExecutionResult( parser.getColumns(), parser.streamData() );
         }
         catch ( ResourceException e )
         {
+            request.failed();
+            resources.invalidateDiscovery( e.getStatus() );
             String msg = extractErrorMessage( resource );
             if ( msg != null )
             {
@@ -96,6 +134,53 @@ public class RestQueryExecutor implements QueryExecutor
         }
     }
 
+    private Representation post( InFlightRequest request, final ClientResource resource, final String query ) throws
+            Exception
+    {
+        if ( requestExecutor == null )
+        {
+            return request.received( resource.post( query ) );
+        }
+        return request.send( requestExecutor, new Callable<Representation>()
+        {
+            @Override
+            public Representation call() throws Exception
+            {
+                return resource.post( query );
+            }
+        } );
+    }
+
+    /**
+     * The cypher endpoint accepts only one query per request and doesn't report statistics, so the queries are
+     * executed one after the other.
+     */
+    @Override
+    public int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters,
+                               boolean autoCommit ) throws Exception
+    {
+        final int[] counts = new int[queries.size()];
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            try
+            {
+                final ExecutionResult result = executeQuery( queries.get( i ), parameters.get( i ), autoCommit );
+                final Iterator<Object[]> rows = result.iterator();
+                while ( rows.hasNext() )
+                {
+                    rows.next();
+                }
+                counts[i] = java.sql.Statement.SUCCESS_NO_INFO;
+            }
+            catch ( SQLException | RuntimeException e )
+            {
+                throw new BatchUpdateException( "Error executing batch statement " + (i + 1) + ": " + e
+                        .getMessage(), Arrays.copyOf( counts, i ), e );
+            }
+        }
+        return counts;
+    }
+
     private Series<Header> getHeaders( ClientResource resource )
     {
         Series<Header> headers = (Series<Header>) resource.getRequestAttributes().get( HEADERS );
@@ -126,7 +211,7 @@ public class RestQueryExecutor implements QueryExecutor
             Representation rep = resp.getEntity();
             rep.setCharacterSet( new CharacterSet( "UTF-8" ) );
 
-            JsonNode node = mapper.readTree( rep.getReader() );
+            JsonNode node = mapper.readTree( rep.getStream() );
             if ( node == null )
             {
                 return null;
@@ -147,7 +232,7 @@ public class RestQueryExecutor implements QueryExecutor
     @Override
     public void stop() throws Exception
     {
-        ((Filter) cypherResource.getNext()).stop();
+        resources.close();
     }
 
     @Override
@@ -185,4 +270,25 @@ public class RestQueryExecutor implements QueryExecutor
     {
         // no op
     }
+
+    @Override
+    public void cancel() throws Exception
+    {
+        inFlight.cancel();
+    }
+
+    @Override
+    public boolean isAvailable( long timeoutMillis )
+    {
+        return resources.isAvailable( timeoutMillis );
+    }
+
+    /**
+     * The cypher endpoint has no open transactions.
+     */
+    @Override
+    public long getTransactionExpiry()
+    {
+        return 0;
+    }
 }
@@ -1,32 +1,58 @@
 package org.neo4j.jdbc.rest;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
 import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import org.neo4j.jdbc.util.ClosableIterator;
 
 /**
+ * Parses the response of the legacy cypher endpoint {"columns":[...],"data":[[...],...]} from a token stream,
+ * rows are converted one at a time while iterating, so the memory use doesn't depend on the number of rows.
+ *
  * @author mh
  * @since 12.06.12
  */
-// TODO Implement support for streaming Cypher here implements Iterator<Map<String,Object>>
 public class ResultParser
 {
 
-    private final JsonNode node;
+    private final JsonParser parser;
+    private final AutoCloseable closeable;
+    private JsonParser dataParser;
+    private boolean closed;
     private List<String> columns;
     private int cols;
-    private final Object[] rowData;
 
     public ResultParser( JsonNode node )
     {
-        this.node = node;
-        this.columns = parseColumns();
+        this( node.traverse(), null );
+    }
+
+    /**
+     * @param closeable released together with the parser, when the rows are exhausted or the iterator is closed
+     */
+    public ResultParser( JsonParser parser, AutoCloseable closeable )
+    {
+        this.parser = parser;
+        this.closeable = closeable;
+        try
+        {
+            this.columns = parseColumns();
+        }
+        catch ( IOException ioe )
+        {
+            close();
+            throw new IllegalStateException( "Error parsing columns", ioe );
+        }
         this.cols = columns.size();
-        rowData = new Object[cols];
     }
 
     public List<String> getColumns()
@@ -34,134 +60,290 @@ public class ResultParser
         return columns;
     }
 
-    public List<String> parseColumns()
+    /**
+     * Reads the top level fields up to the start of the "data" array. The server writes the columns first, if they
+     * come after the data anyway, the data is read as a whole and parsed from the buffered tree.
+     */
+    private List<String> parseColumns() throws IOException
     {
-        List<String> columns = new ArrayList<String>( 20 );
-        for ( JsonNode column : node.get( "columns" ) )
+        if ( parser.nextToken() != JsonToken.START_OBJECT )
+        {
+            throw new IllegalStateException( "Expected result object but got " + parser.getCurrentToken() );
+        }
+        List<String> columns = null;
+        JsonNode bufferedData = null;
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
+        {
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if ( "columns".equals( field ) && token == JsonToken.START_ARRAY )
+            {
+                columns = new ArrayList<String>( 20 );
+                while ( parser.nextToken() != JsonToken.END_ARRAY )
+                {
+                    columns.add( parser.getText() );
+                }
+                if ( bufferedData != null )
+                {
+                    break;
+                }
+            }
+            else if ( "data".equals( field ) && token == JsonToken.START_ARRAY )
+            {
+                if ( columns != null )
+                {
+                    return columns;
+                }
+                bufferedData = parser.readValueAsTree();
+            }
+            else
+            {
+                parser.skipChildren();
+            }
+        }
+        if ( columns == null )
+        {
+            columns = Collections.emptyList();
+        }
+        if ( bufferedData != null )
         {
-            String textValue = column.getTextValue();
-            columns.add( textValue );
+            dataParser = bufferedData.traverse();
+            dataParser.nextToken();
         }
         return columns;
     }
 
-    Iterator<Object[]> streamData()
+    private JsonParser dataParser()
     {
-        final Iterator<JsonNode> rows = node.get( "data" ).iterator();
-        return new Iterator<Object[]>()
+        return dataParser != null ? dataParser : parser;
+    }
+
+    ClosableIterator<Object[]> streamData()
+    {
+        return new ClosableIterator<Object[]>()
         {
+            boolean last = false;
+            Object[] nextRow = null;
+
             public boolean hasNext()
             {
-                return rows.hasNext();
+                if ( last )
+                {
+                    return false;
+                }
+                if ( nextRow == null )
+                {
+                    nextRow = parseRow();
+                    if ( nextRow == null )
+                    {
+                        last = true;
+                        ResultParser.this.close();
+                    }
+                }
+                return nextRow != null;
             }
 
             public Object[] next()
             {
-                return parseRow( rows.next() );
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                final Object[] row = nextRow;
+                nextRow = null;
+                return row;
             }
 
             public void remove()
             {
                 throw new UnsupportedOperationException();
             }
+
+            @Override
+            public void close()
+            {
+                last = true;
+                nextRow = null;
+                ResultParser.this.close();
+            }
         };
     }
 
-    private Object[] parseRow( JsonNode row )
+    private Object[] parseRow()
     {
-        int i = 0;
-        for ( JsonNode cell : row )
+        final JsonParser data = dataParser();
+        try
         {
-            rowData[i++] = toObject( cell );
+            if ( data.isClosed() || data.nextToken() != JsonToken.START_ARRAY )
+            {
+                return null;
+            }
+            final Object[] rowData = new Object[cols];
+            int i = 0;
+            JsonToken token;
+            while ( (token = data.nextToken()) != JsonToken.END_ARRAY )
+            {
+                if ( token == null )
+                {
+                    throw new IllegalStateException( "Unexpected end of input in row" );
+                }
+                final Object value = toObject( data, token );
+                if ( i < cols )
+                {
+                    rowData[i] = value;
+                }
+                i++;
+            }
+            return rowData;
         }
-        for (; i < cols; i++ )
+        catch ( IOException ioe )
         {
-            rowData[i] = null;
+            close();
+            throw new IllegalStateException( "Error during parsing", ioe );
         }
-        return rowData;
     }
 
-    private Object toObject( JsonNode cell )
+    private Object toObject( JsonParser parser, JsonToken token ) throws IOException
     {
-        if ( cell.isObject() )
+        switch ( token )
         {
-            if ( cell.has( "length" ) && cell.has( "nodes" ) && cell.has( "relationships" ) )
-            {
-                return toPath( cell );
-            }
-            Map<String, Object> result = toPropertyContainer( cell );
-            return addRelationshipInfo( cell, result );
+            case START_OBJECT:
+                return toEntity( parser );
+            case START_ARRAY:
+                ArrayList<Object> result = new ArrayList<Object>();
+                while ( (token = parser.nextToken()) != JsonToken.END_ARRAY )
+                {
+                    result.add( toObject( parser, token ) );
+                }
+                return result;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.getText();
         }
-        if ( cell.isArray() )
+    }
+
+    /**
+     * Nodes, relationships and paths are represented by a map with their id(s) and properties, all the hypermedia
+     * fields of the REST representation are skipped without being materialized.
+     */
+    private Object toEntity( JsonParser parser ) throws IOException
+    {
+        String self = null, start = null, end = null, type = null;
+        boolean hasType = false;
+        boolean hasLength = false;
+        List<String> nodes = null, relationships = null;
+        Map<String, Object> data = null;
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
         {
-            ArrayList<Object> result = new ArrayList<Object>( cell.size() );
-            for ( JsonNode node : cell )
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if ( "self".equals( field ) )
+            {
+                self = textOrSkip( parser, token );
+            }
+            else if ( "start".equals( field ) )
+            {
+                start = textOrSkip( parser, token );
+            }
+            else if ( "end".equals( field ) )
+            {
+                end = textOrSkip( parser, token );
+            }
+            else if ( "type".equals( field ) )
+            {
+                hasType = true;
+                type = textOrSkip( parser, token );
+            }
+            else if ( "length".equals( field ) )
+            {
+                hasLength = true;
+                parser.skipChildren();
+            }
+            else if ( "nodes".equals( field ) && token == JsonToken.START_ARRAY )
+            {
+                nodes = readTexts( parser );
+            }
+            else if ( "relationships".equals( field ) && token == JsonToken.START_ARRAY )
+            {
+                relationships = readTexts( parser );
+            }
+            else if ( "data".equals( field ) && token == JsonToken.START_OBJECT )
+            {
+                data = new TreeMap<String, Object>();
+                while ( parser.nextToken() == JsonToken.FIELD_NAME )
+                {
+                    final String name = parser.getCurrentName();
+                    data.put( name, toObject( parser, parser.nextToken() ) );
+                }
+            }
+            else
             {
-                result.add( toObject( node ) );
+                parser.skipChildren();
             }
-            return result;
         }
-        if ( cell.isTextual() )
+        if ( hasLength && nodes != null && relationships != null )
         {
-            return cell.getTextValue();
+            return toPath( nodes, relationships );
         }
-        if ( cell.isBoolean() )
+        Map<String, Object> result = new TreeMap<String, Object>();
+        result.put( hasType ? "_rel_id" : "_node_id", idOf( self ) );
+        if ( data != null )
         {
-            return cell.getBooleanValue();
+            result.putAll( data );
         }
-        if ( cell.isNumber() )
+        if ( start != null )
         {
-            return cell.getNumberValue();
+            result.put( "_start", idOf( start ) );
         }
-        return cell.getTextValue();
-    }
-
-    private Object addRelationshipInfo( JsonNode cell, Map<String, Object> result )
-    {
-        if ( cell.has( "start" ) )
+        if ( end != null )
         {
-            result.put( "_start", idOf( cell.get( "start" ) ) );
+            result.put( "_end", idOf( end ) );
         }
-        if ( cell.has( "end" ) )
+        if ( hasType )
         {
-            result.put( "_end", idOf( cell.get( "end" ) ) );
+            result.put( "_type", type );
         }
-        if ( cell.has( "type" ) )
+        return result;
+    }
+
+    private String textOrSkip( JsonParser parser, JsonToken token ) throws IOException
+    {
+        if ( token == JsonToken.VALUE_STRING )
         {
-            result.put( "_type", cell.get( "type" ).getTextValue() );
+            return parser.getText();
         }
-        return result;
+        parser.skipChildren();
+        return null;
     }
 
-    private Map<String, Object> toPropertyContainer( JsonNode cell )
+    private List<String> readTexts( JsonParser parser ) throws IOException
     {
-        Map<String, Object> result = new TreeMap<String, Object>();
-        String idField = cell.has( "type" ) ? "_rel_id" : "_node_id";
-        result.put( idField, idOf( cell.get( "self" ) ) );
-        JsonNode data = cell.get( "data" );
-        if ( data != null && data.isObject() && data.size() > 0 )
+        List<String> result = new ArrayList<String>();
+        JsonToken token;
+        while ( (token = parser.nextToken()) != JsonToken.END_ARRAY )
         {
-            Iterator<String> fieldNames = data.getFieldNames();
-            while ( fieldNames.hasNext() )
-            {
-                String fieldName = fieldNames.next();
-                result.put( fieldName, toObject( data.get( fieldName ) ) );
-            }
+            result.add( textOrSkip( parser, token ) );
         }
         return result;
     }
 
-    private ArrayList<Object> toPath( JsonNode cell )
+    private ArrayList<Object> toPath( List<String> nodes, List<String> relationships )
     {
-        ArrayList<Object> path = new ArrayList<Object>( cell.get( "length" ).getIntValue() + 1 );
-        Iterator<JsonNode> nodes = cell.get( "nodes" ).iterator();
-        Iterator<JsonNode> relationships = cell.get( "relationships" ).iterator();
-        while ( nodes.hasNext() )
+        ArrayList<Object> path = new ArrayList<Object>( nodes.size() + relationships.size() );
+        for ( int i = 0; i < nodes.size(); i++ )
         {
-            path.add( map( "_node_id", idOf( nodes.next() ) ) );
-            if ( relationships.hasNext() )
+            path.add( map( "_node_id", idOf( nodes.get( i ) ) ) );
+            if ( i < relationships.size() )
             {
-                path.add( map( "_rel_id", idOf( relationships.next() ) ) );
+                path.add( map( "_rel_id", idOf( relationships.get( i ) ) ) );
             }
         }
         return path;
@@ -174,13 +356,8 @@ public class ResultParser
         return result;
     }
 
-    private Long idOf( JsonNode node )
+    private Long idOf( String uri )
     {
-        if ( node == null )
-        {
-            return null;
-        }
-        String uri = node.getTextValue();
         if ( uri == null )
         {
             return null;
@@ -188,4 +365,25 @@ public class ResultParser
         int idx = uri.lastIndexOf( "/" );
         return idx == -1 ? null : Long.valueOf( uri.substring( idx + 1 ) );
     }
+
+    void close()
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            parser.close();
+            if ( closeable != null )
+            {
+                closeable.close();
+            }
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( "Error closing result", e );
+        }
+    }
 }
@@ -0,0 +1,301 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.restlet.resource.ResourceException;
+
+import org.neo4j.jdbc.ExecutionResult;
+import org.neo4j.jdbc.QueryExecutor;
+import org.neo4j.jdbc.Version;
+
+/**
+ * Routes the statements of a connection to the servers of a cluster, read only connections to a slave and others to
+ * the master. A transaction stays on the server it was begun on until it is committed or rolled back, statements in
+ * auto commit mode are routed one by one. The executors of the servers are created when they are first used.
+ * <p/>
+ * When a server can't be reached the cluster rechecks the roles of its servers, a read only statement in auto commit
+ * mode is then retried once on another server.
+ */
+public class RoutingQueryExecutor implements QueryExecutor
+{
+    protected final static Log log = LogFactory.getLog( RoutingQueryExecutor.class );
+
+    public interface ExecutorFactory
+    {
+        QueryExecutor create( String url ) throws SQLException;
+    }
+
+    private final Cluster cluster;
+    private final ExecutorFactory factory;
+    private final ConcurrentMap<Cluster.Member, QueryExecutor> executors = new ConcurrentHashMap<>();
+    private final Version version;
+    private volatile boolean readOnly;
+    private volatile Cluster.Member pinned; // server of the open transaction
+    private volatile QueryExecutor current; // of the statement executed last, for cancel
+
+    /**
+     * @param cluster an acquired cluster, which is released by {@link #stop()} or if the executor can't be created
+     */
+    public RoutingQueryExecutor( Cluster cluster, ExecutorFactory factory ) throws SQLException
+    {
+        this.cluster = cluster;
+        this.factory = factory;
+        try
+        {
+            final Cluster.Member writer = cluster.getWriter();
+            final Cluster.Member member = writer != null ? writer : cluster.getReader();
+            if ( member == null )
+            {
+                throw new SQLTransientConnectionException( "No server available in " + cluster, "08001" );
+            }
+            this.version = executor( member ).getVersion();
+        }
+        catch ( SQLException | RuntimeException e )
+        {
+            cluster.release();
+            throw e;
+        }
+    }
+
+    public Cluster getCluster()
+    {
+        return cluster;
+    }
+
+    /**
+     * @param readOnly true to route the following transactions and statements to slaves
+     */
+    public void setReadOnly( boolean readOnly )
+    {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * @return the server the next statement is executed on
+     */
+    private Cluster.Member route() throws SQLException
+    {
+        final Cluster.Member member = pinned != null ? pinned : readOnly ? cluster.getReader() : cluster.getWriter();
+        if ( member == null )
+        {
+            throw new SQLTransientConnectionException( "No " + (readOnly ? "server" : "master") + " available in " +
+                    cluster, "08001" );
+        }
+        return member;
+    }
+
+    private QueryExecutor executor( Cluster.Member member ) throws SQLException
+    {
+        QueryExecutor executor = executors.get( member );
+        if ( executor == null )
+        {
+            final QueryExecutor created = factory.create( member.getUrl() );
+            executor = executors.putIfAbsent( member, created );
+            if ( executor == null )
+            {
+                executor = created;
+            }
+            else
+            {
+                stopQuietly( created );
+            }
+        }
+        current = executor;
+        return executor;
+    }
+
+    private static void stopQuietly( QueryExecutor executor )
+    {
+        try
+        {
+            executor.stop();
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Error stopping executor", e );
+        }
+    }
+
+    @Override
+    public ExecutionResult executeQuery( String query, Map<String, Object> parameters, boolean autoCommit ) throws
+            Exception
+    {
+        final boolean retry = autoCommit && readOnly && pinned == null;
+        final Cluster.Member member = route();
+        pin( member, autoCommit );
+        try
+        {
+            return executor( member ).executeQuery( query, parameters, autoCommit );
+        }
+        catch ( Exception e )
+        {
+            if ( !failed( member, e ) || !retry )
+            {
+                throw e;
+            }
+        }
+        final Cluster.Member other = route();
+        if ( other == member )
+        {
+            throw new SQLTransientConnectionException( "No other server available in " + cluster, "08001" );
+        }
+        return executor( other ).executeQuery( query, parameters, autoCommit );
+    }
+
+    @Override
+    public int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters, boolean autoCommit ) throws
+            Exception
+    {
+        final Cluster.Member member = route();
+        pin( member, autoCommit );
+        try
+        {
+            return executor( member ).executeBatch( queries, parameters, autoCommit );
+        }
+        catch ( Exception e )
+        {
+            failed( member, e );
+            throw e;
+        }
+    }
+
+    /**
+     * Pins the transaction begun by a statement outside of auto commit mode to its server.
+     */
+    private void pin( Cluster.Member member, boolean autoCommit )
+    {
+        if ( !autoCommit && pinned == null )
+        {
+            pinned = member;
+        }
+    }
+
+    /**
+     * @return true if the server couldn't be reached, it is then reported to the cluster
+     */
+    private boolean failed( Cluster.Member member, Exception e )
+    {
+        if ( !isConnectionFailure( e ) )
+        {
+            return false;
+        }
+        log.debug( "Server " + member.getUrl() + " failed", e );
+        cluster.failed( member );
+        if ( pinned == member )
+        {
+            pinned = null;
+        }
+        return true;
+    }
+
+    private static boolean isConnectionFailure( Throwable e )
+    {
+        for ( Throwable cause = e; cause != null; cause = cause.getCause() )
+        {
+            if ( cause instanceof ResourceException && ((ResourceException) cause).getStatus().isConnectorError() )
+            {
+                return true;
+            }
+            if ( cause instanceof IOException )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void commit() throws Exception
+    {
+        final Cluster.Member member = pinned;
+        if ( member == null )
+        {
+            return;
+        }
+        try
+        {
+            executor( member ).commit();
+        }
+        finally
+        {
+            pinned = null;
+        }
+    }
+
+    @Override
+    public void rollback() throws Exception
+    {
+        final Cluster.Member member = pinned;
+        if ( member == null )
+        {
+            return;
+        }
+        try
+        {
+            executor( member ).rollback();
+        }
+        finally
+        {
+            pinned = null;
+        }
+    }
+
+    @Override
+    public void cancel() throws Exception
+    {
+        final QueryExecutor executor = current;
+        if ( executor != null )
+        {
+            executor.cancel();
+        }
+    }
+
+    @Override
+    public boolean isAvailable( long timeoutMillis )
+    {
+        final Cluster.Member member = pinned != null ? pinned : readOnly ? cluster.getReader() : cluster.getWriter();
+        return member != null && member.isAvailable( timeoutMillis );
+    }
+
+    /**
+     * @return the expiry of the transaction on the server it is pinned to
+     */
+    @Override
+    public long getTransactionExpiry()
+    {
+        final Cluster.Member member = pinned;
+        final QueryExecutor executor = member != null ? executors.get( member ) : null;
+        return executor != null ? executor.getTransactionExpiry() : 0;
+    }
+
+    @Override
+    public void stop() throws Exception
+    {
+        try
+        {
+            for ( QueryExecutor executor : executors.values() )
+            {
+                executor.stop();
+            }
+        }
+        finally
+        {
+            executors.clear();
+            cluster.release();
+        }
+    }
+
+    @Override
+    public Version getVersion()
+    {
+        return version;
+    }
+}
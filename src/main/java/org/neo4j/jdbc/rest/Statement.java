@@ -1,7 +1,9 @@
 package org.neo4j.jdbc.rest;
 
+import java.io.IOException;
 import java.util.Map;
 
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
@@ -14,11 +16,18 @@ public class Statement
 {
     final String query;
     final Map<String, Object> params;
+    final boolean includeStats;
 
     Statement( String query, Map<String, Object> params )
+    {
+        this( query, params, false );
+    }
+
+    Statement( String query, Map<String, Object> params, boolean includeStats )
     {
         this.query = query;
         this.params = params;
+        this.includeStats = includeStats;
     }
 
     public ObjectNode toJson( ObjectMapper mapper )
@@ -29,9 +38,29 @@ public class Statement
         {
             queryNode.put( "parameters", JsonUtils.serialize( params, mapper ) );
         }
+        if ( includeStats )
+        {
+            queryNode.put( "includeStats", true );
+        }
         return queryNode;
     }
 
+    public void writeTo( JsonGenerator generator ) throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeStringField( "statement", escapeQuery( query ) );
+        if ( params != null && !params.isEmpty() )
+        {
+            generator.writeFieldName( "parameters" );
+            JsonUtils.write( generator, params );
+        }
+        if ( includeStats )
+        {
+            generator.writeBooleanField( "includeStats", true );
+        }
+        generator.writeEndObject();
+    }
+
     @Override
     public String toString()
     {
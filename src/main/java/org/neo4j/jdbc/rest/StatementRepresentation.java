@@ -0,0 +1,77 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.MediaType;
+import org.restlet.representation.OutputRepresentation;
+
+/**
+ * Request entity of the transactional endpoint, {"statements":[...]}, that is generated directly into the
+ * outgoing stream. As its size is unknown up front, it is sent with chunked transfer encoding.
+ * The generator takes its output buffer from Jackson's buffer recycler and returns it when done, so no request
+ * body is ever materialized on the heap.
+ */
+class StatementRepresentation extends OutputRepresentation
+{
+    private final JsonFactory factory;
+    private final Statement[] statements;
+
+    StatementRepresentation( JsonFactory factory, Statement... statements )
+    {
+        super( MediaType.APPLICATION_JSON );
+        setCharacterSet( CharacterSet.UTF_8 );
+        this.factory = factory;
+        this.statements = statements == null ? new Statement[0] : statements;
+        for ( Statement statement : this.statements )
+        {
+            if ( statement.params != null )
+            {
+                JsonUtils.checkSerializable( "parameters", statement.params );
+            }
+        }
+    }
+
+    /**
+     * @return the approximate size of the generated request body
+     */
+    long estimateSize()
+    {
+        long size = 16;
+        for ( Statement statement : statements )
+        {
+            size += statement.query.length() + 32;
+            if ( statement.params != null )
+            {
+                size += JsonUtils.estimateSize( statement.params );
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void write( OutputStream outputStream ) throws IOException
+    {
+        final JsonGenerator generator = factory.createJsonGenerator( outputStream, JsonEncoding.UTF8 );
+        generator.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+        try
+        {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart( "statements" );
+            for ( Statement statement : statements )
+            {
+                statement.writeTo( generator );
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        finally
+        {
+            generator.close();
+        }
+    }
+}
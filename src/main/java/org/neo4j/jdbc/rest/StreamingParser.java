@@ -1,12 +1,11 @@
 package org.neo4j.jdbc.rest;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.sql.SQLException;
 import java.sql.SQLTransientConnectionException;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -14,11 +13,13 @@ import java.util.NoSuchElementException;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.impl.Utf8StreamParser;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.restlet.representation.Representation;
 
 import org.neo4j.jdbc.ExecutionResult;
-import org.neo4j.jdbc.util.ClosableIterator;
+import org.neo4j.jdbc.util.TypedRow;
+import org.neo4j.jdbc.util.TypedRowIterator;
 
 /**
  * @author mh
@@ -29,10 +30,33 @@ class StreamingParser
     private final JsonFactory JSON_FACTORY; // todo static?
 
     private final ObjectMapper mapper;
+    private final boolean reuseRows;
+    private final boolean lazyCells;
 
     StreamingParser( ObjectMapper mapper )
+    {
+        this( mapper, false, false );
+    }
+
+    /**
+     * @param reuseRows if true, the row iterators alternate between two row buffers instead of allocating a new
+     *                  array per row. Only safe for consumers that process the rows strictly in order and don't hold
+     *                  on to a row after having advanced past the next one, like IteratorResultSet.
+     */
+    StreamingParser( ObjectMapper mapper, boolean reuseRows )
+    {
+        this( mapper, reuseRows, false );
+    }
+
+    /**
+     * @param lazyCells if true, map and list cells of rows parsed from a UTF-8 byte stream are kept as raw JSON and
+     *                  only decoded when they are accessed
+     */
+    StreamingParser( ObjectMapper mapper, boolean reuseRows, boolean lazyCells )
     {
         this.mapper = mapper;
+        this.reuseRows = reuseRows;
+        this.lazyCells = lazyCells;
         JSON_FACTORY = new JsonFactory( mapper );
     }
 
@@ -40,7 +64,7 @@ class StreamingParser
     {
         try
         {
-            return obtainParser( representation.getReader() );
+            return obtainParser( representation.getStream() );
         }
         catch ( IOException ioe )
         {
@@ -52,6 +76,7 @@ class StreamingParser
     {
         JsonParser parser;
         JsonToken nextToken;
+        String expires; // of the open transaction, read at the end of the response
 
         private ParserState( JsonParser parser )
         {
@@ -96,11 +121,35 @@ class StreamingParser
             }
         }
 
+        public String getText()
+        {
+            try
+            {
+                return parser.getText();
+            }
+            catch ( IOException e )
+            {
+                throw new IllegalStateException( "Error during parse" );
+            }
+        }
+
         public String getCurrentToken()
         {
             return String.valueOf( parser.getCurrentToken() );
         }
 
+        void skipChildren()
+        {
+            try
+            {
+                parser.skipChildren();
+            }
+            catch ( IOException e )
+            {
+                throw new IllegalStateException( "Error during parse" );
+            }
+        }
+
         public <T> T readValueAs( Class<T> type )
         {
             try
@@ -119,6 +168,15 @@ class StreamingParser
         void endReached();
     }
 
+    /**
+     * Receives the expiry of the open transaction that the server reports at the end of a response, after it has
+     * released the transaction.
+     */
+    interface ExpiryCallback
+    {
+        void expires( String expires );
+    }
+
     ExecutionResult nextResult( final ParserState state )
     {
         return nextResult( state, null, null );
@@ -134,26 +192,33 @@ class StreamingParser
         final List<String> columns = readList( state );
         final int cols = columns.size();
         skipTo( state, "nextResult2", "data", JsonToken.START_ARRAY );
-        return new ExecutionResult( columns, new ClosableIterator<Object[]>()
+        final ExecutionResult[] result = new ExecutionResult[1];
+        result[0] = new ExecutionResult( columns, new TypedRowIterator()
         {
             boolean last = false;
-            Object[] nextRow = null;
+            TypedRow nextRow = null;
+            final TypedRow[] rows = {newRow( cols ), newRow( cols )};
+            int current = 0;
+            final Object[][] buffers = reuseRows ? new Object[][]{new Object[cols], new Object[cols]} : null;
+            int buffer = 0;
 
-            private Object[] nextRow()
+            private TypedRow nextRow()
             {
                 if ( nextToken( state ) == JsonToken.START_OBJECT )
                 {
                     skipTo( state, "nextResult2.5", JsonToken.START_OBJECT, "row" );
                 }
-                final Object[] row = readObjectArray( state );
-                if ( row != null )
+                final TypedRow row = rows[current ^= 1];
+                final int length = readRow( state, row );
+                if ( length == -1 )
                 {
-                    skipTo( state, "nextResult3", JsonToken.END_OBJECT );
+                    return null;
                 }
-                if ( row != null && row.length != cols )
+                skipTo( state, "nextResult3", JsonToken.END_OBJECT );
+                if ( length != cols )
                 {
-                    throw new IllegalStateException( "Row length " + row.length + " differs from column definition "
-                            + columns + " row details " + Arrays.toString( row ) );
+                    throw new IllegalStateException( "Row length " + length + " differs from column definition "
+                            + columns + " row details " + row );
                 }
                 return row;
             }
@@ -194,8 +259,8 @@ class StreamingParser
                     if ( nextRow == null )
                     {
                         last = true;
-                        skipTo( state, "nextResult4", JsonToken.END_ARRAY, JsonToken.END_OBJECT ); // go to end of
-                        // the result
+                        skipTo( state, "nextResult4", JsonToken.END_ARRAY );
+                        result[0].setUpdateCount( readResultEnd( state ) ); // go to end of the result
                         if ( endCallback != null )
                         {
                             endCallback.endReached();
@@ -206,21 +271,233 @@ class StreamingParser
             }
 
             @Override
-            public Object[] next()
+            public TypedRow nextTypedRow()
             {
                 if ( !hasNext() )
                 {
                     throw new NoSuchElementException();
                 }
-                Object[] row = nextRow;
+                TypedRow row = nextRow;
                 nextRow = null;
                 return row;
             }
 
+            @Override
+            public Object[] next()
+            {
+                final TypedRow row = nextTypedRow();
+                return row.toArray( buffers != null ? buffers[buffer ^= 1] : new Object[cols] );
+            }
+
             public void remove()
             {
             }
         } );
+        return result[0];
+    }
+
+    private static final String[] UPDATE_STATS = {"nodes_created", "nodes_deleted", "relationships_created",
+            "relationship_deleted", "properties_set", "labels_added", "labels_removed"};
+
+    /**
+     * Reads the remaining fields of a result after its data, up to the end of the result object.
+     *
+     * @return the update count computed from the "stats" of the result or -1 if they were not included
+     */
+    int readResultEnd( ParserState state )
+    {
+        int updateCount = -1;
+        JsonToken token;
+        while ( (token = state.nextToken()) == JsonToken.FIELD_NAME )
+        {
+            final String field = state.getCurrentName();
+            state.consumeLast();
+            if ( state.nextToken() == JsonToken.START_OBJECT && "stats".equals( field ) )
+            {
+                updateCount = updateCount( (Map<String, Object>) state.readValueAs( Map.class ) );
+            }
+            else
+            {
+                state.skipChildren();
+            }
+            state.consumeLast();
+        }
+        if ( token == JsonToken.END_OBJECT )
+        {
+            state.consumeLast();
+        }
+        return updateCount;
+    }
+
+    static int updateCount( Map<String, Object> stats )
+    {
+        int count = 0;
+        for ( String stat : UPDATE_STATS )
+        {
+            final Object value = stats.get( stat );
+            if ( value instanceof Number )
+            {
+                count += ((Number) value).intValue();
+            }
+        }
+        return count;
+    }
+
+    private TypedRow newRow( int cols )
+    {
+        return new TypedRow( cols, lazyCells ? mapper : null );
+    }
+
+    /**
+     * Decodes the next row array token by token directly into the given row, integral, floating point and boolean
+     * cells are stored unboxed, only nested maps and lists are bound by the object mapper. With lazy cells the maps
+     * and lists are copied as raw JSON into the row instead, their offsets in the row buffer taken from the byte
+     * offsets of the parser.
+     *
+     * @return the number of cells of the row, which might exceed the size of the row, or -1 if there is no
+     * further row
+     */
+    int readRow( ParserState state, TypedRow row )
+    {
+        if ( nextToken( state ) != JsonToken.START_ARRAY )
+        {
+            return -1;
+        }
+        state.consumeLast();
+        final JsonParser parser = state.parser;
+        final RecordingInputStream recording = recording( parser );
+        final int size = row.size();
+        int length = 0;
+        long rawStart = -1;
+        long rawEnd = -1;
+        try
+        {
+            JsonToken token;
+            while ( (token = parser.nextToken()) != JsonToken.END_ARRAY )
+            {
+                if ( token == null )
+                {
+                    throw new IllegalStateException( "Unexpected end of input in row" );
+                }
+                if ( length < size && recording != null && (token == JsonToken.START_OBJECT || token == JsonToken
+                        .START_ARRAY) )
+                {
+                    final long start = tokenStart( parser, recording );
+                    parser.skipChildren();
+                    rawEnd = tokenEnd( parser );
+                    if ( rawStart == -1 )
+                    {
+                        rawStart = start;
+                    }
+                    row.setRawJson( length, (int) (start - rawStart), (int) (rawEnd - start) );
+                }
+                else if ( length < size )
+                {
+                    readCell( parser, token, row, length );
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+                length++;
+            }
+            if ( recording != null )
+            {
+                if ( rawStart != -1 )
+                {
+                    final int rawLength = (int) (rawEnd - rawStart);
+                    recording.copy( rawStart, row.rawBuffer( rawLength ), rawLength );
+                }
+                recording.discardBefore( tokenEnd( parser ) );
+            }
+        }
+        catch ( IOException ioe )
+        {
+            throw new IllegalStateException( "Error during parsing", ioe );
+        }
+        return length;
+    }
+
+    /**
+     * @return the recording stream the parser reads from in lazy mode, null if the raw bytes of cells can't be
+     * retained, e.g. for character input
+     */
+    private RecordingInputStream recording( JsonParser parser )
+    {
+        if ( !lazyCells || !(parser instanceof Utf8StreamParser) || !(parser.getInputSource() instanceof
+                RecordingInputStream) )
+        {
+            return null;
+        }
+        return (RecordingInputStream) parser.getInputSource();
+    }
+
+    /**
+     * The UTF-8 stream parser of Jackson 1.9 reports its byte offsets as char offsets, the token location includes
+     * a preceding comma and the current location points at the last consumed byte.
+     */
+    private static long tokenStart( JsonParser parser, RecordingInputStream recording )
+    {
+        return recording.skipSeparators( parser.getTokenLocation().getCharOffset() );
+    }
+
+    private static long tokenEnd( JsonParser parser )
+    {
+        return parser.getCurrentLocation().getCharOffset() + 1;
+    }
+
+    private void readCell( JsonParser parser, JsonToken token, TypedRow row, int cell ) throws IOException
+    {
+        switch ( token )
+        {
+            case VALUE_NUMBER_INT:
+                switch ( parser.getNumberType() )
+                {
+                    case INT:
+                        row.setInt( cell, parser.getIntValue() );
+                        return;
+                    case LONG:
+                        row.setLong( cell, parser.getLongValue() );
+                        return;
+                    default:
+                        row.setObject( cell, parser.getNumberValue() );
+                        return;
+                }
+            case VALUE_NUMBER_FLOAT:
+                row.setDouble( cell, parser.getDoubleValue() );
+                return;
+            case VALUE_TRUE:
+                row.setBoolean( cell, true );
+                return;
+            case VALUE_FALSE:
+                row.setBoolean( cell, false );
+                return;
+            default:
+                row.setObject( cell, readValue( parser, token ) );
+        }
+    }
+
+    private Object readValue( JsonParser parser, JsonToken token ) throws IOException
+    {
+        switch ( token )
+        {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            default:
+                return parser.readValueAs( Object.class );
+        }
     }
 
     Object[] readObjectArray( ParserState state )
@@ -241,9 +518,16 @@ class StreamingParser
         return null;
     }
 
-    // {"results":[{"columns":["ids"],"data":[{"row":[{"ids":[1,2,3]}]}]}],"errors":[]}
     Iterator<ExecutionResult> toResults( final JsonParser parser, final AutoCloseable closeable,
                                          Statement... statements ) throws SQLException
+    {
+        return toResults( parser, closeable, null, statements );
+    }
+
+    // {"results":[{"columns":["ids"],"data":[{"row":[{"ids":[1,2,3]}]}]}],"errors":[]}
+    Iterator<ExecutionResult> toResults( final JsonParser parser, final AutoCloseable closeable,
+                                         final ExpiryCallback expiryCallback, Statement... statements ) throws
+            SQLException
     {
         try
         {
@@ -274,6 +558,10 @@ class StreamingParser
                             last = true;
                             skipTo( state, "toResults2", JsonToken.END_OBJECT, JsonToken.END_ARRAY,
                                     JsonToken.END_OBJECT );
+                            if ( expiryCallback != null && state.expires != null )
+                            {
+                                expiryCallback.expires( state.expires );
+                            }
                         }
                     }
                     return nextResult != null;
@@ -304,15 +592,18 @@ class StreamingParser
 
     boolean skipTo( ParserState state, String msg, Object... tokenOrField )
     {
-        Map<JsonToken, Object> foundTokens = new LinkedHashMap<JsonToken, Object>();
         for ( Object expectedToken : tokenOrField )
         {
             boolean matched;
             do
             {
                 JsonToken token = state.nextToken();
-                foundTokens.put( token, state.getCurrentName() );
                 handleErrors( state );
+                if ( token == JsonToken.VALUE_STRING && "expires".equals( state.getCurrentName() ) &&
+                        "transaction".equals( state.parser.getParsingContext().getParent().getCurrentName() ) )
+                {
+                    state.expires = state.getText();
+                }
                 state.consumeLast();
                 if ( token == null )
                 {
@@ -343,6 +634,31 @@ class StreamingParser
         }
     }
 
+    public ParserState obtainParserState( InputStream stream ) throws SQLException
+    {
+        return ParserState.from( obtainParser( stream ) );
+    }
+
+    /**
+     * Creates a parser that tokenizes the raw response bytes, the encoding is auto-detected by Jackson (UTF-8 for
+     * Neo4j responses), so no separate char decoding pass and buffer are needed. The parser reads into byte buffers
+     * recycled by the factory.
+     */
+    public JsonParser obtainParser( InputStream stream ) throws SQLException
+    {
+        try
+        {
+            final JsonParser parser = JSON_FACTORY.createJsonParser( lazyCells ? new RecordingInputStream( stream ) :
+                    stream );
+            parser.setCodec( mapper );
+            return parser;
+        }
+        catch ( IOException ioe )
+        {
+            throw new SQLTransientConnectionException( "Error creating result parser", ioe );
+        }
+    }
+
     public ParserState obtainParserState( Reader reader ) throws SQLException
     {
         return ParserState.from( obtainParser( reader ) );
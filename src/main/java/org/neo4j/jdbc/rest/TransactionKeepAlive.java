@@ -0,0 +1,167 @@
+package org.neo4j.jdbc.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Driver wide registry of the open server transactions of the connections that keeps them from expiring on the
+ * server while the client works between statements. A timer checks the registered transactions periodically, the
+ * ones that expire within a third of their timeout are kept alive together by a single task on the executor.
+ * Connections register their transaction when it is begun and unregister it when it is committed or rolled back.
+ */
+public class TransactionKeepAlive
+{
+    protected final static Log log = LogFactory.getLog( TransactionKeepAlive.class );
+    public static final String TRANSACTION_TIMEOUT = "transactionTimeout";
+    public static final long DEFAULT_TIMEOUT = 60 * 1000;
+    public static final long DEFAULT_INTERVAL = 1000;
+
+    interface Transaction
+    {
+        /**
+         * @return the time in milliseconds at which the server expires the transaction, 0 if it is not open
+         */
+        long getExpiry();
+
+        /**
+         * Resets the timeout of the transaction on the server.
+         *
+         * @return false if the transaction is not open anymore
+         */
+        boolean keepAlive();
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long interval;
+    private final ConcurrentMap<Transaction, Long> transactions = new ConcurrentHashMap<>(); // to their margin
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param interval milliseconds between checks of the registered transactions
+     */
+    public TransactionKeepAlive( ScheduledExecutorService scheduler, Executor executor, long interval )
+    {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.interval = interval;
+    }
+
+    /**
+     * @param timeout the transaction timeout of the server in milliseconds
+     */
+    void register( Transaction transaction, long timeout )
+    {
+        if ( transactions.put( transaction, timeout / 3 ) == null )
+        {
+            startTimer();
+        }
+    }
+
+    void unregister( Transaction transaction )
+    {
+        transactions.remove( transaction );
+    }
+
+    /**
+     * @return the number of transactions kept alive
+     */
+    public int size()
+    {
+        return transactions.size();
+    }
+
+    private synchronized void startTimer()
+    {
+        if ( timer == null )
+        {
+            timer = scheduler.scheduleWithFixedDelay( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    check();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    private synchronized boolean stopTimerIfIdle()
+    {
+        if ( transactions.isEmpty() && timer != null )
+        {
+            timer.cancel( false );
+            timer = null;
+            return true;
+        }
+        return false;
+    }
+
+    private void check()
+    {
+        if ( stopTimerIfIdle() || sending.get() )
+        {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final List<Transaction> due = new ArrayList<>();
+        for ( Map.Entry<Transaction, Long> entry : transactions.entrySet() )
+        {
+            final long expiry = entry.getKey().getExpiry();
+            if ( expiry > 0 && expiry - entry.getValue() <= now )
+            {
+                due.add( entry.getKey() );
+            }
+        }
+        if ( due.isEmpty() || !sending.compareAndSet( false, true ) )
+        {
+            return;
+        }
+        executor.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    keepAlive( due );
+                }
+                finally
+                {
+                    sending.set( false );
+                }
+            }
+        } );
+    }
+
+    private void keepAlive( List<Transaction> due )
+    {
+        for ( Transaction transaction : due )
+        {
+            try
+            {
+                if ( transactions.containsKey( transaction ) && !transaction.keepAlive() )
+                {
+                    transactions.remove( transaction );
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                log.debug( "Error keeping transaction alive", e );
+                transactions.remove( transaction );
+            }
+        }
+    }
+}
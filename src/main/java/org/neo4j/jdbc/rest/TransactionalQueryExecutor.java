@@ -1,26 +1,34 @@
 package org.neo4j.jdbc.rest;
 
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransactionRollbackException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.node.ObjectNode;
 import org.restlet.Response;
 import org.restlet.data.CharacterSet;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ResourceException;
-import org.restlet.routing.Filter;
 
 import org.neo4j.jdbc.ExecutionResult;
 import org.neo4j.jdbc.QueryExecutor;
 import org.neo4j.jdbc.Version;
+import org.neo4j.jdbc.util.PrefetchingIterator;
 
 /**
  * @author mh
@@ -29,13 +37,50 @@ import org.neo4j.jdbc.Version;
 public class TransactionalQueryExecutor implements QueryExecutor
 {
     protected final static Log log = LogFactory.getLog( TransactionalQueryExecutor.class );
+    public static final String REUSE_ROW_BUFFER = "reuseRowBuffer";
+    public static final String LAZY_CELLS = "lazyCells";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String CANCELLABLE = "cancellable";
+    public static final int DEFAULT_BATCH_SIZE = 100;
     private static final Statement[] NO_STATEMENTS = new Statement[0];
+    private static final String CONCURRENT_REQUEST = "Neo.ClientError.Transaction.ConcurrentRequest";
     private static final Iterator<ExecutionResult> NO_RESULTS = Collections.<ExecutionResult>emptyList().iterator();
     private final Resources.TransactionClientResource commitResource;
 
     private final Resources.TransactionClientResource txResource;
-    private final ThreadLocal<Resources.TransactionClientResource> transaction = new ThreadLocal<Resources
-            .TransactionClientResource>();
+    private volatile Resources.TransactionClientResource transaction; // of the connection, not of a thread
+    private volatile boolean explicitTransaction; // begun by statements outside of auto commit mode
+    private volatile boolean rolledBack; // by a cancel, until the connection rolls back
+    private final InFlightRequest inFlight = new InFlightRequest();
+    private final Object requestLock = new Object(); // serializes starting requests with keep-alive requests
+    private volatile long expiry;
+    private TransactionKeepAlive keepAlive;
+    private long transactionTimeout;
+    private final TransactionKeepAlive.Transaction keepAliveTransaction = new TransactionKeepAlive.Transaction()
+    {
+        @Override
+        public long getExpiry()
+        {
+            return expiry;
+        }
+
+        @Override
+        public boolean keepAlive()
+        {
+            return keepTransactionAlive();
+        }
+    };
+    private final StreamingParser.ExpiryCallback expiryCallback = new StreamingParser.ExpiryCallback()
+    {
+        @Override
+        public void expires( String expires )
+        {
+            if ( keepAlive != null && transaction != null )
+            {
+                expiry = parseExpiry( expires );
+            }
+        }
+    };
 
     private final ObjectMapper mapper = new ObjectMapper();
     private final Version version;
@@ -43,22 +88,64 @@ public class TransactionalQueryExecutor implements QueryExecutor
     private final StreamingParser resultParser;
     private final Resources.DiscoveryClientResource discovery;
 
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private final boolean cancellable;
+
     public TransactionalQueryExecutor( Resources resources ) throws SQLException
     {
-        try
-        {
-            this.resources = resources;
+        this( resources, discover( resources ), new Properties() );
+    }
+
+    public TransactionalQueryExecutor( Resources resources, Resources.DiscoveryClientResource discovery,
+                                       Properties properties )
+    {
+        this.resources = resources;
+
+        resultParser = new StreamingParser( mapper, isReuseRowBuffer( properties ), "true".equalsIgnoreCase(
+                properties.getProperty( LAZY_CELLS, "false" ).trim() ) );
 
-            resultParser = new StreamingParser( mapper );
+        this.discovery = discovery;
+        cancellable = "true".equalsIgnoreCase( properties.getProperty( CANCELLABLE, "false" ).trim() );
 
-            discovery = resources.getDiscoveryResource();
+        version = new Version( discovery.getVersion() );
 
-            version = new Version( discovery.getVersion() );
+        String transactionPath = discovery.getTransactionPath();
 
-            String transactionPath = discovery.getTransactionPath();
+        txResource = resources.getTransactionResource( transactionPath );
+        commitResource = resources.subResource( txResource, "commit" );
+    }
 
-            txResource = resources.getTransactionResource( transactionPath );
-            commitResource = resources.subResource( txResource, "commit" );
+    /**
+     * Keeps the transactions of this executor alive while they are open.
+     *
+     * @param transactionTimeout the transaction timeout of the server in milliseconds
+     */
+    public void setKeepAlive( TransactionKeepAlive keepAlive, long transactionTimeout )
+    {
+        this.keepAlive = keepAlive;
+        this.transactionTimeout = transactionTimeout;
+    }
+
+    @Override
+    public long getTransactionExpiry()
+    {
+        return expiry;
+    }
+
+    /**
+     * Rows read ahead by a prefetching iterator are buffered, so their arrays can't be reused.
+     */
+    private static boolean isReuseRowBuffer( Properties properties )
+    {
+        return "true".equalsIgnoreCase( properties.getProperty( REUSE_ROW_BUFFER, "false" ) ) && "0".equals(
+                properties.getProperty( PrefetchingIterator.PREFETCH_ROWS, "0" ).trim() );
+    }
+
+    private static Resources.DiscoveryClientResource discover( Resources resources ) throws SQLException
+    {
+        try
+        {
+            return resources.getDiscoveryResource();
         }
         catch ( IOException e )
         {
@@ -69,18 +156,59 @@ public class TransactionalQueryExecutor implements QueryExecutor
     public Iterator<ExecutionResult> begin( Statement... statements ) throws SQLException
     {
         // if (transaction!=null) throw new SQLException("Already in transaction "+transaction);
-        final Resources.TransactionClientResource resource = hasActiveTransaction() ? activeTransaction() : txResource;
-        Response result = post( resource, statements );
-        if ( result.getLocationRef() != null )
+        checkNotRolledBack();
+        explicitTransaction = true;
+        return execute( statements );
+    }
+
+    /**
+     * Sends the statements to the active transaction, or begins a new one with them, without committing it.
+     */
+    private Iterator<ExecutionResult> execute( Statement... statements ) throws SQLException
+    {
+        if ( hasActiveTransaction() )
         {
-            this.transaction.set( resources.getTransactionResource( result.getLocationRef() ) );
+            return toResults( post( activeTransaction(), statements, false ).getEntity(), statements );
         }
-        return toResults( result.getEntity(), statements );
+        if ( cancellable )
+        {
+            return toResults( post( openTransaction(), statements, true ).getEntity(), statements );
+        }
+        return toResults( post( txResource, statements, false ).getEntity(), statements );
+    }
+
+    /**
+     * Begins a transaction with a request of its own, as the location of a transaction begun together with
+     * statements only arrives with their results. The statements sent to the transaction afterwards can then be
+     * rolled back on the server while they run. The statement stays in flight until they are sent.
+     *
+     * @return the begun transaction
+     */
+    private Resources.TransactionClientResource openTransaction() throws SQLException
+    {
+        final Representation entity = post( txResource, NO_STATEMENTS, false ).getEntity();
+        final Resources.TransactionClientResource opened = activeTransaction();
+        try
+        {
+            final JsonNode response = mapper.readTree( entity.getStream() );
+            if ( response.path( "errors" ).size() > 0 || opened == null )
+            {
+                inFlight.finish( entity );
+                throw new SQLException( "Error beginning transaction " + response.path( "errors" ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            inFlight.finish( entity );
+            throw new SQLException( "Error beginning transaction", e );
+        }
+        inFlight.proceed( entity );
+        return opened;
     }
 
     private Resources.TransactionClientResource activeTransaction()
     {
-        return transaction.get();
+        return transaction;
     }
 
     private boolean hasActiveTransaction()
@@ -88,13 +216,57 @@ public class TransactionalQueryExecutor implements QueryExecutor
         return activeTransaction() != null;
     }
 
-    private Response post( Resources.TransactionClientResource resource, Statement[] data )
+    /**
+     * A transaction begun by the request is kept as the active transaction, it is rolled back if the request was
+     * cancelled while waiting for the response.
+     *
+     * @param resumed true if the request continues the statement of the previous request
+     */
+    private Response post( Resources.TransactionClientResource resource, Statement[] data, boolean resumed ) throws
+            SQLException
     {
-        final ObjectNode requestData = mapper.createObjectNode();
-        requestData.put( "statements", Statement.toJson( mapper, data ) );
-        resource.post( Resources.toRepresentation( requestData, resource ) );
+        synchronized ( requestLock )
+        {
+            if ( resumed )
+            {
+                inFlight.resume();
+            }
+            else
+            {
+                inFlight.start();
+            }
+        }
+        try
+        {
+            resource.post( new StatementRepresentation( mapper.getJsonFactory(), data ) );
+        }
+        catch ( ResourceException e )
+        {
+            inFlight.failed();
+            resources.invalidateDiscovery( e.getStatus() );
+            throw e;
+        }
         Response response = resource.getResponse();
         response.getEntity().setCharacterSet( CharacterSet.UTF_8 );
+        if ( response.getLocationRef() != null )
+        {
+            this.transaction = resources.getTransactionResource( response.getLocationRef() );
+        }
+        if ( keepAlive != null && this.transaction != null )
+        {
+            // the server restarts the timeout when it has written the response, which reports the exact expiry
+            expiry = System.currentTimeMillis() + transactionTimeout;
+            keepAlive.register( keepAliveTransaction, transactionTimeout );
+        }
+        try
+        {
+            inFlight.received( response.getEntity() );
+        }
+        catch ( SQLException e )
+        {
+            rollbackQuietly();
+            throw e;
+        }
 //        dump( response );
         return response;
     }
@@ -107,60 +279,173 @@ public class TransactionalQueryExecutor implements QueryExecutor
 
     public Iterator<ExecutionResult> commit( Statement... statements ) throws SQLException
     {
+        checkNotRolledBack();
         final boolean hasActiveTransaction = hasActiveTransaction();
         if ( (statements == null || statements.length == 0) && !hasActiveTransaction )
         {
             return NO_RESULTS; //throw new SQLException("Not in transaction");
         }
-        Resources.TransactionClientResource resource = hasActiveTransaction ? resources.subResource(
-                activeTransaction(), "commit" ) : commitResource;
-        Representation result = post( resource, statements ).getEntity();
+        final Representation result;
+        if ( hasActiveTransaction )
+        {
+            result = post( resources.subResource( activeTransaction(), "commit" ), statements, false ).getEntity();
+        }
+        else if ( cancellable )
+        {
+            result = post( resources.subResource( openTransaction(), "commit" ), statements, true ).getEntity();
+        }
+        else
+        {
+            result = post( commitResource, statements, false ).getEntity();
+        }
         clearTransaction();
         if ( result.isAvailable() )
         {
             return toResults( result, statements );
         }
+        inFlight.finish( result );
         return NO_RESULTS;
         // throw new IllegalStateException("No results for commit");
     }
 
+    /**
+     * Statements must not silently continue in a new transaction after the one they belong to was rolled back.
+     */
+    private void checkNotRolledBack() throws SQLTransactionRollbackException
+    {
+        if ( rolledBack )
+        {
+            throw new SQLTransactionRollbackException( "The transaction was rolled back when a statement was " +
+                    "cancelled, roll back the connection before using it again", "40000" );
+        }
+    }
+
     private void clearTransaction()
     {
-        this.transaction.set( null );
+        this.transaction = null;
+        this.explicitTransaction = false;
+        if ( keepAlive != null )
+        {
+            keepAlive.unregister( keepAliveTransaction );
+            expiry = 0;
+        }
     }
 
-    private Iterator<ExecutionResult> toResults( final Representation result, Statement[] statements ) throws
-            SQLException
+    /**
+     * Resets the timeout of the open transaction by posting no statements to it, also while a result of the
+     * connection is read, as the server may have written the whole response long before. If a request of the
+     * connection still uses the transaction on the server, it is alive until that request ends. The request is sent
+     * through a separate resource as the one of the transaction belongs to the thread of the connection.
+     *
+     * @return false if there is no open transaction anymore
+     */
+    private boolean keepTransactionAlive()
+    {
+        synchronized ( requestLock )
+        {
+            final Resources.TransactionClientResource active = transaction;
+            if ( active == null )
+            {
+                return false;
+            }
+            final Resources.TransactionClientResource resource = resources.getTransactionResource( active
+                    .getReference() );
+            try
+            {
+                resource.post( new StatementRepresentation( mapper.getJsonFactory(), NO_STATEMENTS ) );
+                final JsonNode response = mapper.readTree( resource.getResponse().getEntity().getStream() );
+                if ( isConcurrentRequest( response.path( "errors" ) ) )
+                {
+                    expiry = System.currentTimeMillis() + transactionTimeout;
+                    return true;
+                }
+                if ( response.path( "errors" ).size() > 0 )
+                {
+                    log.debug( "Transaction " + active.getReference() + " can't be kept alive: " + response.path(
+                            "errors" ) );
+                    return false;
+                }
+                expiry = parseExpiry( response.path( "transaction" ).path( "expires" ).getTextValue() );
+                return true;
+            }
+            catch ( ResourceException | IOException e )
+            {
+                log.debug( "Error keeping transaction " + active.getReference() + " alive", e );
+                return false;
+            }
+            finally
+            {
+                resource.release();
+            }
+        }
+    }
+
+    private static boolean isConcurrentRequest( JsonNode errors )
+    {
+        for ( JsonNode error : errors )
+        {
+            if ( !CONCURRENT_REQUEST.equals( error.path( "code" ).getTextValue() ) )
+            {
+                return false;
+            }
+        }
+        return errors.size() > 0;
+    }
+
+    private long parseExpiry( String expires )
     {
-        final Reader reader = getReader( result );
-        AutoCloseable closeable = new AutoCloseable()
+        if ( expires != null )
         {
-            public void close() throws Exception
+            try
+            {
+                return new SimpleDateFormat( "EEE, dd MMM yyyy HH:mm:ss Z", Locale.US ).parse( expires ).getTime();
+            }
+            catch ( ParseException e )
             {
-                reader.close();
+                log.debug( "Invalid transaction expiry " + expires );
             }
-        };
-        return resultParser.toResults( resultParser.obtainParser( reader ), closeable, statements );
+        }
+        return System.currentTimeMillis() + transactionTimeout;
+    }
+
+    private Iterator<ExecutionResult> toResults( final Representation result, Statement[] statements ) throws
+            SQLException
+    {
+        final InputStream stream = getStream( result );
+        AutoCloseable closeable = inFlight.closing( stream, result );
+        return resultParser.toResults( resultParser.obtainParser( stream ), closeable, expiryCallback, statements );
     }
 
-    private Reader getReader( Representation result )
+    private InputStream getStream( Representation result )
     {
         try
         {
-            return result.getReader();
+            return result.getStream();
         }
         catch ( IOException e )
         {
-            throw new RuntimeException( "Error accessing response reader", e );
+            throw new RuntimeException( "Error accessing response stream", e );
         }
     }
 
     public void rollback() throws SQLException
     {
+        rolledBack = false;
         if ( hasActiveTransaction() )
         {
             final Resources.TransactionClientResource resource = activeTransaction();
-            resource.delete();
+            try
+            {
+                synchronized ( requestLock )
+                {
+                    resource.delete();
+                }
+            }
+            catch ( ResourceException e )
+            {
+                resources.invalidateDiscovery( e.getStatus() );
+                throw e;
+            }
             if ( resource.getResponse().isEntityAvailable() )
             {
                 clearTransaction();
@@ -172,7 +457,7 @@ public class TransactionalQueryExecutor implements QueryExecutor
     {
         if ( hasActiveTransaction() )
         {
-            final Representation result = post( activeTransaction(), statements ).getEntity();
+            final Representation result = post( activeTransaction(), statements, false ).getEntity();
             return toResults( result, statements );
         }
         else
@@ -181,6 +466,97 @@ public class TransactionalQueryExecutor implements QueryExecutor
         }
     }
 
+    /**
+     * @param batchSize maximum number of statements of a batch sent in one request
+     */
+    public void setBatchSize( int batchSize )
+    {
+        if ( batchSize < 1 )
+        {
+            throw new IllegalArgumentException( "Batch size must be positive but was " + batchSize );
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sends the queries in chunks of at most batchSize statements per request. All chunks are executed in one
+     * transaction, in auto commit mode it is committed with the last chunk or rolled back on failure. That
+     * transaction belongs to the batch, it doesn't put the connection into an explicit transaction.
+     */
+    @Override
+    public int[] executeBatch( List<String> queries, List<Map<String, Object>> parameters,
+                               boolean autoCommit ) throws Exception
+    {
+        checkNotRolledBack();
+        final int[] counts = new int[queries.size()];
+        int processed = 0;
+        try
+        {
+            for ( int start = 0; start < counts.length; start += batchSize )
+            {
+                final int size = Math.min( batchSize, counts.length - start );
+                final Statement[] statements = new Statement[size];
+                for ( int i = 0; i < size; i++ )
+                {
+                    statements[i] = new Statement( queries.get( start + i ), parameters.get( start + i ), true );
+                    counts[start + i] = java.sql.Statement.SUCCESS_NO_INFO;
+                }
+                final boolean last = start + size == counts.length;
+                final Iterator<ExecutionResult> results = !autoCommit ? begin( statements ) : last ? commit(
+                        statements ) : execute( statements );
+                ExecutionResult result = null;
+                try
+                {
+                    while ( results.hasNext() )
+                    {
+                        result = results.next();
+                        final Iterator<Object[]> rows = result.iterator();
+                        while ( rows.hasNext() )
+                        {
+                            rows.next();
+                        }
+                        if ( result.getUpdateCount() != -1 )
+                        {
+                            counts[processed] = result.getUpdateCount();
+                        }
+                        processed++;
+                    }
+                }
+                finally
+                {
+                    if ( result != null )
+                    {
+                        result.close();
+                    }
+                }
+                processed = start + size;
+            }
+            return counts;
+        }
+        catch ( RuntimeException | SQLException e )
+        {
+            if ( autoCommit )
+            {
+                rollbackQuietly();
+            }
+            throw new BatchUpdateException( "Error executing batch statement " + (processed + 1) + ": " + e
+                    .getMessage(), Arrays.copyOf( counts, processed ), e );
+        }
+    }
+
+    private void rollbackQuietly()
+    {
+        try
+        {
+            rollback();
+        }
+        catch ( Exception e )
+        {
+            log.debug( "Error rolling back transaction", e );
+        }
+        clearTransaction();
+    }
+
     public ExecutionResult executeQuery( String query, Map<String, Object> parameters,
                                          boolean autoCommit ) throws Exception
     {
@@ -207,7 +583,8 @@ public class TransactionalQueryExecutor implements QueryExecutor
     @Override
     public void stop() throws Exception
     {
-        ((Filter) txResource.getNext()).stop();
+        clearTransaction();
+        resources.close();
     }
 
     @Override
@@ -222,5 +599,38 @@ public class TransactionalQueryExecutor implements QueryExecutor
         commit( NO_STATEMENTS );
     }
 
+    /**
+     * Aborts the request in flight. The active transaction is rolled back with a separate request, which makes the
+     * server terminate the statements running in it. If the transaction was begun outside of auto commit mode the
+     * following statements and commits fail until the connection is rolled back.
+     */
+    @Override
+    public void cancel() throws SQLException
+    {
+        if ( !inFlight.cancel() )
+        {
+            return;
+        }
+        final Resources.TransactionClientResource active = transaction;
+        if ( active != null )
+        {
+            final boolean explicit = explicitTransaction;
+            clearTransaction();
+            rolledBack = explicit;
+            try
+            {
+                resources.getTransactionResource( active.getReference() ).delete();
+            }
+            catch ( ResourceException e )
+            {
+                log.debug( "Error rolling back cancelled transaction", e );
+            }
+        }
+    }
 
+    @Override
+    public boolean isAvailable( long timeoutMillis )
+    {
+        return resources.isAvailable( timeoutMillis );
+    }
 }
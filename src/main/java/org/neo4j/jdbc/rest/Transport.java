@@ -0,0 +1,336 @@
+package org.neo4j.jdbc.rest;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.resource.ClientResource;
+import org.restlet.resource.ResourceException;
+import org.restlet.routing.Filter;
+
+import org.neo4j.jdbc.util.DaemonThreadFactory;
+
+/**
+ * HTTP transport to one Neo4j server, i.e. a Restlet client with its connection pool, that is shared by all
+ * resources of the connections to that server. It keeps usage metrics of the requests dispatched through it.
+ * <p/>
+ * The transport is stopped when its last user released it, a shared transport is then also removed from its
+ * registry.
+ */
+public class Transport
+{
+    protected final static Log log = LogFactory.getLog( Transport.class );
+
+    private final Client client;
+    private final Restlet dispatcher;
+    private final Transports transports;
+    private final String key;
+    private final int maxConnectionsPerHost;
+    private final int maxTotalConnections;
+
+    private int users;
+    private boolean stopped;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong compressedBytesSent = new AtomicLong();
+    private final AtomicLong uncompressedBytesSent = new AtomicLong();
+    private final AtomicLong compressedBytesReceived = new AtomicLong();
+    private final AtomicLong decompressedBytesReceived = new AtomicLong();
+    private volatile long lastSuccess;
+    private volatile ExecutorService prober;
+
+    public Transport( Client client )
+    {
+        this( client, null, null, -1, -1 );
+    }
+
+    /**
+     * @param transports the registry the transport is removed from when it is stopped, under the given key, null
+     * for an unshared transport
+     */
+    Transport( Client client, Transports transports, String key, int maxConnectionsPerHost, int maxTotalConnections )
+    {
+        this.client = client;
+        this.transports = transports;
+        this.key = key;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxTotalConnections = maxTotalConnections;
+        this.dispatcher = new CountingFilter( client.getContext(), client );
+    }
+
+    Restlet getDispatcher()
+    {
+        return dispatcher;
+    }
+
+    /**
+     * @return false if the transport was already stopped and can't be used anymore
+     */
+    synchronized boolean acquire()
+    {
+        if ( stopped )
+        {
+            return false;
+        }
+        users++;
+        return true;
+    }
+
+    /**
+     * Releases one user of this transport, it is stopped when its last user is gone.
+     */
+    void release()
+    {
+        synchronized ( this )
+        {
+            if ( --users > 0 )
+            {
+                return;
+            }
+            stopped = true;
+        }
+        if ( transports != null )
+        {
+            transports.remove( key, this );
+        }
+        stop();
+    }
+
+    void stop()
+    {
+        try
+        {
+            dispatcher.stop();
+            client.stop();
+            if ( prober != null )
+            {
+                prober.shutdownNow();
+            }
+        }
+        catch ( Exception e )
+        {
+            log.warn( "Error stopping HTTP client", e );
+        }
+    }
+
+    /**
+     * Sends a HEAD request through the resource and waits up to the timeout for the response. Any response of the
+     * server counts, only a failure to reach it fails the probe.
+     *
+     * @param timeoutMillis 0 to wait for the response without limit
+     * @return true if the server responded within the timeout
+     */
+    boolean probe( final ClientResource resource, long timeoutMillis )
+    {
+        final Future<Boolean> probe = prober().submit( new Callable<Boolean>()
+        {
+            @Override
+            public Boolean call() throws Exception
+            {
+                try
+                {
+                    resource.head();
+                    return true;
+                }
+                catch ( ResourceException e )
+                {
+                    return !e.getStatus().isConnectorError();
+                }
+                finally
+                {
+                    resource.release();
+                }
+            }
+        } );
+        try
+        {
+            return timeoutMillis > 0 ? probe.get( timeoutMillis, TimeUnit.MILLISECONDS ) : probe.get();
+        }
+        catch ( TimeoutException e )
+        {
+            probe.cancel( true );
+            return false;
+        }
+        catch ( ExecutionException e )
+        {
+            log.debug( "Error probing server", e.getCause() );
+            return false;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ExecutorService prober()
+    {
+        if ( prober == null )
+        {
+            synchronized ( this )
+            {
+                if ( prober == null )
+                {
+                    prober = Executors.newCachedThreadPool( new DaemonThreadFactory( "neo4j-jdbc-probe" ) );
+                }
+            }
+        }
+        return prober;
+    }
+
+    public boolean isShared()
+    {
+        return transports != null;
+    }
+
+    /**
+     * @return the number of resources (i.e. connections) currently using this transport
+     */
+    public synchronized int getUsers()
+    {
+        return users;
+    }
+
+    public synchronized boolean isStopped()
+    {
+        return stopped;
+    }
+
+    /**
+     * @return the number of requests currently being dispatched to the server
+     */
+    public int getActiveRequests()
+    {
+        return activeRequests.get();
+    }
+
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+    public long getFailedRequests()
+    {
+        return failedRequests.get();
+    }
+
+    /**
+     * @return the time in milliseconds of the last successful response of the server, 0 if there was none
+     */
+    public long getLastSuccess()
+    {
+        return lastSuccess;
+    }
+
+    void addSentBytes( long compressed, long uncompressed )
+    {
+        compressedBytesSent.addAndGet( compressed );
+        uncompressedBytesSent.addAndGet( uncompressed );
+    }
+
+    AtomicLong receivedWireBytes()
+    {
+        return compressedBytesReceived;
+    }
+
+    AtomicLong receivedDecodedBytes()
+    {
+        return decompressedBytesReceived;
+    }
+
+    /**
+     * @return the bytes on the wire of all compressed request bodies
+     */
+    public long getCompressedBytesSent()
+    {
+        return compressedBytesSent.get();
+    }
+
+    /**
+     * @return the bytes of all compressed request bodies before compression
+     */
+    public long getUncompressedBytesSent()
+    {
+        return uncompressedBytesSent.get();
+    }
+
+    /**
+     * @return the bytes on the wire of all compressed response bodies read so far
+     */
+    public long getCompressedBytesReceived()
+    {
+        return compressedBytesReceived.get();
+    }
+
+    /**
+     * @return the decompressed bytes of all compressed response bodies read so far
+     */
+    public long getDecompressedBytesReceived()
+    {
+        return decompressedBytesReceived.get();
+    }
+
+    public int getMaxConnectionsPerHost()
+    {
+        return maxConnectionsPerHost;
+    }
+
+    public int getMaxTotalConnections()
+    {
+        return maxTotalConnections;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Transport users: " + getUsers() + " active: " + getActiveRequests() + " requests: " + getRequests() +
+                " failed: " + getFailedRequests() + " max connections per host: " + maxConnectionsPerHost +
+                " compressed bytes received: " + getCompressedBytesReceived() + " decompressed: " +
+                getDecompressedBytesReceived();
+    }
+
+    private class CountingFilter extends Filter
+    {
+        CountingFilter( Context context, Restlet next )
+        {
+            super( context, next );
+        }
+
+        @Override
+        protected int doHandle( Request request, Response response )
+        {
+            requests.incrementAndGet();
+            activeRequests.incrementAndGet();
+            try
+            {
+                return super.doHandle( request, response );
+            }
+            finally
+            {
+                activeRequests.decrementAndGet();
+                if ( response.getStatus() == null || response.getStatus().isError() )
+                {
+                    failedRequests.incrementAndGet();
+                }
+                else if ( response.getStatus().isSuccess() )
+                {
+                    lastSuccess = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.neo4j.jdbc.rest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.data.Parameter;
+import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
+import org.restlet.util.Series;
+
+/**
+ * Driver wide registry of the HTTP transports, one per server (scheme, host and port). The pool settings are taken
+ * from the first connection to a server. A transport is removed and stopped when its last connection is closed.
+ */
+public class Transports
+{
+    public static final String HELPER_CLASS = "restlet.helperclass";
+    public static final String MAX_CONNECTIONS_PER_HOST = "maxConnectionsPerHost";
+    public static final String MAX_TOTAL_CONNECTIONS = "maxTotalConnections";
+    public static final String IDLE_TIMEOUT = "idleTimeout";
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 100;
+    public static final long DEFAULT_IDLE_TIMEOUT = 30 * 1000;
+
+    private final ConcurrentMap<String, Transport> transports = new ConcurrentHashMap<>();
+
+    /**
+     * @param helperClass the Restlet client helper to use, null for the default one
+     * @param idleTimeout milliseconds after which idle pooled connections are closed
+     * @return the acquired transport to the server of the URL, which has to be released
+     */
+    public Transport acquire( String url, String helperClass, int maxConnectionsPerHost, int maxTotalConnections,
+                              long idleTimeout )
+    {
+        final String key = serverKey( url ) + (helperClass == null ? "" : "|" + helperClass);
+        while ( true )
+        {
+            Transport transport = transports.get( key );
+            if ( transport == null )
+            {
+                final Transport created = createTransport( url, key, helperClass, maxConnectionsPerHost,
+                        maxTotalConnections, idleTimeout );
+                transport = transports.putIfAbsent( key, created );
+                if ( transport == null )
+                {
+                    transport = created;
+                }
+                else
+                {
+                    created.stop();
+                }
+            }
+            if ( transport.acquire() )
+            {
+                return transport;
+            }
+            transports.remove( key, transport ); // stopped by its last user meanwhile
+        }
+    }
+
+    void remove( String key, Transport transport )
+    {
+        transports.remove( key, transport );
+    }
+
+    public Collection<Transport> getTransports()
+    {
+        return Collections.unmodifiableCollection( transports.values() );
+    }
+
+    private Transport createTransport( String url, String key, String helperClass, int maxPerHost, int maxTotal,
+                                       long idleTimeout )
+    {
+        final Context context = new Context();
+        final Series<Parameter> parameters = context.getParameters();
+        parameters.add( "maxConnectionsPerHost", String.valueOf( maxPerHost ) );
+        parameters.add( "maxTotalConnections", String.valueOf( maxTotal ) );
+        parameters.add( "idleTimeout", String.valueOf( idleTimeout ) );
+        parameters.add( "idleCheckInterval", String.valueOf( Math.max( 1, idleTimeout / 2 ) ) );
+        parameters.add( "persistingConnections", "true" );
+
+        final Protocol protocol = Protocol.valueOf( url.split( ":" )[0] );
+        final Client client = new Client( context, Arrays.asList( protocol ), helperClass );
+        try
+        {
+            client.start();
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( "Error starting HTTP client for " + url, e );
+        }
+        return new Transport( client, this, key, maxPerHost, maxTotal );
+    }
+
+    private static String serverKey( String url )
+    {
+        final Reference reference = new Reference( url );
+        return reference.getScheme() + "://" + reference.getHostDomain() + ":" + reference.getHostPort();
+    }
+}
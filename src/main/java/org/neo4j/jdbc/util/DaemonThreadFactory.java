@@ -0,0 +1,26 @@
+package org.neo4j.jdbc.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, so that background work of the driver never keeps the JVM alive.
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public DaemonThreadFactory( String prefix )
+    {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread( Runnable runnable )
+    {
+        Thread thread = new Thread( runnable, prefix + "-" + counter.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+    }
+}
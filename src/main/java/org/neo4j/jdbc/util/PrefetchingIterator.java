@@ -0,0 +1,207 @@
+package org.neo4j.jdbc.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads ahead the elements of a source iterator on a background thread into a bounded buffer, so that producing the
+ * elements (e.g. reading and parsing a response) overlaps with their processing. The producer blocks while the
+ * buffer is full. The source must not return null elements.
+ * <p/>
+ * Closing the iterator interrupts the producer and closes the source right away, so that a producer blocked reading
+ * a stream is released instead of holding on to the connection until the read returns. The failure this causes in
+ * the producer is discarded.
+ */
+public class PrefetchingIterator<T> implements ClosableIterator<T>, Runnable
+{
+    public static final String PREFETCH_ROWS = "prefetchRows";
+
+    private static final Object END = new Object();
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final Iterator<T> source;
+    private final BlockingQueue<Object> buffer;
+    private final AtomicBoolean sourceClosed = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile boolean finished;
+    private Thread producer; // guarded by this, while run() is active
+    private Object next;
+    private boolean done;
+
+    public PrefetchingIterator( Iterator<T> source, int capacity, Executor executor )
+    {
+        this.source = source;
+        this.buffer = new ArrayBlockingQueue<Object>( capacity );
+        executor.execute( this );
+    }
+
+    @Override
+    public void run()
+    {
+        synchronized ( this )
+        {
+            producer = Thread.currentThread();
+        }
+        try
+        {
+            while ( !closed && source.hasNext() )
+            {
+                put( source.next() );
+            }
+            put( END );
+        }
+        catch ( Throwable t )
+        {
+            put( new Failure( t ) );
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                producer = null;
+                Thread.interrupted(); // don't leave an interrupt of close() to the executor's next task
+            }
+            finished = true;
+            if ( closed )
+            {
+                closeSource();
+            }
+        }
+    }
+
+    private void put( Object element )
+    {
+        try
+        {
+            while ( !closed && !buffer.offer( element, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS ) )
+            {
+                // wait for the consumer
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( next == null && !done )
+        {
+            final Object element = take();
+            if ( element == END )
+            {
+                done = true;
+            }
+            else if ( element instanceof Failure )
+            {
+                done = true;
+                throw ((Failure) element).rethrow();
+            }
+            else
+            {
+                next = element;
+            }
+        }
+        return next != null;
+    }
+
+    private Object take()
+    {
+        if ( closed )
+        {
+            return END;
+        }
+        try
+        {
+            Object element;
+            while ( (element = buffer.poll( POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS )) == null )
+            {
+                if ( finished && buffer.isEmpty() )
+                {
+                    return END; // producer stopped without handing over a result, e.g. interrupted
+                }
+            }
+            return element;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for the next element", e );
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+        final T result = (T) next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        done = true;
+        next = null;
+        buffer.clear();
+        synchronized ( this )
+        {
+            if ( producer != null )
+            {
+                producer.interrupt();
+            }
+        }
+        closeSource();
+    }
+
+    private void closeSource()
+    {
+        if ( sourceClosed.compareAndSet( false, true ) )
+        {
+            Closer.close( source );
+        }
+    }
+
+    private static class Failure
+    {
+        private final Throwable cause;
+
+        Failure( Throwable cause )
+        {
+            this.cause = cause;
+        }
+
+        RuntimeException rethrow()
+        {
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
+}
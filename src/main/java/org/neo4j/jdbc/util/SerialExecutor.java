@@ -0,0 +1,109 @@
+package org.neo4j.jdbc.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs the tasks submitted to it one after the other in submission order on another executor, so that tasks working
+ * on the same connection never overlap, whatever the number of threads of the underlying executor.
+ * <p/>
+ * A task the underlying executor rejects, e.g. because it was shut down, is failed instead of run: tasks implementing
+ * {@link Task} are told about it, other futures are cancelled. The following tasks are scheduled as usual.
+ */
+public class SerialExecutor implements Executor
+{
+    protected final static Log log = LogFactory.getLog( SerialExecutor.class );
+
+    /**
+     * A task that learns when the underlying executor rejected it.
+     */
+    public interface Task extends Runnable
+    {
+        void rejected( RejectedExecutionException e );
+    }
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    private Runnable active;
+
+    public SerialExecutor( Executor executor )
+    {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    @Override
+    public synchronized void execute( final Runnable task )
+    {
+        tasks.add( new SerialTask( task ) );
+        if ( active == null )
+        {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext()
+    {
+        while ( (active = tasks.poll()) != null )
+        {
+            try
+            {
+                executor.execute( active );
+                return;
+            }
+            catch ( RejectedExecutionException e )
+            {
+                reject( ((SerialTask) active).task, e );
+            }
+        }
+    }
+
+    private static void reject( Runnable task, RejectedExecutionException e )
+    {
+        if ( task instanceof Task )
+        {
+            ((Task) task).rejected( e );
+        }
+        else if ( task instanceof Future )
+        {
+            ((Future<?>) task).cancel( false );
+        }
+        else
+        {
+            log.debug( "Dropped rejected task " + task, e );
+        }
+    }
+
+    private class SerialTask implements Runnable
+    {
+        private final Runnable task;
+
+        SerialTask( Runnable task )
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                scheduleNext();
+            }
+        }
+    }
+}
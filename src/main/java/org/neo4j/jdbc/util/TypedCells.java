@@ -0,0 +1,47 @@
+package org.neo4j.jdbc.util;
+
+/**
+ * Read access to the cells of one result row, with numeric and boolean cells available unboxed. The type of each
+ * cell is given by one of the tags below, RAW_JSON cells are maps or lists that have not been decoded yet.
+ */
+public interface TypedCells
+{
+    byte NULL = 0;
+    byte OBJECT = 1;
+    byte INT = 2;
+    byte LONG = 3;
+    byte DOUBLE = 4;
+    byte BOOLEAN = 5;
+    byte RAW_JSON = 6;
+
+    int size();
+
+    byte getType( int cell );
+
+    /**
+     * @return true if the cell holds an int, long or double
+     */
+    boolean isNumber( int cell );
+
+    /**
+     * @return the value of an int, long or double cell as long, doubles are truncated
+     */
+    long getLong( int cell );
+
+    /**
+     * @return the value of an int, long or double cell as double
+     */
+    double getDouble( int cell );
+
+    boolean getBoolean( int cell );
+
+    /**
+     * @return the value of the cell, primitive values are boxed and raw JSON values are decoded
+     */
+    Object get( int cell );
+
+    /**
+     * @return the undecoded JSON text of a RAW_JSON cell, null for other cells
+     */
+    String getRawJson( int cell );
+}
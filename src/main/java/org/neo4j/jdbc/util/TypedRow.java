@@ -0,0 +1,242 @@
+package org.neo4j.jdbc.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A result row whose numeric and boolean cells are kept unboxed in a primitive lane, tagged with their type per
+ * cell. Doubles are stored as their raw long bits, booleans as 0 and 1. Other values are kept as objects, primitive
+ * cells are only boxed when they are asked for as objects.
+ * <p/>
+ * Maps and lists can be kept as a slice of a raw UTF-8 JSON buffer owned by the row, the offset and length of the
+ * slice are stored in the primitive lane. They are decoded on first access only.
+ * <p/>
+ * Rows are reused by their producers, so a row is only valid until the producer moves on.
+ */
+public final class TypedRow implements TypedCells
+{
+    private final byte[] types;
+    private final long[] primitives;
+    private final Object[] objects;
+    private final ObjectMapper mapper;
+    private byte[] raw = new byte[0];
+
+    public TypedRow( int size )
+    {
+        this( size, null );
+    }
+
+    /**
+     * @param mapper decodes RAW_JSON cells
+     */
+    public TypedRow( int size, ObjectMapper mapper )
+    {
+        this.types = new byte[size];
+        this.primitives = new long[size];
+        this.objects = new Object[size];
+        this.mapper = mapper;
+    }
+
+    public int size()
+    {
+        return types.length;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( types, NULL );
+        Arrays.fill( objects, null );
+    }
+
+    public void setNull( int cell )
+    {
+        types[cell] = NULL;
+        objects[cell] = null;
+    }
+
+    public void setInt( int cell, int value )
+    {
+        setPrimitive( cell, INT, value );
+    }
+
+    public void setLong( int cell, long value )
+    {
+        setPrimitive( cell, LONG, value );
+    }
+
+    public void setDouble( int cell, double value )
+    {
+        setPrimitive( cell, DOUBLE, Double.doubleToRawLongBits( value ) );
+    }
+
+    public void setBoolean( int cell, boolean value )
+    {
+        setPrimitive( cell, BOOLEAN, value ? 1 : 0 );
+    }
+
+    private void setPrimitive( int cell, byte type, long value )
+    {
+        types[cell] = type;
+        primitives[cell] = value;
+        objects[cell] = null;
+    }
+
+    /**
+     * @return the raw JSON buffer of this row with at least the given capacity, its previous content is lost
+     */
+    public byte[] rawBuffer( int capacity )
+    {
+        if ( raw.length < capacity )
+        {
+            raw = new byte[Math.max( capacity, raw.length * 2 )];
+        }
+        return raw;
+    }
+
+    /**
+     * Sets the cell to the JSON value at the given slice of the raw buffer.
+     */
+    public void setRawJson( int cell, int offset, int length )
+    {
+        setPrimitive( cell, RAW_JSON, ((long) offset << 32) | length );
+    }
+
+    public void setObject( int cell, Object value )
+    {
+        types[cell] = value == null ? NULL : OBJECT;
+        objects[cell] = value;
+    }
+
+    public byte getType( int cell )
+    {
+        return types[cell];
+    }
+
+    public boolean isNumber( int cell )
+    {
+        return isNumber( types[cell] );
+    }
+
+    public static boolean isNumber( byte type )
+    {
+        return type == INT || type == LONG || type == DOUBLE;
+    }
+
+    public long getLong( int cell )
+    {
+        return toLong( types[cell], primitives[cell] );
+    }
+
+    public double getDouble( int cell )
+    {
+        return toDouble( types[cell], primitives[cell] );
+    }
+
+    public boolean getBoolean( int cell )
+    {
+        return primitives[cell] != 0;
+    }
+
+    /**
+     * The boxes of primitive values and decoded JSON values are kept for repeated access.
+     */
+    public Object get( int cell )
+    {
+        Object value = objects[cell];
+        if ( value == null && types[cell] == RAW_JSON )
+        {
+            value = decode( cell );
+            objects[cell] = value;
+        }
+        else if ( value == null && types[cell] > OBJECT )
+        {
+            value = box( types[cell], primitives[cell] );
+            objects[cell] = value;
+        }
+        return value;
+    }
+
+    private Object decode( int cell )
+    {
+        final long slice = primitives[cell];
+        try
+        {
+            return mapper.readValue( raw, (int) (slice >>> 32), (int) slice, Object.class );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Error decoding cell " + cell + ": " + getRawJson( cell ), e );
+        }
+    }
+
+    public String getRawJson( int cell )
+    {
+        if ( types[cell] != RAW_JSON )
+        {
+            return null;
+        }
+        final long slice = primitives[cell];
+        return new String( raw, (int) (slice >>> 32), (int) slice, UTF_8 );
+    }
+
+    /**
+     * @return the primitive lane value of an int, long or double cell as long, doubles are truncated
+     */
+    public static long toLong( byte type, long bits )
+    {
+        return type == DOUBLE ? (long) Double.longBitsToDouble( bits ) : bits;
+    }
+
+    /**
+     * @return the primitive lane value of an int, long or double cell as double
+     */
+    public static double toDouble( byte type, long bits )
+    {
+        return type == DOUBLE ? Double.longBitsToDouble( bits ) : bits;
+    }
+
+    /**
+     * @return the boxed value of a primitive cell
+     */
+    public static Object box( byte type, long bits )
+    {
+        switch ( type )
+        {
+            case INT:
+                return (int) bits;
+            case LONG:
+                return bits;
+            case DOUBLE:
+                return Double.longBitsToDouble( bits );
+            default:
+                return bits != 0;
+        }
+    }
+
+    /**
+     * Copies the (boxed) values of this row into the given array, the array has to be at least as long as the row.
+     */
+    public Object[] toArray( Object[] target )
+    {
+        for ( int cell = 0; cell < types.length; cell++ )
+        {
+            target[cell] = get( cell );
+        }
+        return target;
+    }
+
+    public Object[] toArray()
+    {
+        return toArray( new Object[types.length] );
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString( toArray() );
+    }
+}
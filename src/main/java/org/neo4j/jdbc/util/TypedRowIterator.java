@@ -0,0 +1,14 @@
+package org.neo4j.jdbc.util;
+
+/**
+ * Row iterator that can also hand out its rows in their unboxed form. next() and nextTypedRow() advance the same
+ * underlying iteration.
+ */
+public interface TypedRowIterator extends ClosableIterator<Object[]>
+{
+    /**
+     * @return the next row, which stays valid until the row after it has been returned, as hasNext() might already
+     * decode the following row
+     */
+    TypedRow nextTypedRow();
+}
@@ -0,0 +1,134 @@
+package org.neo4j.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.jdbc.rest.Cluster;
+import org.neo4j.server.CommunityNeoServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Routes between two plain servers, the first one takes writes and the second one reads.
+ */
+public class ClusterRoutingTest
+{
+    private static final int FIRST_PORT = TestServer.PORT + 10;
+    private static final int SECOND_PORT = TestServer.PORT + 11;
+
+    private CommunityNeoServer first;
+    private CommunityNeoServer second;
+    private Driver driver;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        first = TestServer.startWebServer( FIRST_PORT, false );
+        second = TestServer.startWebServer( SECOND_PORT, false );
+        driver = new Driver();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if ( first != null )
+        {
+            first.stop();
+        }
+        second.stop();
+    }
+
+    private Neo4jConnection connect() throws SQLException
+    {
+        return driver.connect( "jdbc:neo4j://localhost:" + FIRST_PORT + ",localhost:" + SECOND_PORT +
+                "?haCheckInterval=0", new Properties() );
+    }
+
+    private static int countNodes( Connection connection ) throws SQLException
+    {
+        final ResultSet rs = connection.createStatement().executeQuery( "match (n) return count(*) as c" );
+        rs.next();
+        return rs.getInt( "c" );
+    }
+
+    @Test
+    public void testRoutesReadsAndWrites() throws Exception
+    {
+        final Neo4jConnection writer = connect();
+        final Cluster cluster = driver.getClusters().getClusters().iterator().next();
+        assertSame( Cluster.Role.STANDALONE, cluster.getMembers().get( 0 ).getRole() );
+        assertSame( Cluster.Role.STANDALONE, cluster.getMembers().get( 1 ).getRole() );
+        writer.createStatement().executeUpdate( "create (:Routed)" );
+        assertEquals( 1, countNodes( writer ) );
+
+        final Neo4jConnection reader = connect();
+        reader.setReadOnly( true );
+        assertEquals( 0, countNodes( reader ) );
+        reader.setReadOnly( false );
+        assertEquals( 1, countNodes( reader ) );
+        writer.close();
+        reader.close();
+    }
+
+    @Test
+    public void testTransactionStaysOnItsServer() throws Exception
+    {
+        final Neo4jConnection connection = connect();
+        connection.setAutoCommit( false );
+        connection.createStatement().executeUpdate( "create (:Routed)" );
+        connection.setReadOnly( true );
+        assertEquals( 1, countNodes( connection ) );
+        connection.commit();
+        assertEquals( 0, countNodes( connection ) );
+        connection.close();
+    }
+
+    @Test
+    public void testReportsExpiryOfTransactionOnItsServer() throws Exception
+    {
+        final Neo4jConnection connection = connect();
+        connection.setAutoCommit( false );
+        assertEquals( 0, connection.getTransactionExpiry() );
+        connection.createStatement().executeUpdate( "create (:Routed)" );
+        assertTrue( connection.getTransactionExpiry() > System.currentTimeMillis() );
+        connection.commit();
+        assertEquals( 0, connection.getTransactionExpiry() );
+        connection.close();
+    }
+
+    @Test
+    public void testFailsOverWhenWriterIsDown() throws Exception
+    {
+        final Neo4jConnection connection = connect();
+        final Cluster cluster = driver.getClusters().getClusters().iterator().next();
+        assertEquals( "http://localhost:" + FIRST_PORT, cluster.getWriter().getUrl() );
+
+        first.stop();
+        first = null;
+        cluster.check();
+        assertSame( Cluster.Role.DOWN, cluster.getMembers().get( 0 ).getRole() );
+        assertEquals( "http://localhost:" + SECOND_PORT, cluster.getWriter().getUrl() );
+        connection.createStatement().executeUpdate( "create (:Routed)" );
+        assertEquals( 1, countNodes( connection ) );
+        connection.close();
+    }
+
+    @Test
+    public void testClusterIsReleasedWithLastConnection() throws Exception
+    {
+        final Neo4jConnection connection = connect();
+        final Neo4jConnection other = connect();
+        assertEquals( 1, driver.getClusters().getClusters().size() );
+        connection.close();
+        assertEquals( 1, driver.getClusters().getClusters().size() );
+        other.close();
+        assertTrue( driver.getClusters().getClusters().isEmpty() );
+    }
+}
@@ -0,0 +1,65 @@
+package org.neo4j.jdbc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ColumnIndexTest
+{
+    @Test
+    public void testFindsAllColumns() throws Exception
+    {
+        final String[] names = new String[60];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            names[i] = "column" + i;
+        }
+        final ColumnIndex index = new ColumnIndex( names, false );
+        for ( int i = 0; i < names.length; i++ )
+        {
+            assertEquals( i + 1, index.indexOf( "column" + i ) );
+        }
+        assertEquals( 0, index.indexOf( "column60" ) );
+        assertEquals( 0, index.indexOf( "COLUMN1" ) );
+        assertEquals( 0, index.indexOf( null ) );
+    }
+
+    @Test
+    public void testFirstDuplicateColumnWins() throws Exception
+    {
+        final ColumnIndex index = new ColumnIndex( new String[]{"a", "b", "a"}, false );
+        assertEquals( 1, index.indexOf( "a" ) );
+        assertEquals( 2, index.indexOf( "b" ) );
+    }
+
+    @Test
+    public void testCaseInsensitivePrefersExactMatch() throws Exception
+    {
+        final ColumnIndex index = new ColumnIndex( new String[]{"Name", "n", "N"}, true );
+        assertEquals( 1, index.indexOf( "name" ) );
+        assertEquals( 1, index.indexOf( "NAME" ) );
+        assertEquals( 2, index.indexOf( "n" ) );
+        assertEquals( 3, index.indexOf( "N" ) );
+        assertEquals( 0, index.indexOf( "nam" ) );
+    }
+
+    @Test
+    public void testSharesIndexForSameSchema() throws Exception
+    {
+        final ColumnIndex index = ColumnIndex.of( new String[]{"a", "b"}, false );
+        assertSame( index, ColumnIndex.of( new String[]{"a", "b"}, false ) );
+        assertEquals( 2, ColumnIndex.of( new String[]{"a", "b"}, true ).indexOf( "B" ) );
+    }
+
+    @Test
+    public void testIsNotAffectedByChangesToTheNamesArray() throws Exception
+    {
+        final String[] names = {"x", "y"};
+        final ColumnIndex index = ColumnIndex.of( names, false );
+        names[0] = "z";
+        assertEquals( 1, index.indexOf( "x" ) );
+        assertEquals( 0, index.indexOf( "z" ) );
+        assertSame( index, ColumnIndex.of( new String[]{"x", "y"}, false ) );
+    }
+}
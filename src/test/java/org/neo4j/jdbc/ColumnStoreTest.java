@@ -0,0 +1,72 @@
+package org.neo4j.jdbc;
+
+import org.junit.Test;
+
+import org.neo4j.jdbc.util.TypedCells;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class ColumnStoreTest
+{
+    @Test
+    public void testStoresCellsByColumn() throws Exception
+    {
+        final ColumnStore store = new ColumnStore( 3 );
+        for ( int i = 0; i < 100; i++ )
+        {
+            final int row = store.addRow();
+            store.set( row, 0, (long) i );
+            store.set( row, 1, i % 2 == 0 ? "even" : null );
+            store.set( row, 2, i * 0.5 );
+        }
+        assertEquals( 100, store.rows() );
+        final ColumnStore.Cursor cursor = store.cursor();
+        assertEquals( TypedCells.LONG, cursor.at( 42 ).getType( 0 ) );
+        assertEquals( 42L, cursor.getLong( 0 ) );
+        assertEquals( 21.0, cursor.getDouble( 2 ), 0 );
+        assertEquals( "even", cursor.get( 1 ) );
+        assertEquals( TypedCells.NULL, cursor.at( 43 ).getType( 1 ) );
+        assertNull( cursor.get( 1 ) );
+        assertArrayEquals( new Object[]{99L, null, 49.5}, store.toArray( 99 ) );
+    }
+
+    @Test
+    public void testKeepsTypesOfBoxedValues() throws Exception
+    {
+        final ColumnStore store = new ColumnStore( 4 );
+        final int row = store.addRow();
+        store.set( row, 0, 1 );
+        store.set( row, 1, (short) 2 );
+        store.set( row, 2, true );
+        store.set( row, 3, 4f );
+        assertArrayEquals( new Object[]{1, (short) 2, true, 4f}, store.toArray( row ) );
+        store.set( row, 1, 5L );
+        assertEquals( 5L, store.get( row, 1 ) );
+    }
+
+    @Test
+    public void testAddColumnAfterRows() throws Exception
+    {
+        final ColumnStore store = new ColumnStore( 1 );
+        for ( int i = 0; i < 20; i++ )
+        {
+            store.set( store.addRow(), 0, i );
+        }
+        final int column = store.addColumn();
+        store.set( 19, column, "last" );
+        assertArrayEquals( new Object[]{19, "last"}, store.toArray( 19 ) );
+        assertArrayEquals( new Object[]{0, null}, store.toArray( 0 ) );
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCursorChecksRow() throws Exception
+    {
+        final ColumnStore store = new ColumnStore( 1 );
+        store.addRow();
+        assertFalse( store.cursor().at( 0 ).isNumber( 0 ) );
+        store.cursor().at( 1 );
+    }
+}
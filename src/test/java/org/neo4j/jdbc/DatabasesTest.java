@@ -9,10 +9,14 @@ import org.junit.Test;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.io.fs.FileUtils;
+import org.neo4j.jdbc.embedded.CypherEngine;
 import org.neo4j.jdbc.embedded.EmbeddedDatabases;
 import org.neo4j.kernel.EmbeddedGraphDatabase;
 import org.neo4j.test.ImpermanentGraphDatabase;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -56,6 +60,57 @@ public class DatabasesTest
         assertSame( db2, db );
     }
 
+    @Test
+    public void testInstanceIsNotKeptByName() throws Exception
+    {
+        final GraphDatabaseService db = new ImpermanentGraphDatabase();
+        final GraphDatabaseService other = new ImpermanentGraphDatabase();
+        try
+        {
+            final Properties props = new Properties();
+            props.put( "a", db );
+            assertSame( db, databases.createDatabase( ":instance:a", props ) );
+            props.put( "a", other );
+            assertSame( other, databases.createDatabase( ":instance:a", props ) );
+            assertFalse( databases.getQueryPlanCaches().containsKey( "a" ) );
+        }
+        finally
+        {
+            db.shutdown();
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testShareEngineOfInstance() throws Exception
+    {
+        final GraphDatabaseService db = new ImpermanentGraphDatabase();
+        final GraphDatabaseService other = new ImpermanentGraphDatabase();
+        try
+        {
+            final CypherEngine engine = CypherEngine.of( db );
+            assertSame( engine, CypherEngine.of( db ) );
+            assertNotSame( engine, CypherEngine.of( other ) );
+        }
+        finally
+        {
+            db.shutdown();
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void testDropEngineOnShutdown() throws Exception
+    {
+        final GraphDatabaseService db = databases.createDatabase( ":mem:dropped", null );
+        final CypherEngine engine = CypherEngine.of( db );
+        db.shutdown();
+        assertTrue( engine.isShutdown() );
+        final GraphDatabaseService recreated = databases.createDatabase( ":mem:dropped", null );
+        assertNotSame( db, recreated );
+        assertNotSame( engine, CypherEngine.of( recreated ) );
+    }
+
     @Test
     public void testLocateFileDb() throws Exception
     {
@@ -65,4 +120,20 @@ public class DatabasesTest
         final GraphDatabaseService db2 = databases.createDatabase( ":file:target/test-db", null );
         assertSame( db2, db );
     }
+
+    @Test
+    public void testShareQueryPlanCacheOfNamedDatabase() throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty( EmbeddedDatabases.PLAN_CACHE_SIZE, "10" );
+        final QueryExecutor first = databases.createExecutor( ":mem:plans", props );
+        final QueryExecutor second = databases.createExecutor( ":mem:plans", props );
+        first.executeQuery( "return 1", null, true ).iterator().next();
+        second.executeQuery( "return 1", null, true ).iterator().next();
+
+        final QueryPlanCache cache = databases.getQueryPlanCaches().get( "plans" );
+        assertEquals( 10, cache.getSize() );
+        assertTrue( cache.getMisses() > 0 );
+        assertTrue( cache.getHits() > 0 );
+    }
 }
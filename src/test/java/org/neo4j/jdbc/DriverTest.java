@@ -30,6 +30,7 @@ import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.neo4j.jdbc.rest.Transports;
 
 /**
  * TODO
@@ -66,6 +67,14 @@ public class DriverTest extends Neo4jJdbcTest
         Assert.assertNull( driver.connect( "jdbc:derby://localhost:7474/", properties ) );
     }
 
+    @Test(expected = SQLException.class)
+    public void testInvalidPoolPropertyFailsConnect() throws SQLException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( Transports.IDLE_TIMEOUT, "soon" );
+        driver.connect( "jdbc:neo4j://localhost:7474/", properties );
+    }
+
     @Test
     public void testURLProperties() throws SQLException
     {
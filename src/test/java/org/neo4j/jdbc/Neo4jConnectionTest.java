@@ -23,7 +23,14 @@ package org.neo4j.jdbc;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
 import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
@@ -40,10 +47,15 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.helpers.collection.IteratorUtil;
 import org.neo4j.tooling.GlobalGraphOperations;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class Neo4jConnectionTest extends Neo4jJdbcTest
 {
@@ -113,6 +125,133 @@ public class Neo4jConnectionTest extends Neo4jJdbcTest
         assertFalse( rs.next() );
     }
 
+    @Test
+    public void testIsValid() throws Exception
+    {
+        final Neo4jConnection connection = connect( mode );
+        assertTrue( connection.isValid( 1 ) );
+        assertTrue( connection.isValid( 0 ) );
+        connection.close();
+        assertFalse( connection.isValid( 1 ) );
+    }
+
+    @Test
+    public void testExecuteQueryAsync() throws Exception
+    {
+        final QueryFuture<ResultSet> future = conn.unwrap( Neo4jConnection.class ).executeQueryAsync(
+                "return 42 as answer", null );
+        final CountDownLatch notified = new CountDownLatch( 1 );
+        future.addListener( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                notified.countDown();
+            }
+        } );
+        final ResultSet rs = future.get( 10, TimeUnit.SECONDS );
+        assertTrue( rs.next() );
+        assertEquals( 42, rs.getInt( "answer" ) );
+        assertTrue( notified.await( 10, TimeUnit.SECONDS ) );
+    }
+
+    private static final String SLOW_QUERY = "unwind range(1,100000000) as x match (n) where id(n) = x % 10 " +
+            "return count(*) as c";
+
+    @Test
+    public void testCancelExecuteQueryAsync() throws Exception
+    {
+        final Neo4jConnection connection = connectCancellable( mode );
+        final QueryFuture<ResultSet> future = connection.executeQueryAsync( SLOW_QUERY, null );
+        Thread.sleep( 500 );
+        assertTrue( future.cancel( true ) );
+        try
+        {
+            future.get();
+            fail( "statement not cancelled" );
+        }
+        catch ( CancellationException e )
+        {
+            // expected
+        }
+        // runs after the cancelled statement on the same async executor, so that one has to be aborted
+        final long start = System.currentTimeMillis();
+        final ResultSet rs = connection.executeQueryAsync( "return 42 as answer", null ).get( 10, TimeUnit.SECONDS );
+        assertTrue( rs.next() );
+        assertEquals( 42, rs.getInt( "answer" ) );
+        assertTrue( System.currentTimeMillis() - start < 10000 );
+        connection.close();
+    }
+
+    @Test
+    public void testTransactionOfCancelledStatementIsRolledBack() throws Exception
+    {
+        assumeTrue( mode == Mode.server_tx );
+        final Neo4jConnection connection = connectCancellable( mode );
+        connection.setAutoCommit( false );
+        connection.createStatement().executeUpdate( "create (:CancelledTx)" );
+        final QueryFuture<ResultSet> future = connection.executeQueryAsync( SLOW_QUERY, null );
+        Thread.sleep( 500 );
+        assertTrue( future.cancel( true ) );
+        try
+        {
+            connection.executeQueryAsync( "create (:CancelledTx)", null ).get( 10, TimeUnit.SECONDS );
+            fail( "statement continued in a new transaction" );
+        }
+        catch ( ExecutionException e )
+        {
+            assertTrue( e.getCause() instanceof SQLTransactionRollbackException );
+        }
+        connection.rollback();
+        connection.createStatement().executeUpdate( "create (:CancelledTx)" );
+        connection.commit();
+        final ResultSet rs = conn.createStatement().executeQuery( "match (n:CancelledTx) return count(*) as c" );
+        assertTrue( rs.next() );
+        assertEquals( 1, rs.getInt( "c" ) );
+        connection.close();
+    }
+
+    @Test
+    public void testPublishQueryReadsRowsOnDemand() throws Exception
+    {
+        final RowSubscriber subscriber = new RowSubscriber( 3 );
+        conn.unwrap( Neo4jConnection.class ).publishQuery( "unwind range(0,9) as x return x", null ).subscribe(
+                subscriber );
+        assertTrue( subscriber.received.await( 10, TimeUnit.SECONDS ) );
+        Thread.sleep( 100 );
+        assertEquals( 3, subscriber.rows.size() );
+        assertEquals( 1, subscriber.completed.getCount() );
+
+        subscriber.subscription.request( 2 );
+        subscriber.subscription.request( Long.MAX_VALUE );
+        assertTrue( subscriber.completed.await( 10, TimeUnit.SECONDS ) );
+        assertNull( subscriber.error );
+        assertEquals( 10, subscriber.rows.size() );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( i, ((Number) subscriber.rows.get( i )[0]).intValue() );
+        }
+    }
+
+    @Test
+    public void testCancelPublishedQuery() throws Exception
+    {
+        final Neo4jConnection connection = conn.unwrap( Neo4jConnection.class );
+        final RowSubscriber subscriber = new RowSubscriber( 2 );
+        connection.publishQuery( "unwind range(0,100000) as x return x", null ).subscribe( subscriber );
+        assertTrue( subscriber.received.await( 10, TimeUnit.SECONDS ) );
+        subscriber.subscription.cancel();
+        subscriber.subscription.request( 10 );
+        Thread.sleep( 100 );
+        assertEquals( 2, subscriber.rows.size() );
+        assertEquals( 1, subscriber.completed.getCount() );
+
+        // the cancelled result was closed, the connection can run the next statement
+        final ResultSet rs = connection.executeQueryAsync( "return 42 as answer", null ).get( 10, TimeUnit.SECONDS );
+        assertTrue( rs.next() );
+        assertEquals( 42, rs.getInt( "answer" ) );
+    }
+
     @Test
     public void testTableColumns() throws Exception
     {
@@ -134,4 +273,47 @@ public class Neo4jConnectionTest extends Neo4jJdbcTest
         }
         assertTrue( found );
     }
+
+    private static class RowSubscriber implements Subscriber<Object[]>
+    {
+        private final long initialRequest;
+        private final List<Object[]> rows = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received;
+        private final CountDownLatch completed = new CountDownLatch( 1 );
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        RowSubscriber( long initialRequest )
+        {
+            this.initialRequest = initialRequest;
+            this.received = new CountDownLatch( (int) initialRequest );
+        }
+
+        @Override
+        public void onSubscribe( Subscription subscription )
+        {
+            this.subscription = subscription;
+            subscription.request( initialRequest );
+        }
+
+        @Override
+        public void onNext( Object[] row )
+        {
+            rows.add( row );
+            received.countDown();
+        }
+
+        @Override
+        public void onError( Throwable t )
+        {
+            error = t;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed.countDown();
+        }
+    }
 }
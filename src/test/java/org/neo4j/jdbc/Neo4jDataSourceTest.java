@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2002-2011 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Neo4jDataSourceTest
+{
+    private Neo4jDataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dataSource = new Neo4jDataSource();
+        dataSource.setUrl( "jdbc:neo4j:mem:pool" );
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        dataSource.close();
+    }
+
+    @Test
+    public void testReusesReturnedConnection() throws Exception
+    {
+        final Connection first = dataSource.getConnection();
+        assertEquals( 1, dataSource.getActiveCount() );
+        first.close();
+        assertTrue( first.isClosed() );
+        assertEquals( 0, dataSource.getActiveCount() );
+        assertEquals( 1, dataSource.getIdleCount() );
+
+        final Connection second = dataSource.getConnection();
+        assertNotSame( first, second );
+        assertEquals( 1, dataSource.getCreatedCount() );
+        assertEquals( 2, dataSource.getBorrowCount() );
+        second.close();
+    }
+
+    @Test
+    public void testClosedHandleCantBeUsed() throws Exception
+    {
+        final Connection connection = dataSource.getConnection();
+        connection.close();
+        try
+        {
+            connection.createStatement();
+            fail( "Closed connection used" );
+        }
+        catch ( SQLException e )
+        {
+            assertEquals( Neo4jPooledConnection.CLOSED_STATE, e.getSQLState() );
+        }
+    }
+
+    @Test
+    public void testStatementsBelongToHandle() throws Exception
+    {
+        final Connection connection = dataSource.getConnection();
+        final Statement stmt = connection.createStatement();
+        assertSame( connection, stmt.getConnection() );
+        assertSame( connection, connection.prepareStatement( "return 1 as x" ).getConnection() );
+        assertSame( connection, connection.getMetaData().getConnection() );
+        final ResultSet rs = stmt.executeQuery( "return 1 as x" );
+        assertSame( stmt, rs.getStatement() );
+        assertSame( connection, connection.unwrap( Connection.class ) );
+        assertFalse( connection.isWrapperFor( Neo4jConnection.class ) );
+        try
+        {
+            stmt.unwrap( Neo4jStatement.class );
+            fail( "Unwrapped the physical statement" );
+        }
+        catch ( SQLException e )
+        {
+            // expected
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testStatementCantBeUsedAfterHandleIsClosed() throws Exception
+    {
+        final Connection connection = dataSource.getConnection();
+        final Statement stmt = connection.createStatement();
+        connection.close();
+        assertTrue( stmt.isClosed() );
+        try
+        {
+            stmt.executeQuery( "return 1 as x" );
+            fail( "Statement of closed connection used" );
+        }
+        catch ( SQLException e )
+        {
+            assertEquals( Neo4jPooledConnection.CLOSED_STATE, e.getSQLState() );
+        }
+    }
+
+    @Test
+    public void testResetsReturnedConnection() throws Exception
+    {
+        final Connection connection = dataSource.getConnection();
+        connection.setAutoCommit( false );
+        connection.createStatement().executeUpdate( "create (:Pooled)" );
+        connection.setReadOnly( true );
+        connection.close();
+
+        final Connection reused = dataSource.getConnection();
+        assertTrue( reused.getAutoCommit() );
+        assertFalse( reused.isReadOnly() );
+        final ResultSet rs = reused.createStatement().executeQuery( "match (n:Pooled) return count(*) as c" );
+        assertTrue( rs.next() );
+        assertEquals( 0, rs.getInt( "c" ) );
+        reused.close();
+    }
+
+    @Test
+    public void testWaitsForMaxActiveConnections() throws Exception
+    {
+        dataSource.setMaxActive( 1 );
+        dataSource.setMaxWait( 50 );
+        final Connection connection = dataSource.getConnection();
+        try
+        {
+            dataSource.getConnection();
+            fail( "Borrowed more than maxActive connections" );
+        }
+        catch ( SQLTransientConnectionException e )
+        {
+            // expected
+        }
+        connection.close();
+        dataSource.getConnection().close();
+        assertTrue( dataSource.getMaxBorrowWaitNanos() >= 0 );
+    }
+
+    @Test
+    public void testClosesConnectionsBeyondMaxIdle() throws Exception
+    {
+        dataSource.setMaxIdle( 1 );
+        final Connection first = dataSource.getConnection();
+        final Connection second = dataSource.getConnection();
+        first.close();
+        second.close();
+        assertEquals( 1, dataSource.getIdleCount() );
+        assertEquals( 1, dataSource.getDestroyedCount() );
+    }
+
+    @Test
+    public void testDetectsLeakedConnection() throws Exception
+    {
+        dataSource.setLeakThreshold( 20 );
+        final Connection connection = dataSource.getConnection();
+        Thread.sleep( 200 );
+        assertEquals( 1, dataSource.getLeakCount() );
+        connection.close();
+        dataSource.getConnection().close();
+        Thread.sleep( 100 );
+        assertEquals( 1, dataSource.getLeakCount() );
+    }
+}
@@ -32,6 +32,7 @@ import org.neo4j.graphdb.DynamicRelationshipType;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.jdbc.rest.TransactionalQueryExecutor;
 import org.neo4j.kernel.KernelData;
 import org.neo4j.server.CommunityNeoServer;
 import org.neo4j.test.ImpermanentGraphDatabase;
@@ -79,6 +80,14 @@ public abstract class Neo4jJdbcTest
         embedded, server, server_tx, server_auth
     }
 
+    /**
+     * @return true if the connections of the mode use the legacy Cypher endpoint
+     */
+    protected boolean isLegacy()
+    {
+        return mode == Mode.server || mode == Mode.server_auth;
+    }
+
     @Parameterized.Parameters
     public static Collection<Object[]> data()
     {
@@ -103,8 +112,25 @@ public abstract class Neo4jJdbcTest
     }
 
     protected Neo4jConnection connect( Mode mode ) throws SQLException
+    {
+        return connect( mode, new Properties() );
+    }
+
+    /**
+     * @return a connection whose statements can be aborted while they run on the server
+     */
+    protected Neo4jConnection connectCancellable( Mode mode ) throws SQLException
     {
         final Properties props = new Properties();
+        props.setProperty( TransactionalQueryExecutor.CANCELLABLE, "true" );
+        return connect( mode, props );
+    }
+
+    /**
+     * @param props additional connection properties
+     */
+    protected Neo4jConnection connect( Mode mode, Properties props ) throws SQLException
+    {
         switch ( mode )
         {
             case embedded:
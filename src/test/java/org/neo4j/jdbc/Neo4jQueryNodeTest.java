@@ -22,9 +22,14 @@ package org.neo4j.jdbc;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
+import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -33,8 +38,12 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
+import org.neo4j.jdbc.rest.TransactionalQueryExecutor;
+
+import static java.util.Arrays.asList;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assume.assumeTrue;
 
 public class Neo4jQueryNodeTest extends Neo4jJdbcTest
 {
@@ -81,6 +90,49 @@ public class Neo4jQueryNodeTest extends Neo4jJdbcTest
         Assert.assertThat( count, is( 5 ) );
     }
 
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testLazyCells() throws Exception
+    {
+        assumeTrue( mode == Mode.server_tx );
+        final Properties props = new Properties();
+        props.setProperty( TransactionalQueryExecutor.LAZY_CELLS, "true" );
+        final ObjectMapper mapper = new ObjectMapper();
+        try ( Neo4jConnection connection = connect( mode, props ) )
+        {
+            final ResultSet rs = connection.createStatement().executeQuery( "create (n:Lazy {name:'lazy', age:42}) " +
+                    "return n, {name:'map', ids:[1,2]} as m, [3,4] as l, 7 as number, 1.5 as fraction" );
+            Assert.assertTrue( rs.next() );
+
+            final Map<String, Object> node = (Map<String, Object>) rs.getObject( "n" );
+            Assert.assertEquals( "lazy", node.get( "name" ) );
+            Assert.assertEquals( 42, ((Number) node.get( "age" )).intValue() );
+            Assert.assertEquals( node, mapper.readValue( rs.getString( "n" ), Map.class ) );
+
+            final Map<String, Object> map = (Map<String, Object>) rs.getObject( "m" );
+            Assert.assertEquals( asList( 1, 2 ), map.get( "ids" ) );
+            Assert.assertEquals( map, mapper.readValue( rs.getString( "m" ), Map.class ) );
+            Assert.assertEquals( asList( 3, 4 ), rs.getObject( "l" ) );
+            Assert.assertEquals( asList( 3, 4 ), mapper.readValue( rs.getString( "l" ), List.class ) );
+
+            Assert.assertEquals( 7, rs.getLong( "number" ) );
+            Assert.assertEquals( "7", rs.getString( "number" ) );
+            Assert.assertEquals( 7L, ((Number) rs.getObject( "number" )).longValue() );
+            Assert.assertEquals( 1, rs.getLong( "fraction" ) );
+            Assert.assertEquals( 1.5, ((Number) rs.getObject( "fraction" )).doubleValue(), 0 );
+            try
+            {
+                rs.getLong( "m" );
+                Assert.fail( "a map is not a number" );
+            }
+            catch ( SQLDataException e )
+            {
+                // expected
+            }
+            Assert.assertFalse( rs.next() );
+        }
+    }
+
     private void createData( GraphDatabaseService gdb )
     {
         try ( Transaction tx = gdb.beginTx() )
@@ -20,21 +20,29 @@
 
 package org.neo4j.jdbc;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import org.neo4j.graphdb.DynamicLabel;
 import org.neo4j.graphdb.Node;
+import org.neo4j.jdbc.rest.TransactionalQueryExecutor;
 import org.neo4j.tooling.GlobalGraphOperations;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import static org.neo4j.helpers.collection.MapUtil.map;
 
@@ -71,6 +79,104 @@ public class Neo4jStatementTest extends Neo4jJdbcTest
         assertFalse( rs.next() );
     }
 
+    @Test
+    public void testQueryTimeout() throws Exception
+    {
+        final Statement stmt = conn.createStatement();
+        assertEquals( 0, stmt.getQueryTimeout() );
+        stmt.setQueryTimeout( 5 );
+        assertEquals( 5, stmt.getQueryTimeout() );
+        final ResultSet rs = stmt.executeQuery( nodeByIdQuery( nodeId ) );
+        assertTrue( rs.next() );
+        assertFalse( rs.next() );
+    }
+
+    @Test(expected = SQLException.class)
+    public void testNegativeQueryTimeout() throws Exception
+    {
+        conn.createStatement().setQueryTimeout( -1 );
+    }
+
+    @Test
+    public void testCancelIdleStatement() throws Exception
+    {
+        final Statement stmt = conn.createStatement();
+        stmt.cancel();
+        final ResultSet rs = stmt.executeQuery( nodeByIdQuery( nodeId ) );
+        assertTrue( rs.next() );
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void testQueryTimesOut() throws Exception
+    {
+        try ( Neo4jConnection connection = connectCancellable( mode ) )
+        {
+            final Statement stmt = connection.createStatement();
+            stmt.setQueryTimeout( 1 );
+            final ResultSet rs = stmt.executeQuery( "unwind range(1,100000000) as x match (n) where id(n) = x % 10 " +
+                    "return count(*) as c" );
+            rs.next();
+        }
+    }
+
+    @Test
+    public void testCancelRunningStatement() throws Exception
+    {
+        final Neo4jConnection connection = connectCancellable( mode );
+        final Statement stmt = connection.createStatement();
+        final Thread canceller = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep( 500 );
+                    stmt.cancel();
+                }
+                catch ( Exception e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+        };
+        canceller.start();
+        final long start = System.currentTimeMillis();
+        try
+        {
+            final ResultSet rs = stmt.executeQuery( "unwind range(1,100000000) as x match (n) where id(n) = x % 10 " +
+                    "return count(*) as c" );
+            rs.next();
+            fail( "statement not cancelled" );
+        }
+        catch ( SQLException e )
+        {
+            assertEquals( "57014", e.getSQLState() );
+        }
+        finally
+        {
+            canceller.join();
+            connection.close();
+        }
+        assertTrue( System.currentTimeMillis() - start < 10000 );
+    }
+
+    @Test
+    public void testScrollableResult() throws Exception
+    {
+        final Statement stmt = conn.createStatement( ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY );
+        final ResultSet rs = stmt.executeQuery( "unwind range(1,10) as x return x" );
+        assertEquals( ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType() );
+        assertTrue( rs.last() );
+        assertEquals( 10, rs.getRow() );
+        assertEquals( 10, rs.getInt( "x" ) );
+        assertTrue( rs.absolute( 3 ) );
+        assertEquals( 3, rs.getInt( "x" ) );
+        assertTrue( rs.previous() );
+        assertEquals( 2, rs.getInt( "x" ) );
+        rs.close();
+    }
+
     @Test(expected = SQLException.class)
     public void testPreparedStatementMissingParameter() throws Exception
     {
@@ -129,6 +235,127 @@ public class Neo4jStatementTest extends Neo4jJdbcTest
         assertEquals( 1, count );
     }
 
+    @Test
+    public void testExecuteBatch() throws Exception
+    {
+        final Statement stmt = conn.createStatement();
+        stmt.addBatch( "create (n:User {name:'a'})" );
+        stmt.addBatch( "create (n:User {name:'b'})" );
+        stmt.addBatch( "match (n:User) return count(*)" );
+        final int[] counts = stmt.executeBatch();
+        if ( isLegacy() )
+        {
+            assertArrayEquals( new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO,
+                    Statement.SUCCESS_NO_INFO}, counts );
+        }
+        else
+        {
+            assertArrayEquals( new int[]{3, 3, 0}, counts );
+        }
+        assertEquals( 2, countUsers() );
+        assertArrayEquals( new int[0], stmt.executeBatch() );
+    }
+
+    @Test
+    public void testExecutePreparedStatementBatch() throws Exception
+    {
+        final PreparedStatement ps = conn.prepareStatement( "create (n:User {name:{1}})" );
+        for ( int i = 0; i < 250; i++ )
+        {
+            ps.setString( 1, "user" + i );
+            ps.addBatch();
+        }
+        assertEquals( 250, ps.executeBatch().length );
+        assertEquals( 250, countUsers() );
+    }
+
+    @Test
+    public void testUnwindBatch() throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty( Driver.UNWIND_BATCH, "true" );
+        try ( Neo4jConnection connection = connect( mode, props ) )
+        {
+            final PreparedStatement ps = connection.prepareStatement( "CREATE (:UnwindUser {id:{1}, name:{2}})" );
+            for ( int i = 1; i <= 3; i++ )
+            {
+                ps.setInt( 1, i );
+                ps.setString( 2, "user" + i );
+                ps.addBatch();
+            }
+            assertArrayEquals( new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO,
+                    Statement.SUCCESS_NO_INFO}, ps.executeBatch() );
+        }
+        final ResultSet rs = conn.createStatement().executeQuery( "match (n:UnwindUser) where n.name = 'user' + " +
+                "n.id return count(*) as c, sum(n.id) as s" );
+        assertTrue( rs.next() );
+        assertEquals( 3, rs.getInt( "c" ) );
+        assertEquals( 6, rs.getInt( "s" ) );
+    }
+
+    @Test
+    public void testFailingBatch() throws Exception
+    {
+        final Statement stmt = conn.createStatement();
+        stmt.addBatch( "create (n:User {name:'a'})" );
+        stmt.addBatch( "create (n:User {name:'b'}) return 1 / 0" );
+        try
+        {
+            stmt.executeBatch();
+            fail( "batch should fail" );
+        }
+        catch ( BatchUpdateException e )
+        {
+            assertEquals( 1, e.getUpdateCounts().length );
+        }
+        // the legacy endpoint commits every statement on its own
+        assertEquals( isLegacy() ? 1 : 0, countUsers() );
+    }
+
+    @Test
+    public void testAutoCommitBatchFailingInLaterChunk() throws Exception
+    {
+        assumeTrue( mode == Mode.server_tx );
+        final Properties props = new Properties();
+        props.setProperty( TransactionalQueryExecutor.BATCH_SIZE, "2" );
+        try ( Neo4jConnection connection = connect( mode, props ) )
+        {
+            final Statement stmt = connection.createStatement();
+            stmt.addBatch( "create (n:User {name:'a'})" );
+            stmt.addBatch( "create (n:User {name:'b'})" );
+            stmt.addBatch( "create (n:User {name:'c'})" );
+            stmt.addBatch( "create (n:User {name:'d'}) return 1 / 0" );
+            stmt.addBatch( "create (n:User {name:'e'})" );
+            try
+            {
+                stmt.executeBatch();
+                fail( "batch should fail" );
+            }
+            catch ( BatchUpdateException e )
+            {
+                assertArrayEquals( new int[]{3, 3, 3}, e.getUpdateCounts() );
+            }
+            // the transaction of the batch is gone, the connection is still in auto commit mode
+            assertTrue( connection.getAutoCommit() );
+            assertEquals( 0, connection.getTransactionExpiry() );
+            assertEquals( 0, countUsers() );
+            stmt.executeUpdate( "create (n:User {name:'f'})" );
+        }
+        assertEquals( 1, countUsers() );
+    }
+
+    private int countUsers()
+    {
+        int count = 0;
+        begin();
+        for ( Node ignored : GlobalGraphOperations.at( gdb ).getAllNodesWithLabel( DynamicLabel.label( "User" ) ) )
+        {
+            count++;
+        }
+        done();
+        return count;
+    }
+
     @Test(expected = SQLException.class)
     public void testCreateOnReadonlyConnection() throws Exception
     {
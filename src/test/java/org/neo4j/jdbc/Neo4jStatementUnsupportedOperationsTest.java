@@ -64,24 +64,6 @@ public class Neo4jStatementUnsupportedOperationsTest extends Neo4jJdbcTest
         conn.createStatement().setEscapeProcessing( false );
     }
 
-    @Test(expected = SQLFeatureNotSupportedException.class)
-    public void testGetQueryTimeoutIsUnsupported() throws Exception
-    {
-        conn.createStatement().getQueryTimeout();
-    }
-
-    @Test(expected = SQLFeatureNotSupportedException.class)
-    public void testSetQueryTimeoutIsUnsupported() throws Exception
-    {
-        conn.createStatement().setQueryTimeout( 0 );
-    }
-
-    @Test(expected = SQLFeatureNotSupportedException.class)
-    public void testCancelIsUnsupported() throws Exception
-    {
-        conn.createStatement().cancel();
-    }
-
     @Test(expected = SQLFeatureNotSupportedException.class)
     public void testSetCursorNameIsUnsupported() throws Exception
     {
@@ -112,24 +94,6 @@ public class Neo4jStatementUnsupportedOperationsTest extends Neo4jJdbcTest
         conn.createStatement().getFetchSize();
     }
 
-    @Test(expected = SQLFeatureNotSupportedException.class)
-    public void testAddBatchIsUnsupported() throws Exception
-    {
-        conn.createStatement().addBatch( "Does not work" );
-    }
-
-    @Test(expected = SQLFeatureNotSupportedException.class)
-    public void testClearBatchIsUnsupported() throws Exception
-    {
-        conn.createStatement().clearBatch();
-    }
-
-    @Test(expected = SQLFeatureNotSupportedException.class)
-    public void testExecuteBatchIsUnsupported() throws Exception
-    {
-        conn.createStatement().executeBatch();
-    }
-
     @Test(expected = SQLFeatureNotSupportedException.class)
     public void testSetPoolableIsUnsupported() throws Exception
     {
@@ -18,6 +18,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import org.neo4j.jdbc.util.TypedRow;
+import org.neo4j.jdbc.util.TypedRowIterator;
+
 import static java.util.Arrays.asList;
 
 import static org.junit.Assert.assertEquals;
@@ -68,10 +71,64 @@ public class ResultSetTest
         return Arrays.<ResultSet[]>asList( new ResultSet[]{new ListResultSet( columns,
                 Arrays.<List<Object>>asList( row ), null )},
                 new ResultSet[]{new IteratorResultSet( columns, Arrays.<Object[]>asList( row.toArray() ).iterator(),
-                        null )}
+                        null )},
+                new ResultSet[]{new IteratorResultSet( columns, typedRows( row ), null )}
         );
     }
 
+    private static TypedRowIterator typedRows( List<Object> values )
+    {
+        final TypedRow typedRow = new TypedRow( values.size() );
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            final Object value = values.get( i );
+            if ( value instanceof Integer || value instanceof Short || value instanceof Byte )
+            {
+                typedRow.setInt( i, ((Number) value).intValue() );
+            }
+            else if ( value instanceof Long )
+            {
+                typedRow.setLong( i, (Long) value );
+            }
+            else if ( value instanceof Float || value instanceof Double )
+            {
+                typedRow.setDouble( i, ((Number) value).doubleValue() );
+            }
+            else
+            {
+                typedRow.setObject( i, value );
+            }
+        }
+        return new TypedRowIterator()
+        {
+            boolean consumed;
+
+            public TypedRow nextTypedRow()
+            {
+                consumed = true;
+                return typedRow;
+            }
+
+            public boolean hasNext()
+            {
+                return !consumed;
+            }
+
+            public Object[] next()
+            {
+                return nextTypedRow().toArray();
+            }
+
+            public void remove()
+            {
+            }
+
+            public void close()
+            {
+            }
+        };
+    }
+
     private static Date parseDate( String dateString ) throws ParseException
     {
         return new SimpleDateFormat( "yyyy-MM-dd HH:mm" ).parse( dateString );
@@ -0,0 +1,182 @@
+package org.neo4j.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.jdbc.util.ClosableIterator;
+import org.neo4j.jdbc.util.DaemonThreadFactory;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowPublisherTest
+{
+    private final ExecutorService executor = Executors.newCachedThreadPool( new DaemonThreadFactory( "test" ) );
+    private final CountingRows rows = new CountingRows( 10 );
+    private final RowPublisher publisher = new RowPublisher( new Callable<ExecutionResult>()
+    {
+        @Override
+        public ExecutionResult call() throws Exception
+        {
+            return new ExecutionResult( asList( "n" ), rows );
+        }
+    }, executor );
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReadsRowsOnlyOnDemand() throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber( 3 );
+        publisher.subscribe( subscriber );
+        assertTrue( subscriber.received.await( 10, TimeUnit.SECONDS ) );
+        Thread.sleep( 50 );
+        assertEquals( 3, rows.read.get() );
+        assertEquals( 3, subscriber.rows.size() );
+        assertEquals( 0, subscriber.rows.get( 0 )[0] );
+
+        subscriber.subscription.request( Long.MAX_VALUE );
+        assertTrue( subscriber.completed.await( 10, TimeUnit.SECONDS ) );
+        assertEquals( 10, subscriber.rows.size() );
+        assertEquals( 9, subscriber.rows.get( 9 )[0] );
+        assertTrue( rows.closed );
+        assertNull( subscriber.error );
+    }
+
+    @Test
+    public void testCancelClosesResult() throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber( 2 );
+        publisher.subscribe( subscriber );
+        assertTrue( subscriber.received.await( 10, TimeUnit.SECONDS ) );
+        subscriber.subscription.cancel();
+        for ( int i = 0; i < 100 && !rows.closed; i++ )
+        {
+            Thread.sleep( 10 );
+        }
+        assertTrue( rows.closed );
+        assertEquals( 2, rows.read.get() );
+    }
+
+    @Test
+    public void testRejectsInvalidRequest() throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber( 0 );
+        publisher.subscribe( subscriber );
+        assertTrue( subscriber.completed.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( subscriber.error instanceof IllegalArgumentException );
+    }
+
+    @Test
+    public void testRejectsSecondSubscriber() throws Exception
+    {
+        publisher.subscribe( new RecordingSubscriber( 1 ) );
+        final RecordingSubscriber second = new RecordingSubscriber( 1 );
+        publisher.subscribe( second );
+        assertTrue( second.completed.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( second.error instanceof IllegalStateException );
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Object[]>
+    {
+        private final long initialRequest;
+        private final List<Object[]> rows = new ArrayList<>();
+        private final CountDownLatch received;
+        private final CountDownLatch completed = new CountDownLatch( 1 );
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        RecordingSubscriber( long initialRequest )
+        {
+            this.initialRequest = initialRequest;
+            this.received = new CountDownLatch( (int) initialRequest );
+        }
+
+        @Override
+        public void onSubscribe( Subscription subscription )
+        {
+            this.subscription = subscription;
+            subscription.request( initialRequest );
+        }
+
+        @Override
+        public void onNext( Object[] row )
+        {
+            rows.add( row );
+            received.countDown();
+        }
+
+        @Override
+        public void onError( Throwable t )
+        {
+            error = t;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed.countDown();
+        }
+    }
+
+    private static class CountingRows implements ClosableIterator<Object[]>
+    {
+        private final int count;
+        private final Object[] row = new Object[1];
+        private final AtomicInteger read = new AtomicInteger();
+        private volatile boolean closed;
+
+        CountingRows( int count )
+        {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return read.get() < count;
+        }
+
+        @Override
+        public Object[] next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            row[0] = read.getAndIncrement();
+            return row;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.neo4j.jdbc;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class RowStoreTest
+{
+    @Test
+    public void testKeepsRowsWithinBudgetOnHeap() throws Exception
+    {
+        try (RowStore store = new RowStore( 1024 * 1024 ))
+        {
+            store.add( new Object[]{1, "a"} );
+            assertNull( store.getFile() );
+            assertArrayEquals( new Object[]{1, "a"}, store.get( 0 ) );
+        }
+    }
+
+    @Test
+    public void testSpillsRowsBeyondBudget() throws Exception
+    {
+        final RowStore store = new RowStore( 100 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            store.add( new Object[]{i, (long) i, i * 0.5, i % 2 == 0, "name \u00fc" + i, null} );
+        }
+        final File file = store.getFile();
+        assertNotNull( file );
+        assertTrue( file.exists() );
+        assertEquals( 1000, store.size() );
+        for ( int i = 999; i >= 0; i -= 7 )
+        {
+            assertArrayEquals( new Object[]{i, (long) i, i * 0.5, i % 2 == 0, "name \u00fc" + i, null},
+                    store.get( i ) );
+        }
+        store.close();
+        assertFalse( file.exists() );
+    }
+
+    @Test
+    public void testSpillsNestedAndOtherValues() throws Exception
+    {
+        final Object notSerializable = new Object();
+        try (RowStore store = new RowStore( 0 ))
+        {
+            store.add( new Object[]{asList( 1, "a", map( "b", asList( 2L ) ) ), map( "name", "foo", "age", 42 ),
+                    BigDecimal.TEN, (short) 3, Collections.singletonMap( 1, "int key" ), notSerializable} );
+            final Object[] row = store.get( 0 );
+            assertEquals( asList( 1, "a", map( "b", asList( 2L ) ) ), row[0] );
+            assertEquals( map( "name", "foo", "age", 42 ), row[1] );
+            assertEquals( BigDecimal.TEN, row[2] );
+            assertEquals( (short) 3, row[3] );
+            assertEquals( Collections.singletonMap( 1, "int key" ), row[4] );
+            assertSame( notSerializable, row[5] );
+            assertEquals( 6, Arrays.asList( row ).size() );
+        }
+    }
+}
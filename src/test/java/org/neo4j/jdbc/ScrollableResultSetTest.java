@@ -0,0 +1,88 @@
+package org.neo4j.jdbc;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScrollableResultSetTest
+{
+    private ResultSet resultSet( int rows, long heapBytes )
+    {
+        final List<Object[]> data = new ArrayList<Object[]>();
+        for ( int i = 0; i < rows; i++ )
+        {
+            data.add( new Object[]{i, "row" + i} );
+        }
+        return new ScrollableResultSet( null, asList( "id", "name" ), data.iterator(), heapBytes );
+    }
+
+    @Test
+    public void testScrollsInAllDirections() throws Exception
+    {
+        for ( long heapBytes : new long[]{RowStore.DEFAULT_HEAP_BYTES, 0} )
+        {
+            final ResultSet rs = resultSet( 100, heapBytes );
+            assertEquals( ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType() );
+            assertTrue( rs.isBeforeFirst() );
+            assertTrue( rs.next() );
+            assertTrue( rs.isFirst() );
+            assertEquals( 0, rs.getInt( "id" ) );
+            assertTrue( rs.last() );
+            assertEquals( 100, rs.getRow() );
+            assertTrue( rs.isLast() );
+            assertEquals( "row99", rs.getString( 2 ) );
+            assertTrue( rs.previous() );
+            assertEquals( 98, rs.getInt( 1 ) );
+            assertTrue( rs.absolute( 42 ) );
+            assertEquals( 41, rs.getInt( 1 ) );
+            assertTrue( rs.absolute( -1 ) );
+            assertEquals( 99, rs.getInt( 1 ) );
+            assertTrue( rs.relative( -9 ) );
+            assertEquals( 90, rs.getInt( 1 ) );
+            assertFalse( rs.relative( 10 ) );
+            assertTrue( rs.isAfterLast() );
+            assertEquals( 0, rs.getRow() );
+            assertTrue( rs.first() );
+            assertEquals( 0, rs.getInt( 1 ) );
+            assertFalse( rs.previous() );
+            assertTrue( rs.isBeforeFirst() );
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testReadsRowsOnlyAsFarAsNeeded() throws Exception
+    {
+        final ResultSet rs = resultSet( 10, RowStore.DEFAULT_HEAP_BYTES );
+        assertTrue( rs.absolute( 5 ) );
+        assertEquals( 4, rs.getInt( 1 ) );
+        assertFalse( rs.absolute( 11 ) );
+        assertTrue( rs.isAfterLast() );
+        rs.close();
+    }
+
+    @Test
+    public void testEmptyResult() throws Exception
+    {
+        final ResultSet rs = resultSet( 0, RowStore.DEFAULT_HEAP_BYTES );
+        assertFalse( rs.isBeforeFirst() );
+        assertFalse( rs.isAfterLast() );
+        assertFalse( rs.next() );
+        assertFalse( rs.isAfterLast() );
+        assertFalse( rs.last() );
+        assertFalse( rs.first() );
+        rs.afterLast();
+        assertFalse( rs.isAfterLast() );
+        assertFalse( rs.isLast() );
+        assertEquals( 0, rs.getRow() );
+        rs.close();
+    }
+}
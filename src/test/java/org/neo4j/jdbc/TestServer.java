@@ -2,6 +2,8 @@ package org.neo4j.jdbc;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.configuration.Config;
@@ -24,10 +26,23 @@ public class TestServer
     public static final int PORT = 7475;
 
     public static CommunityNeoServer startWebServer( int port, boolean auth )
+    {
+        return startWebServer( port, auth, Collections.<String, String>emptyMap() );
+    }
+
+    /**
+     * @param config server settings like Configurator.TRANSACTION_TIMEOUT
+     */
+    public static CommunityNeoServer startWebServer( int port, boolean auth, Map<String, String> config )
     {
         try
         {
-            CommunityNeoServer server = CommunityServerBuilder.server().onPort( port ).build();
+            CommunityServerBuilder builder = CommunityServerBuilder.server().onPort( port );
+            for ( Map.Entry<String, String> entry : config.entrySet() )
+            {
+                builder = builder.withProperty( entry.getKey(), entry.getValue() );
+            }
+            CommunityNeoServer server = builder.build();
             final WebServer webServer = server.getWebServer();
             if ( auth )
             {
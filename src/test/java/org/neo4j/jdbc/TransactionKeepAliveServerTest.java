@@ -0,0 +1,78 @@
+package org.neo4j.jdbc;
+
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.jdbc.rest.TransactionKeepAlive;
+import org.neo4j.server.CommunityNeoServer;
+import org.neo4j.server.configuration.Configurator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keeps a transaction open across more than twice the transaction timeout of the server, while a result of it is
+ * still open.
+ */
+public class TransactionKeepAliveServerTest
+{
+    private static final int PORT = TestServer.PORT + 12;
+    private static final String TIMEOUT_SECONDS = "4";
+
+    private CommunityNeoServer server;
+    private Driver driver;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = TestServer.startWebServer( PORT, false, Collections.singletonMap( Configurator.TRANSACTION_TIMEOUT,
+                TIMEOUT_SECONDS ) );
+        driver = new Driver();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        server.stop();
+    }
+
+    private Neo4jConnection connect() throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty( TransactionKeepAlive.TRANSACTION_TIMEOUT, TIMEOUT_SECONDS );
+        return driver.connect( "jdbc:neo4j://localhost:" + PORT, props );
+    }
+
+    @Test
+    public void testKeepsTransactionWithOpenResultAlive() throws Exception
+    {
+        try ( Neo4jConnection connection = connect() )
+        {
+            connection.setAutoCommit( false );
+            final ResultSet rs = connection.createStatement().executeQuery( "unwind range(1,10) as x " +
+                    "create (:KeptAlive {x:x}) return x" );
+            assertTrue( rs.next() );
+            Thread.sleep( 10000 );
+            int rows = 1;
+            while ( rs.next() )
+            {
+                rows++;
+            }
+            assertEquals( 10, rows );
+            rs.close();
+            assertTrue( connection.getTransactionExpiry() > System.currentTimeMillis() );
+            connection.commit();
+        }
+        try ( Neo4jConnection connection = connect() )
+        {
+            final ResultSet rs = connection.createStatement().executeQuery( "match (n:KeptAlive) return count(*) " +
+                    "as c" );
+            assertTrue( rs.next() );
+            assertEquals( 10, rs.getInt( "c" ) );
+        }
+    }
+}
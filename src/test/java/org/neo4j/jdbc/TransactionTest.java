@@ -121,7 +121,37 @@ public class TransactionTest extends Neo4jJdbcTest
         }
     }
 
+    @Test
+    public void testTransactionFollowsConnectionAcrossThreads() throws Exception
+    {
+        try
+        {
+            conn.setAutoCommit( false );
+            final ResultSet rs = conn.executeQuery( "create (n {name:'Andres'}) return id(n)", null );
+            rs.next();
+            final long nodeId = rs.getLong( 1 );
+            assertNodeExistsInThread( conn, nodeId, true );
+            assertNodeVisibleInOtherTransaction( nodeId, false );
+            conn.rollback();
+            assertNodeExistsInThread( conn, nodeId, false );
+            assertNodeExists( nodeId, false );
+        }
+        catch ( SQLException sqle )
+        {
+            if ( sqle.getMessage().contains( "not supported" ) )
+            {
+                return;
+            }
+            throw sqle;
+        }
+    }
+
     private void assertNodeExists( long nodeId, boolean exists ) throws SQLException
+    {
+        assertNodeExists( conn, nodeId, exists );
+    }
+
+    private static void assertNodeExists( Neo4jConnection conn, long nodeId, boolean exists ) throws SQLException
     {
         // work around the automatic node-by-id lookup in cypher
         final ResultSet found = conn.executeQuery( "match (n) where has(n.name) AND id(n) = {id} return id(n)",
@@ -133,8 +163,20 @@ public class TransactionTest extends Neo4jJdbcTest
         }
     }
 
+    /**
+     * Transactions belong to connections, so another transaction needs another connection.
+     */
     private void assertNodeVisibleInOtherTransaction( final long nodeId, final boolean exists ) throws
-            InterruptedException
+            Exception
+    {
+        try (Neo4jConnection other = connect( mode ))
+        {
+            assertNodeExistsInThread( other, nodeId, exists );
+        }
+    }
+
+    private void assertNodeExistsInThread( final Neo4jConnection conn, final long nodeId, final boolean exists )
+            throws InterruptedException
     {
         final AtomicBoolean valid = new AtomicBoolean();
         final Thread t = new Thread()
@@ -143,7 +185,7 @@ public class TransactionTest extends Neo4jJdbcTest
             {
                 try
                 {
-                    assertNodeExists( nodeId, exists );
+                    assertNodeExists( conn, nodeId, exists );
                     valid.set( true );
                 }
                 catch ( SQLException e )
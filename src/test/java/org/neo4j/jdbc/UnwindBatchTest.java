@@ -0,0 +1,107 @@
+package org.neo4j.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.neo4j.jdbc.rest.JsonUtils;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class UnwindBatchTest
+{
+    @Test
+    public void testRewritePlaceholders() throws Exception
+    {
+        assertEquals( "UNWIND {batch} AS row MERGE (n:User {id:row.p1}) SET n.name = row.p2",
+                UnwindBatch.rewrite( "MERGE (n:User {id:{1}}) SET n.name = { 2 }" ) );
+    }
+
+    @Test
+    public void testKeepPlaceholdersInLiterals() throws Exception
+    {
+        assertEquals( "UNWIND {batch} AS row CREATE (n {name:'{1}', `{2}`:\"a\\\"{3}\", id:row.p4})",
+                UnwindBatch.rewrite( "CREATE (n {name:'{1}', `{2}`:\"a\\\"{3}\", id:{4}})" ) );
+    }
+
+    @Test
+    public void testDontRewriteWithoutPlaceholders() throws Exception
+    {
+        assertNull( UnwindBatch.rewrite( "CREATE (n {name:'foo'})" ) );
+    }
+
+    @Test
+    public void testDontRewritePeriodicCommit() throws Exception
+    {
+        assertNull( UnwindBatch.rewrite( " using periodic commit LOAD CSV FROM {1} AS line CREATE (n)" ) );
+    }
+
+    @Test
+    public void testDontRewriteQueriesWithPrefix() throws Exception
+    {
+        assertNull( UnwindBatch.rewrite( "CYPHER 2.2 CREATE (n {id:{1}})" ) );
+        assertNull( UnwindBatch.rewrite( " explain CREATE (n {id:{1}})" ) );
+        assertNull( UnwindBatch.rewrite( "PROFILE CREATE (n {id:{1}})" ) );
+        assertNull( UnwindBatch.rewrite( "// create\nCREATE (n {id:{1}})" ) );
+        assertNull( UnwindBatch.rewrite( "/* create */ CREATE (n {id:{1}})" ) );
+    }
+
+    @Test
+    public void testDontRewriteWithThatDropsRow() throws Exception
+    {
+        assertNull( UnwindBatch.rewrite( "MATCH (n) WITH count(n) AS c CREATE (:Count {c:c, id:{1}})" ) );
+        assertNull( UnwindBatch.rewrite( "MATCH (n {id:{1}}) WITH n SET n.name = {2}" ) );
+        assertNull( UnwindBatch.rewrite( "MATCH (n {id:{1}}) RETURN n UNION MATCH (n {id:{2}}) RETURN n" ) );
+    }
+
+    @Test
+    public void testRewriteWithThatCarriesRow() throws Exception
+    {
+        assertEquals( "UNWIND {batch} AS row MATCH (n {id:row.p1}) WITH row, n SET n.name = row.p2",
+                UnwindBatch.rewrite( "MATCH (n {id:{1}}) WITH row, n SET n.name = {2}" ) );
+        assertEquals( "UNWIND {batch} AS row MATCH (n {id:row.p1}) WITH DISTINCT * SET n.name = row.p2",
+                UnwindBatch.rewrite( "MATCH (n {id:{1}}) WITH DISTINCT * SET n.name = {2}" ) );
+        assertEquals( "UNWIND {batch} AS row MATCH (n) WHERE n.name STARTS WITH row.p1 SET n.seen = true",
+                UnwindBatch.rewrite( "MATCH (n) WHERE n.name STARTS WITH {1} SET n.seen = true" ) );
+        assertEquals( "UNWIND {batch} AS row CREATE (n {name:'a with b', id:row.p1})",
+                UnwindBatch.rewrite( "CREATE (n {name:'a with b', id:{1}})" ) );
+    }
+
+    @Test
+    public void testToRow() throws Exception
+    {
+        assertEquals( map( "p1", "foo", "p2", 42 ), UnwindBatch.toRow( map( "1", "foo", "2", 42 ) ) );
+    }
+
+    @Test
+    public void testChunkByBytes() throws Exception
+    {
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            rows.add( map( "p1", "0123456789" ) );
+        }
+        final long rowSize = JsonUtils.estimateSize( rows.get( 0 ) );
+        final List<List<Map<String, Object>>> chunks = UnwindBatch.chunk( rows, rowSize * 4 );
+        assertEquals( 3, chunks.size() );
+        assertEquals( asList( 4, 4, 2 ), asList( chunks.get( 0 ).size(), chunks.get( 1 ).size(),
+                chunks.get( 2 ).size() ) );
+    }
+
+    @Test
+    public void testChunkContainsAtLeastOneRow() throws Exception
+    {
+        final List<Map<String, Object>> rows = asList( map( "p1", "0123456789" ), map( "p1", "0123456789" ) );
+        assertEquals( 2, UnwindBatch.chunk( rows, 1 ).size() );
+        assertEquals( Collections.emptyList(), UnwindBatch.chunk( Collections.<Map<String, Object>>emptyList(),
+                1 ) );
+    }
+}
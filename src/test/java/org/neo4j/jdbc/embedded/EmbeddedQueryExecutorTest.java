@@ -1,7 +1,10 @@
 package org.neo4j.jdbc.embedded;
 
+import java.util.Iterator;
+
 import org.junit.Test;
 
+import org.neo4j.graphdb.DynamicLabel;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
@@ -33,6 +36,30 @@ public class EmbeddedQueryExecutorTest
         assertEquals( nodeId, row[0] );
     }
 
+    @Test
+    public void testResumesTransactionOnThreadWithAnotherTransaction() throws Exception
+    {
+        GraphDatabaseService db = new TestGraphDatabaseFactory().newImpermanentDatabase();
+        final EmbeddedQueryExecutor executor = new EmbeddedQueryExecutor( db );
+        executor.executeQuery( "create (:Connection)", null, false );
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.createNode( DynamicLabel.label( "Application" ) );
+            final ExecutionResult result = executor.executeQuery( "match (n:Connection) return count(*) as c",
+                    null, false );
+            assertEquals( 1L, result.iterator().next()[0] );
+            db.createNode( DynamicLabel.label( "Application" ) ); // still in the transaction of the application
+            tx.success();
+        }
+        executor.commit();
+        final ExecutionResult result = executor.executeQuery( "match (n) return labels(n)[0] as label, count(*) " +
+                "as c order by label", null, true );
+        final Iterator<Object[]> rows = result.iterator();
+        assertEquals( asList( "Application", 2L ), asList( rows.next() ) );
+        assertEquals( asList( "Connection", 1L ), asList( rows.next() ) );
+        db.shutdown();
+    }
+
     private long createNode( GraphDatabaseService db )
     {
         try ( Transaction tx = db.beginTx() )
@@ -0,0 +1,65 @@
+package org.neo4j.jdbc.embedded;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class RowExtractorTest
+{
+    private final RowExtractor extractor = new RowExtractor( asList( "a", "b", "c" ) );
+    private final Object[] target = new Object[3];
+
+    @Test
+    public void testExtractRowsInLearnedOrder() throws Exception
+    {
+        assertArrayEquals( new Object[]{1, 2, 3}, extractor.extract( row( "c", 3, "a", 1, "b", 2 ), target ) );
+        assertArrayEquals( new Object[]{4, 5, 6}, extractor.extract( row( "c", 6, "a", 4, "b", 5 ), target ) );
+        assertArrayEquals( new Object[]{7, null, 9}, extractor.extract( row( "c", 9, "a", 7, "b", null ), target ) );
+    }
+
+    @Test
+    public void testExtractRowsInChangingOrder() throws Exception
+    {
+        assertArrayEquals( new Object[]{1, 2, 3}, extractor.extract( row( "a", 1, "b", 2, "c", 3 ), target ) );
+        assertArrayEquals( new Object[]{4, 5, 6}, extractor.extract( row( "b", 5, "c", 6, "a", 4 ), target ) );
+        assertArrayEquals( new Object[]{7, 8, 9}, extractor.extract( row( "b", 8, "c", 9, "a", 7 ), target ) );
+    }
+
+    @Test
+    public void testExtractIncompleteRows() throws Exception
+    {
+        assertArrayEquals( new Object[]{1, 2, 3}, extractor.extract( row( "a", 1, "b", 2, "c", 3 ), target ) );
+        assertArrayEquals( new Object[]{4, null, 6}, extractor.extract( row( "a", 4, "c", 6 ), target ) );
+        assertArrayEquals( new Object[]{7, null, null}, extractor.extract( row( "a", 7, "x", 0, "y", 0 ), target ) );
+        assertArrayEquals( new Object[]{10, 11, 12}, extractor.extract( row( "a", 10, "b", 11, "c", 12 ), target ) );
+    }
+
+    @Test
+    public void testExtractHashedRows() throws Exception
+    {
+        for ( int i = 0; i < 10; i++ )
+        {
+            final Map<String, Object> row = new HashMap<>();
+            row.put( new String( "a" ), i );
+            row.put( new String( "b" ), i + 1 );
+            row.put( new String( "c" ), i + 2 );
+            assertArrayEquals( new Object[]{i, i + 1, i + 2}, extractor.extract( row, target ) );
+        }
+    }
+
+    private static Map<String, Object> row( Object... keysAndValues )
+    {
+        final Map<String, Object> row = new LinkedHashMap<>();
+        for ( int i = 0; i < keysAndValues.length; i += 2 )
+        {
+            row.put( (String) keysAndValues[i], keysAndValues[i + 1] );
+        }
+        return row;
+    }
+}
@@ -0,0 +1,153 @@
+package org.neo4j.jdbc.rest;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Test;
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.representation.StringRepresentation;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterTest
+{
+    private static final String NO_HA = "none";
+
+    private final Map<String, String> available = new ConcurrentHashMap<>(); // by host, null if not known yet
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Clusters clusters = new Clusters();
+
+    private final Client client = new Client( Protocol.HTTP )
+    {
+        @Override
+        public void handle( Request request, Response response )
+        {
+            final String path = request.getResourceRef().getPath();
+            final String role = available.get( request.getResourceRef().getHostDomain() );
+            if ( role == null && path.equals( Cluster.HA_PATH ) )
+            {
+                response.setStatus( Status.SUCCESS_OK );
+            }
+            else if ( role == null || role.equals( NO_HA ) )
+            {
+                response.setStatus( Status.CLIENT_ERROR_NOT_FOUND );
+            }
+            else if ( role.startsWith( "5" ) )
+            {
+                response.setStatus( Status.valueOf( Integer.parseInt( role ) ) );
+            }
+            else
+            {
+                response.setStatus( Status.SUCCESS_OK );
+                response.setEntity( new StringRepresentation( role ) );
+            }
+        }
+    };
+
+    private final Clusters.ResourcesFactory factory = new Clusters.ResourcesFactory()
+    {
+        @Override
+        public Resources create( String url ) throws SQLException
+        {
+            return new Resources( url, client, "test" );
+        }
+    };
+
+    @After
+    public void tearDown() throws Exception
+    {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private Cluster acquire() throws SQLException
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( Clusters.HA_CHECK_INTERVAL, "0" );
+        return clusters.acquire( asList( "http://a:7474", "http://b:7474" ), null, properties, factory, scheduler,
+                executor );
+    }
+
+    private Cluster.Role role( Cluster cluster, int index )
+    {
+        return cluster.getMembers().get( index ).getRole();
+    }
+
+    @Test
+    public void testReadsRolesOfHaInstances() throws Exception
+    {
+        available.put( "a", "slave" );
+        available.put( "b", "master" );
+        final Cluster cluster = acquire();
+        assertSame( Cluster.Role.SLAVE, role( cluster, 0 ) );
+        assertSame( Cluster.Role.MASTER, role( cluster, 1 ) );
+        assertEquals( "http://b:7474", cluster.getWriter().getUrl() );
+        assertEquals( "http://a:7474", cluster.getReader().getUrl() );
+    }
+
+    @Test
+    public void testHaInstanceWithoutRoleIsDown() throws Exception
+    {
+        available.put( "b", "slave" );
+        final Cluster cluster = acquire();
+        assertSame( Cluster.Role.DOWN, role( cluster, 0 ) );
+        assertNull( cluster.getWriter() );
+        assertEquals( "http://b:7474", cluster.getReader().getUrl() );
+    }
+
+    @Test
+    public void testServerErrorIsDown() throws Exception
+    {
+        available.put( "a", "503" );
+        available.put( "b", NO_HA );
+        final Cluster cluster = acquire();
+        assertSame( Cluster.Role.DOWN, role( cluster, 0 ) );
+        assertSame( Cluster.Role.STANDALONE, role( cluster, 1 ) );
+        assertEquals( "http://b:7474", cluster.getWriter().getUrl() );
+    }
+
+    @Test
+    public void testOnlyServersWithoutHaAreStandalone() throws Exception
+    {
+        available.put( "a", "master" );
+        available.put( "b", NO_HA );
+        final Cluster cluster = acquire();
+        assertSame( Cluster.Role.STANDALONE, role( cluster, 1 ) );
+
+        available.put( "a", NO_HA ); // the HA endpoints of a known HA instance are gone while it restarts
+        cluster.check();
+        assertSame( Cluster.Role.DOWN, role( cluster, 0 ) );
+    }
+
+    @Test
+    public void testClusterIsRemovedWhenLastUserReleasedIt() throws Exception
+    {
+        available.put( "a", "master" );
+        available.put( "b", "slave" );
+        final Cluster cluster = acquire();
+        assertSame( cluster, acquire() );
+        cluster.release();
+        assertEquals( 1, clusters.getClusters().size() );
+        cluster.release();
+        assertTrue( clusters.getClusters().isEmpty() );
+        assertTrue( cluster.isClosed() );
+        assertNotSame( cluster, acquire() );
+    }
+}
@@ -0,0 +1,32 @@
+package org.neo4j.jdbc.rest;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClustersTest
+{
+    @Test
+    public void testSplitMultiHostUrl() throws Exception
+    {
+        assertEquals( asList( "http://a:7474", "http://b:7474", "http://c:7474" ),
+                Clusters.split( "http://a:7474,b:7474,c:7474" ) );
+    }
+
+    @Test
+    public void testSplitKeepsPathAndQuery() throws Exception
+    {
+        assertEquals( asList( "https://a:7473/db/data?debug", "https://b:7473/db/data?debug" ),
+                Clusters.split( "https://a:7473, b:7473/db/data?debug" ) );
+    }
+
+    @Test
+    public void testSingleHostUrl() throws Exception
+    {
+        assertEquals( singletonList( "http://localhost:7474/?a=1,b=2" ),
+                Clusters.split( "http://localhost:7474/?a=1,b=2" ) );
+    }
+}
@@ -0,0 +1,117 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionFilterTest
+{
+    private static final String BODY = "{\"statements\":[{\"statement\":\"match (n) return n\"}]}";
+
+    private final Transport transport = new Transport( new Client( Protocol.HTTP ) );
+
+    private Request request( String body )
+    {
+        return new Request( Method.POST, new Reference( "http://localhost:7474/db/data/transaction" ),
+                new StringRepresentation( body, MediaType.APPLICATION_JSON ) );
+    }
+
+    @Test
+    public void testCompressRequestAboveThreshold() throws Exception
+    {
+        final CompressionFilter filter = new CompressionFilter( new Context(), null, transport, 10 );
+        final Request request = request( BODY );
+        filter.beforeHandle( request, new Response( request ) );
+        assertTrue( request.getEntity().getEncodings().contains( Encoding.GZIP ) );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.getEntity().write( out );
+        assertEquals( BODY, gunzip( out.toByteArray() ) );
+        assertEquals( BODY.length(), transport.getUncompressedBytesSent() );
+        assertEquals( out.size(), transport.getCompressedBytesSent() );
+    }
+
+    @Test
+    public void testSendSmallRequestUncompressed() throws Exception
+    {
+        final CompressionFilter filter = new CompressionFilter( new Context(), null, transport, 1000 );
+        final Request request = request( BODY );
+        final Representation entity = request.getEntity();
+        filter.beforeHandle( request, new Response( request ) );
+        assertSame( entity, request.getEntity() );
+    }
+
+    @Test
+    public void testNeverCompressRequestsWithoutThreshold() throws Exception
+    {
+        final CompressionFilter filter = new CompressionFilter( new Context(), null, transport, -1 );
+        final Request request = request( BODY );
+        final Representation entity = request.getEntity();
+        filter.beforeHandle( request, new Response( request ) );
+        assertSame( entity, request.getEntity() );
+        assertEquals( 2, request.getClientInfo().getAcceptedEncodings().size() );
+        filter.beforeHandle( request, new Response( request ) );
+        assertEquals( 2, request.getClientInfo().getAcceptedEncodings().size() );
+    }
+
+    @Test
+    public void testDecompressResponse() throws Exception
+    {
+        final CompressionFilter filter = new CompressionFilter( new Context(), null, transport, -1 );
+        final Request request = request( BODY );
+        final Response response = new Response( request );
+        final byte[] compressed = gzip( BODY );
+        final Representation entity = new ByteArrayRepresentation( compressed, MediaType.APPLICATION_JSON );
+        entity.getEncodings().add( Encoding.GZIP );
+        response.setEntity( entity );
+        filter.afterHandle( request, response );
+        assertEquals( BODY, response.getEntity().getText() );
+        assertEquals( compressed.length, transport.getCompressedBytesReceived() );
+        assertEquals( BODY.length(), transport.getDecompressedBytesReceived() );
+    }
+
+    private static byte[] gzip( String text ) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream( out ))
+        {
+            gzip.write( text.getBytes( "UTF-8" ) );
+        }
+        return out.toByteArray();
+    }
+
+    private static String gunzip( byte[] data ) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream( new ByteArrayInputStream( data ) ))
+        {
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ( (read = in.read( buffer )) != -1 )
+            {
+                out.write( buffer, 0, read );
+            }
+        }
+        return out.toString( "UTF-8" );
+    }
+}
@@ -0,0 +1,131 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DiscoveryCacheTest
+{
+    private final DiscoveryCache cache = new DiscoveryCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Callable<DiscoveryInfo> loader = new Callable<DiscoveryInfo>()
+    {
+        public DiscoveryInfo call() throws Exception
+        {
+            loads.incrementAndGet();
+            return new DiscoveryInfo( "2.2.1", "http://localhost:7474/db/data/", null,
+                    "http://localhost:7474/db/data/transaction", null, null, null );
+        }
+    };
+
+    @Test
+    public void testCachesPerKey() throws Exception
+    {
+        final DiscoveryInfo info = cache.get( "a", 60000, loader );
+        assertSame( info, cache.get( "a", 60000, loader ) );
+        assertEquals( 1, loads.get() );
+        cache.get( "b", 60000, loader );
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test
+    public void testZeroTtlDisablesCaching() throws Exception
+    {
+        cache.get( "a", 0, loader );
+        cache.get( "a", 0, loader );
+        assertEquals( 2, loads.get() );
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    public void testInvalidate() throws Exception
+    {
+        cache.get( "a", 60000, loader );
+        cache.invalidate( "a" );
+        cache.get( "a", 60000, loader );
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() throws Exception
+    {
+        cache.get( "a", 1, loader );
+        Thread.sleep( 5 );
+        cache.get( "a", 1, loader );
+        assertEquals( 2, loads.get() );
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailedLoadIsNotCached() throws Exception
+    {
+        try
+        {
+            cache.get( "a", 60000, new Callable<DiscoveryInfo>()
+            {
+                public DiscoveryInfo call() throws Exception
+                {
+                    throw new IOException( "Connection refused" );
+                }
+            } );
+        }
+        finally
+        {
+            assertEquals( 0, cache.size() );
+        }
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception
+    {
+        final CountDownLatch loading = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final Callable<DiscoveryInfo> slowLoader = new Callable<DiscoveryInfo>()
+        {
+            public DiscoveryInfo call() throws Exception
+            {
+                loading.countDown();
+                release.await();
+                return loader.call();
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final List<Future<DiscoveryInfo>> results = new ArrayList<>();
+            for ( int i = 0; i < 4; i++ )
+            {
+                results.add( executor.submit( new Callable<DiscoveryInfo>()
+                {
+                    public DiscoveryInfo call() throws Exception
+                    {
+                        return cache.get( "a", 60000, slowLoader );
+                    }
+                } ) );
+            }
+            loading.await();
+            Thread.sleep( 50 );
+            release.countDown();
+            for ( Future<DiscoveryInfo> result : results )
+            {
+                assertSame( results.get( 0 ).get(), result.get() );
+            }
+            assertEquals( 1, loads.get() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
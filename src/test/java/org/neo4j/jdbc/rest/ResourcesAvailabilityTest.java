@@ -0,0 +1,95 @@
+package org.neo4j.jdbc.rest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResourcesAvailabilityTest
+{
+    private final AtomicInteger probes = new AtomicInteger();
+    private volatile Status status = Status.SUCCESS_OK;
+    private volatile long delay;
+
+    private final Client client = new Client( Protocol.HTTP )
+    {
+        @Override
+        public void handle( Request request, Response response )
+        {
+            if ( request.getMethod().equals( Method.HEAD ) )
+            {
+                probes.incrementAndGet();
+            }
+            try
+            {
+                Thread.sleep( delay );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            response.setStatus( status );
+        }
+    };
+
+    private final Resources resources = new Resources( "http://localhost:7474/", client, "test" );
+
+    @Test
+    public void testProbesServerWithoutRecentResponse() throws Exception
+    {
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertEquals( 1, probes.get() );
+    }
+
+    @Test
+    public void testRecentResponseProvesAvailability() throws Exception
+    {
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertEquals( 1, probes.get() );
+        assertTrue( resources.getTransport().getLastSuccess() > 0 );
+    }
+
+    @Test
+    public void testZeroWindowAlwaysProbes() throws Exception
+    {
+        resources.setLivenessWindow( 0 );
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertEquals( 2, probes.get() );
+    }
+
+    @Test
+    public void testErrorResponseOfServerCountsAsAvailable() throws Exception
+    {
+        status = Status.CLIENT_ERROR_METHOD_NOT_ALLOWED;
+        assertTrue( resources.isAvailable( 1000 ) );
+        assertEquals( 0, resources.getTransport().getLastSuccess() );
+    }
+
+    @Test
+    public void testUnreachableServerIsUnavailable() throws Exception
+    {
+        status = Status.CONNECTOR_ERROR_CONNECTION;
+        assertFalse( resources.isAvailable( 1000 ) );
+    }
+
+    @Test
+    public void testProbeHonoursTimeout() throws Exception
+    {
+        delay = 2000;
+        final long start = System.currentTimeMillis();
+        assertFalse( resources.isAvailable( 100 ) );
+        assertTrue( System.currentTimeMillis() - start < 1000 );
+    }
+}
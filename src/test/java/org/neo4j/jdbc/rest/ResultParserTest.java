@@ -0,0 +1,107 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResultParserTest
+{
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ResultParser parser( String json, AutoCloseable closeable ) throws Exception
+    {
+        return new ResultParser( mapper.getJsonFactory().createJsonParser( new StringReader( json ) ), closeable );
+    }
+
+    @Test
+    public void testReadColumnsAndRows() throws Exception
+    {
+        final ResultParser parser = parser( "{\"columns\":[\"a\",\"b\"],\"data\":[[1,\"foo\"],[2.5,true]]}", null );
+        assertEquals( asList( "a", "b" ), parser.getColumns() );
+        final Iterator<Object[]> rows = parser.streamData();
+        assertArrayEquals( new Object[]{1, "foo"}, rows.next() );
+        assertArrayEquals( new Object[]{2.5D, true}, rows.next() );
+        assertFalse( rows.hasNext() );
+    }
+
+    @Test
+    public void testConvertNodeRelationshipAndPath() throws Exception
+    {
+        final String node = "{\"extensions\":{},\"labels\":\"http://localhost:7474/db/data/node/1/labels\"," +
+                "\"self\":\"http://localhost:7474/db/data/node/1\",\"data\":{\"name\":\"foo\",\"tags\":[\"x\"]}}";
+        final String rel = "{\"start\":\"http://localhost:7474/db/data/node/1\",\"data\":{}," +
+                "\"self\":\"http://localhost:7474/db/data/relationship/3\",\"type\":\"KNOWS\"," +
+                "\"end\":\"http://localhost:7474/db/data/node/2\"}";
+        final String path = "{\"start\":\"http://localhost:7474/db/data/node/1\"," +
+                "\"nodes\":[\"http://localhost:7474/db/data/node/1\",\"http://localhost:7474/db/data/node/2\"]," +
+                "\"length\":1,\"relationships\":[\"http://localhost:7474/db/data/relationship/3\"]," +
+                "\"end\":\"http://localhost:7474/db/data/node/2\"}";
+        final ResultParser parser = parser( "{\"columns\":[\"n\",\"r\",\"p\"],\"data\":[[" + node + "," + rel + "," +
+                path + "]]}", null );
+        final Object[] row = parser.streamData().next();
+
+        Map<String, Object> expectedNode = new TreeMap<String, Object>();
+        expectedNode.put( "_node_id", 1L );
+        expectedNode.put( "name", "foo" );
+        expectedNode.put( "tags", asList( "x" ) );
+        assertEquals( expectedNode, row[0] );
+
+        Map<String, Object> expectedRel = new TreeMap<String, Object>();
+        expectedRel.put( "_rel_id", 3L );
+        expectedRel.put( "_start", 1L );
+        expectedRel.put( "_end", 2L );
+        expectedRel.put( "_type", "KNOWS" );
+        assertEquals( expectedRel, row[1] );
+
+        assertEquals( Arrays.<Object>asList( map( "_node_id", 1L ), map( "_rel_id", 3L ), map( "_node_id", 2L ) ),
+                row[2] );
+    }
+
+    @Test
+    public void testReadDataBeforeColumns() throws Exception
+    {
+        final ResultParser parser = parser( "{\"data\":[[1],[2]],\"columns\":[\"a\"]}", null );
+        assertEquals( asList( "a" ), parser.getColumns() );
+        final Iterator<Object[]> rows = parser.streamData();
+        assertArrayEquals( new Object[]{1}, rows.next() );
+        assertArrayEquals( new Object[]{2}, rows.next() );
+        assertFalse( rows.hasNext() );
+    }
+
+    @Test
+    public void testReleaseWhenRowsExhausted() throws Exception
+    {
+        final boolean[] closed = new boolean[1];
+        final ResultParser parser = parser( "{\"columns\":[\"a\"],\"data\":[[1]]}", new AutoCloseable()
+        {
+            public void close()
+            {
+                closed[0] = true;
+            }
+        } );
+        final Iterator<Object[]> rows = parser.streamData();
+        rows.next();
+        assertFalse( closed[0] );
+        assertFalse( rows.hasNext() );
+        assertTrue( closed[0] );
+    }
+
+    private static Map<String, Object> map( String key, Object value )
+    {
+        Map<String, Object> result = new TreeMap<String, Object>();
+        result.put( key, value );
+        return result;
+    }
+}
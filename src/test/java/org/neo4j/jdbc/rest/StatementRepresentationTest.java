@@ -0,0 +1,65 @@
+package org.neo4j.jdbc.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatementRepresentationTest
+{
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testWritesSameJsonAsTreeSerialization() throws Exception
+    {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put( "name", "foo \"bar\"" );
+        params.put( "int", 1 );
+        params.put( "long", 2L );
+        params.put( "double", 3.5d );
+        params.put( "float", 4.5f );
+        params.put( "decimal", BigDecimal.valueOf( 5 ) );
+        params.put( "bool", true );
+        params.put( "null", null );
+        params.put( "bytes", new byte[]{1, 2, 3} );
+        params.put( "list", Arrays.<Object>asList( 1, "two", Collections.singletonMap( "three", 3 ) ) );
+        params.put( "map", Collections.singletonMap( "nested", Arrays.asList( 1L, 2L ) ) );
+        final Statement[] statements = {
+                new Statement( "unwind {list} as x\nreturn \"x\"", params ),
+                new Statement( "match (n) return n", Collections.<String, Object>emptyMap() )
+        };
+
+        final ObjectNode expected = mapper.createObjectNode();
+        expected.put( "statements", Statement.toJson( mapper, statements ) );
+
+        assertEquals( mapper.writeValueAsString( expected ), write( statements ) );
+    }
+
+    @Test
+    public void testWritesEmptyStatements() throws Exception
+    {
+        assertEquals( "{\"statements\":[]}", write() );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnsupportedParametersUpFront() throws Exception
+    {
+        new StatementRepresentation( mapper.getJsonFactory(), new Statement( "return {foo}",
+                Collections.<String, Object>singletonMap( "foo", new Object() ) ) );
+    }
+
+    private String write( Statement... statements ) throws Exception
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new StatementRepresentation( mapper.getJsonFactory(), statements ).write( output );
+        return output.toString( "UTF-8" );
+    }
+}
@@ -1,6 +1,8 @@
 package org.neo4j.jdbc.rest;
 
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -15,13 +17,17 @@ import org.junit.Test;
 
 import org.neo4j.helpers.collection.IteratorUtil;
 import org.neo4j.jdbc.ExecutionResult;
+import org.neo4j.jdbc.util.TypedRow;
+import org.neo4j.jdbc.util.TypedRowIterator;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author mh
@@ -128,6 +134,52 @@ public class StreamingParserTest
         assertFalse( rows.hasNext() );
     }
 
+    @Test
+    public void testReadResultWithScalarTypes() throws Exception
+    {
+        final String json = "{\"columns\":[\"a\",\"b\",\"c\",\"d\",\"e\",\"f\"],\"data\": [{\"row\":[\"foo\",42," +
+                "9876543210,1.5,true,null]}]}";
+        final StreamingParser.ParserState parser = streamingParser.obtainParserState( new StringReader( json ) );
+        final Iterator<Object[]> rows = streamingParser.nextResult( parser ).iterator();
+        assertArrayEquals( new Object[]{"foo", 42, 9876543210L, 1.5D, true, null}, rows.next() );
+        assertFalse( rows.hasNext() );
+    }
+
+    @Test
+    public void testReadResultReusingRowBuffers() throws Exception
+    {
+        streamingParser = new StreamingParser( new ObjectMapper(), true );
+        final String json = "{\"columns\":[\"a\",\"b\"],\"data\": [{\"row\":[1,2]},{\"row\":[3,4]},{\"row\":[5,6]}]}";
+        final StreamingParser.ParserState parser = streamingParser.obtainParserState( new StringReader( json ) );
+        final Iterator<Object[]> rows = streamingParser.nextResult( parser ).iterator();
+        final Object[] first = rows.next();
+        assertArrayEquals( new Integer[]{1, 2}, first );
+        final Object[] second = rows.next();
+        assertArrayEquals( new Integer[]{3, 4}, second );
+        final Object[] third = rows.next();
+        assertArrayEquals( new Integer[]{5, 6}, third );
+        assertSame( first, third );
+        assertFalse( rows.hasNext() );
+    }
+
+    @Test
+    public void testReadUpdateCountFromStats() throws Exception
+    {
+        final String resultJson1 = "{\"columns\":[],\"data\":[],\"stats\":{\"contains_updates\":true," +
+                "\"nodes_created\":2,\"properties_set\":3,\"labels_added\":2,\"indexes_added\":0}}";
+        final String resultJson2 = "{\"columns\":[\"a\"],\"data\": [{\"row\":[1]}]}";
+        final String json = "{\"results\":[" + resultJson1 + "," + resultJson2 + "],\"errors\":[]}";
+        final JsonParser parser = streamingParser.obtainParser( new StringReader( json ) );
+        final Iterator<ExecutionResult> results = streamingParser.toResults( parser, null, STATEMENT, STATEMENT );
+        ExecutionResult result = results.next();
+        assertFalse( result.iterator().hasNext() );
+        assertEquals( 7, result.getUpdateCount() );
+        result = results.next();
+        assertEquals( 1, IteratorUtil.count( result.iterator() ) );
+        assertEquals( -1, result.getUpdateCount() );
+        assertFalse( results.hasNext() );
+    }
+
     static final Statement STATEMENT = new Statement( "match (n) where id(n) = 0 return n", Collections.<String,
             Object>emptyMap() );
 
@@ -148,4 +200,90 @@ public class StreamingParserTest
         assertEquals( asList( "d", "e", "f" ), result.columns() );
         assertFalse( results.hasNext() );
     }
+
+    @Test
+    public void testReadResultsFromUtf8Bytes() throws Exception
+    {
+        final String json = "{\"results\":[{\"columns\":[\"name\"],\"data\": [{\"row\":[\"J\u00fcrgen \u2603\"]}]}]}";
+        final JsonParser parser = streamingParser.obtainParser( new ByteArrayInputStream( json.getBytes( UTF_8 ) ) );
+        final Iterator<ExecutionResult> results = streamingParser.toResults( parser, null, STATEMENT );
+        final Iterator<Object[]> rows = results.next().iterator();
+        assertArrayEquals( new Object[]{"J\u00fcrgen \u2603"}, rows.next() );
+        assertFalse( rows.hasNext() );
+    }
+
+    @Test
+    public void testReportsTransactionExpiryAtEnd() throws Exception
+    {
+        final String json = "{\"commit\":\"http://localhost/db/data/transaction/1/commit\",\"results\":[{" +
+                "\"columns\":[\"expires\"],\"data\": [{\"row\":[{\"expires\":\"never\"}]}]}]," +
+                "\"transaction\":{\"expires\":\"Tue, 18 Oct 2016 10:00:00 +0000\"},\"errors\":[]}";
+        final JsonParser parser = streamingParser.obtainParser( new StringReader( json ) );
+        final List<String> expires = new ArrayList<>();
+        final Iterator<ExecutionResult> results = streamingParser.toResults( parser, null,
+                new StreamingParser.ExpiryCallback()
+                {
+                    @Override
+                    public void expires( String value )
+                    {
+                        expires.add( value );
+                    }
+                }, STATEMENT );
+        final Iterator<Object[]> rows = results.next().iterator();
+        rows.next();
+        assertEquals( Collections.<String>emptyList(), expires );
+        assertFalse( rows.hasNext() );
+        assertFalse( results.hasNext() );
+        assertEquals( asList( "Tue, 18 Oct 2016 10:00:00 +0000" ), expires );
+    }
+
+    @Test
+    public void testReadTypedRows() throws Exception
+    {
+        final String json = "{\"results\":[{\"columns\":[\"a\",\"b\",\"c\",\"d\",\"e\",\"f\"]," +
+                "\"data\": [{\"row\":[1,5000000000,1.5,true,null,\"x\"]}]}]}";
+        final JsonParser parser = streamingParser.obtainParser( new StringReader( json ) );
+        final Iterator<ExecutionResult> results = streamingParser.toResults( parser, null, STATEMENT );
+        final TypedRowIterator rows = (TypedRowIterator) results.next().iterator();
+        final TypedRow row = rows.nextTypedRow();
+        assertEquals( TypedRow.INT, row.getType( 0 ) );
+        assertEquals( 1, row.getLong( 0 ) );
+        assertEquals( TypedRow.LONG, row.getType( 1 ) );
+        assertEquals( 5000000000L, row.getLong( 1 ) );
+        assertEquals( TypedRow.DOUBLE, row.getType( 2 ) );
+        assertEquals( 1.5, row.getDouble( 2 ), 0 );
+        assertEquals( TypedRow.BOOLEAN, row.getType( 3 ) );
+        assertEquals( TypedRow.NULL, row.getType( 4 ) );
+        assertEquals( TypedRow.OBJECT, row.getType( 5 ) );
+        assertArrayEquals( new Object[]{1, 5000000000L, 1.5, true, null, "x"}, row.toArray() );
+        assertFalse( rows.hasNext() );
+    }
+
+    @Test
+    public void testLazyCellsKeepRawJson() throws Exception
+    {
+        final StreamingParser lazyParser = new StreamingParser( new ObjectMapper(), false, true );
+        final StringBuilder json = new StringBuilder( "{\"results\":[{\"columns\":[\"id\",\"props\",\"list\"],\"data\":[" );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            json.append( i == 0 ? "" : "," ).append( "{\"row\":[" ).append( i ).append( ", {\"name\" : \"n" )
+                    .append( i ).append( "\"},[1, [2]]]}" );
+        }
+        json.append( "]}]}" );
+        final JsonParser parser = lazyParser.obtainParser( new ByteArrayInputStream( json.toString().getBytes(
+                UTF_8 ) ) );
+        final TypedRowIterator rows = (TypedRowIterator) lazyParser.toResults( parser, null, STATEMENT ).next()
+                .iterator();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            final TypedRow row = rows.nextTypedRow();
+            assertEquals( i, row.getLong( 0 ) );
+            assertEquals( TypedRow.RAW_JSON, row.getType( 1 ) );
+            assertEquals( "{\"name\" : \"n" + i + "\"}", row.getRawJson( 1 ) );
+            assertEquals( "[1, [2]]", row.getRawJson( 2 ) );
+            assertEquals( Collections.singletonMap( "name", "n" + i ), row.get( 1 ) );
+            assertEquals( asList( 1, asList( 2 ) ), row.get( 2 ) );
+        }
+        assertFalse( rows.hasNext() );
+    }
 }
@@ -0,0 +1,96 @@
+package org.neo4j.jdbc.rest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionKeepAliveTest
+{
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final TransactionKeepAlive keepAlive = new TransactionKeepAlive( scheduler, executor, 10 );
+
+    @After
+    public void tearDown() throws Exception
+    {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testKeepsTransactionAliveBeforeExpiry() throws Exception
+    {
+        final FakeTransaction transaction = new FakeTransaction( 300 );
+        keepAlive.register( transaction, 300 );
+        Thread.sleep( 600 );
+        assertTrue( transaction.keepAlives.get() >= 2 );
+        assertTrue( transaction.expiry > System.currentTimeMillis() );
+        assertEquals( 1, keepAlive.size() );
+    }
+
+    @Test
+    public void testDoesNotKeepFreshTransactionAlive() throws Exception
+    {
+        final FakeTransaction transaction = new FakeTransaction( 60000 );
+        keepAlive.register( transaction, 60000 );
+        Thread.sleep( 100 );
+        assertEquals( 0, transaction.keepAlives.get() );
+    }
+
+    @Test
+    public void testStopsAfterUnregister() throws Exception
+    {
+        final FakeTransaction transaction = new FakeTransaction( 0 );
+        keepAlive.register( transaction, 300 );
+        keepAlive.unregister( transaction );
+        Thread.sleep( 100 );
+        assertEquals( 0, transaction.keepAlives.get() );
+        assertEquals( 0, keepAlive.size() );
+    }
+
+    @Test
+    public void testDropsTransactionThatIsNotOpenAnymore() throws Exception
+    {
+        final FakeTransaction transaction = new FakeTransaction( 0 );
+        transaction.open = false;
+        keepAlive.register( transaction, 300 );
+        Thread.sleep( 100 );
+        assertEquals( 1, transaction.keepAlives.get() );
+        assertEquals( 0, keepAlive.size() );
+    }
+
+    private static class FakeTransaction implements TransactionKeepAlive.Transaction
+    {
+        private final long timeout;
+        private final AtomicInteger keepAlives = new AtomicInteger();
+        private volatile long expiry;
+        private volatile boolean open = true;
+
+        FakeTransaction( long timeout )
+        {
+            this.timeout = timeout;
+            this.expiry = System.currentTimeMillis() + timeout;
+        }
+
+        @Override
+        public long getExpiry()
+        {
+            return expiry;
+        }
+
+        @Override
+        public boolean keepAlive()
+        {
+            keepAlives.incrementAndGet();
+            expiry = System.currentTimeMillis() + timeout;
+            return open;
+        }
+    }
+}
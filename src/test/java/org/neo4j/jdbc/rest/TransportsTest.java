@@ -0,0 +1,64 @@
+package org.neo4j.jdbc.rest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TransportsTest
+{
+    private final Transports transports = new Transports();
+
+    private Transport acquire( String url )
+    {
+        return transports.acquire( url, null, Transports.DEFAULT_MAX_CONNECTIONS_PER_HOST,
+                Transports.DEFAULT_MAX_TOTAL_CONNECTIONS, Transports.DEFAULT_IDLE_TIMEOUT );
+    }
+
+    @Test
+    public void testSharesTransportPerServer() throws Exception
+    {
+        final Transport first = acquire( "http://localhost:7474/" );
+        final Transport second = acquire( "http://localhost:7474/db/data/" );
+        assertSame( first, second );
+        assertEquals( 2, first.getUsers() );
+        assertEquals( 1, transports.getTransports().size() );
+    }
+
+    @Test
+    public void testSeparateTransportPerPort() throws Exception
+    {
+        final Transport first = acquire( "http://localhost:7474/" );
+        final Transport second = acquire( "http://localhost:7475/" );
+        assertNotSame( first, second );
+        assertEquals( 2, transports.getTransports().size() );
+    }
+
+    @Test
+    public void testPoolSettings() throws Exception
+    {
+        final Transport transport = transports.acquire( "http://localhost:7474/", null, 5,
+                Transports.DEFAULT_MAX_TOTAL_CONNECTIONS, Transports.DEFAULT_IDLE_TIMEOUT );
+        assertEquals( 5, transport.getMaxConnectionsPerHost() );
+        assertEquals( Transports.DEFAULT_MAX_TOTAL_CONNECTIONS, transport.getMaxTotalConnections() );
+    }
+
+    @Test
+    public void testTransportIsStoppedWithLastUser() throws Exception
+    {
+        final Transport transport = acquire( "http://localhost:7474/" );
+        acquire( "http://localhost:7474/" );
+        transport.release();
+        assertFalse( transport.isStopped() );
+        transport.release();
+        assertEquals( 0, transport.getUsers() );
+        assertTrue( transport.isStopped() );
+        assertTrue( transports.getTransports().isEmpty() );
+        final Transport next = acquire( "http://localhost:7474/" );
+        assertNotSame( transport, next );
+        assertEquals( 1, next.getUsers() );
+    }
+}
@@ -0,0 +1,180 @@
+package org.neo4j.jdbc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrefetchingIteratorTest
+{
+    private final ExecutorService executor = Executors.newCachedThreadPool( new DaemonThreadFactory( "test" ) );
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReturnsAllElementsInOrder() throws Exception
+    {
+        final PrefetchingIterator<Integer> it = new PrefetchingIterator<Integer>( new CountingSource( 1000 ), 16,
+                executor );
+        List<Integer> result = new ArrayList<Integer>();
+        while ( it.hasNext() )
+        {
+            result.add( it.next() );
+        }
+        assertEquals( 1000, result.size() );
+        for ( int i = 0; i < result.size(); i++ )
+        {
+            assertEquals( i, result.get( i ).intValue() );
+        }
+        assertFalse( it.hasNext() );
+    }
+
+    @Test
+    public void testProducerIsBoundedByBuffer() throws Exception
+    {
+        final CountingSource source = new CountingSource( 1000 );
+        final PrefetchingIterator<Integer> it = new PrefetchingIterator<Integer>( source, 10, executor );
+        Thread.sleep( 300 );
+        // the buffered elements plus the one the producer waits to hand over
+        assertTrue( source.produced.get() <= 11 );
+        it.close();
+    }
+
+    @Test
+    public void testCloseStopsProducerAndClosesSource() throws Exception
+    {
+        final CountingSource source = new CountingSource( Integer.MAX_VALUE );
+        final PrefetchingIterator<Integer> it = new PrefetchingIterator<Integer>( source, 4, executor );
+        assertEquals( 0, it.next().intValue() );
+        it.close();
+        assertTrue( source.closed.await( 5, TimeUnit.SECONDS ) );
+        assertFalse( it.hasNext() );
+    }
+
+    @Test
+    public void testCloseReleasesProducerBlockedInSource() throws Exception
+    {
+        final BlockingSource source = new BlockingSource();
+        final PrefetchingIterator<Integer> it = new PrefetchingIterator<Integer>( source, 4, executor );
+        assertTrue( source.reading.await( 5, TimeUnit.SECONDS ) );
+        it.close();
+        assertTrue( source.closed.await( 5, TimeUnit.SECONDS ) );
+        assertTrue( source.released.await( 5, TimeUnit.SECONDS ) );
+        assertFalse( it.hasNext() );
+    }
+
+    @Test
+    public void testPropagatesProducerFailure() throws Exception
+    {
+        final CountingSource source = new CountingSource( 3 );
+        source.failAt = 2;
+        final PrefetchingIterator<Integer> it = new PrefetchingIterator<Integer>( source, 4, executor );
+        assertEquals( 0, it.next().intValue() );
+        assertEquals( 1, it.next().intValue() );
+        try
+        {
+            it.hasNext();
+            fail( "expected producer failure" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "failed at 2", e.getMessage() );
+        }
+        assertFalse( it.hasNext() );
+    }
+
+    private static class CountingSource implements ClosableIterator<Integer>
+    {
+        final AtomicInteger produced = new AtomicInteger();
+        final CountDownLatch closed = new CountDownLatch( 1 );
+        final int count;
+        int failAt = -1;
+
+        CountingSource( int count )
+        {
+            this.count = count;
+        }
+
+        public boolean hasNext()
+        {
+            return produced.get() < count;
+        }
+
+        public Integer next()
+        {
+            final int value = produced.getAndIncrement();
+            if ( value == failAt )
+            {
+                throw new IllegalStateException( "failed at " + value );
+            }
+            return value;
+        }
+
+        public void remove()
+        {
+        }
+
+        public void close()
+        {
+            closed.countDown();
+        }
+    }
+
+    /**
+     * Blocks in hasNext() like a read on a stream that gets no data, until it is closed or interrupted.
+     */
+    private static class BlockingSource implements ClosableIterator<Integer>
+    {
+        final CountDownLatch reading = new CountDownLatch( 1 );
+        final CountDownLatch closed = new CountDownLatch( 1 );
+        final CountDownLatch released = new CountDownLatch( 1 );
+
+        public boolean hasNext()
+        {
+            reading.countDown();
+            try
+            {
+                closed.await();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                released.countDown();
+            }
+            throw new IllegalStateException( "stream closed" );
+        }
+
+        public Integer next()
+        {
+            throw new NoSuchElementException();
+        }
+
+        public void remove()
+        {
+        }
+
+        public void close()
+        {
+            closed.countDown();
+        }
+    }
+}
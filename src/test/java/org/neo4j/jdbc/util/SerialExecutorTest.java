@@ -0,0 +1,139 @@
+package org.neo4j.jdbc.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SerialExecutorTest
+{
+    private final ExecutorService executor = Executors.newFixedThreadPool( 4, new DaemonThreadFactory( "test" ) );
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRunsTasksOneAfterTheOtherInOrder() throws Exception
+    {
+        final SerialExecutor serial = new SerialExecutor( executor );
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<Integer>() );
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch( 100 );
+        for ( int i = 0; i < 100; i++ )
+        {
+            final int task = i;
+            serial.execute( new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    maxRunning.set( Math.max( maxRunning.get(), running.incrementAndGet() ) );
+                    order.add( task );
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            } );
+        }
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        assertEquals( 1, maxRunning.get() );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( i, (int) order.get( i ) );
+        }
+    }
+
+    @Test
+    public void testContinuesAfterFailingTask() throws Exception
+    {
+        final SerialExecutor serial = new SerialExecutor( executor );
+        final CountDownLatch done = new CountDownLatch( 1 );
+        serial.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                throw new IllegalStateException( "failed" );
+            }
+        } );
+        serial.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                done.countDown();
+            }
+        } );
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testFailsRejectedTasksAndRunsTheFollowingOnes() throws Exception
+    {
+        final AtomicInteger rejections = new AtomicInteger( 2 );
+        final SerialExecutor serial = new SerialExecutor( new Executor()
+        {
+            @Override
+            public void execute( Runnable command )
+            {
+                if ( rejections.getAndDecrement() > 0 )
+                {
+                    throw new RejectedExecutionException( "rejected" );
+                }
+                executor.execute( command );
+            }
+        } );
+        final AtomicReference<RejectedExecutionException> rejected = new AtomicReference<>();
+        serial.execute( new SerialExecutor.Task()
+        {
+            @Override
+            public void rejected( RejectedExecutionException e )
+            {
+                rejected.set( e );
+            }
+
+            @Override
+            public void run()
+            {
+            }
+        } );
+        final FutureTask<Void> future = new FutureTask<>( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        }, null );
+        serial.execute( future );
+        final CountDownLatch done = new CountDownLatch( 1 );
+        serial.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                done.countDown();
+            }
+        } );
+        assertNotNull( rejected.get() );
+        assertTrue( future.isCancelled() );
+        assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+    }
+}